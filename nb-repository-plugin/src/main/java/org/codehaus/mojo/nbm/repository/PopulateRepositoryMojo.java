@@ -83,6 +83,9 @@ import org.apache.tools.ant.taskdefs.PathConvert;
 import org.apache.tools.ant.types.FileSet;
 import org.codehaus.mojo.nbm.utils.AbstractNetbeansMojo;
 import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.ExamineManifestBatch;
+import org.codehaus.mojo.nbm.utils.ManifestCache;
+import org.codehaus.mojo.nbm.utils.ManifestInfo;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 
@@ -218,6 +221,15 @@ public class PopulateRepositoryMojo
     @Parameter(defaultValue="temp", property="dependencyRepositoryId")
     private String dependencyRepositoryId;
 
+    /**
+     * Folder holding cached manifests of already examined module jars, shared between builds.
+     * Repeated population of the same installation skips reopening unchanged jars.
+     * Set to an empty value to disable the cache.
+     * @since 1.4
+     */
+    @Parameter(defaultValue="${settings.localRepository}/.cache/nbm-maven-plugin/manifests", property="maven.nbm.manifestCache")
+    private File manifestCacheDirectory;
+
     // <editor-fold defaultstate="collapsed" desc="Component parameters">
     /**
      * Local maven repository.
@@ -350,16 +362,23 @@ public class PopulateRepositoryMojo
         StringTokenizer tok = new StringTokenizer( prop, "," );
         HashMap<ModuleWrapper, Artifact> moduleDefinitions = new HashMap<ModuleWrapper, Artifact>();
         HashMap<String, Collection<ModuleWrapper>> clusters = new HashMap<String, Collection<ModuleWrapper>>();
+        ManifestCache manifestCache = manifestCacheDirectory != null && manifestCacheDirectory.getPath().length() > 0
+            ? new ManifestCache( manifestCacheDirectory ) : null;
+        List<File> moduleFiles = new ArrayList<File>();
         while ( tok.hasMoreTokens() )
         {
-            String token = tok.nextToken();
-            File module = new File( token );
+            moduleFiles.add( new File( tok.nextToken() ) );
+        }
+        ExamineManifestBatch batch = new ExamineManifestBatch( getLog() );
+        batch.setPopulateDependencies( true );
+        batch.setManifestCache( manifestCache );
+        List<ExamineManifest> examined = batch.examine( moduleFiles );
+        for ( int i = 0; i < moduleFiles.size(); i++ )
+        {
+            File module = moduleFiles.get( i );
             String clust = module.getAbsolutePath().substring( rootDir.getAbsolutePath().length() + 1 );
             clust = clust.substring( 0, clust.indexOf( File.separator ) );
-            ExamineManifest examinator = new ExamineManifest( getLog() );
-            examinator.setPopulateDependencies( true );
-            examinator.setJarFile( module );
-            examinator.checkFile();
+            ExamineManifest examinator = examined.get( i );
             if ( examinator.isNetBeansModule() || examinator.isOsgiBundle() )
             {
                 //TODO get artifact id from the module's manifest?
@@ -388,7 +407,7 @@ public class PopulateRepositoryMojo
                         // (for now all bundles are from Orbit, which does not publish to Central, or specially built)
                     }
                 }
-                ModuleWrapper wr = new ModuleWrapper( artifact, version, group, examinator, module );
+                ModuleWrapper wr = new ModuleWrapper( artifact, version, group, examinator.getManifestInfo(), module );
                 wr.setCluster( clust );
                 moduleDefinitions.put( wr, art );
                 Collection<ModuleWrapper> col = clusters.get( clust );
@@ -754,7 +773,7 @@ public class PopulateRepositoryMojo
         mavenModel.setVersion( wrapper.getVersion() );
         mavenModel.setPackaging( "jar" );
         mavenModel.setModelVersion( "4.0.0" );
-        ExamineManifest man = wrapper.getModuleManifest();
+        ManifestInfo man = wrapper.getModuleManifest();
         List<Dependency> deps = new ArrayList<Dependency>();
         if ( !man.getDependencyTokens().isEmpty() )
         {
@@ -1153,7 +1172,7 @@ public class PopulateRepositoryMojo
     private static class ModuleWrapper
     {
 
-        ExamineManifest man;
+        ManifestInfo man;
 
         private String artifact;
 
@@ -1174,7 +1193,7 @@ public class PopulateRepositoryMojo
             this.module = module;
         }
 
-        public ModuleWrapper( String art, String ver, String grp, ExamineManifest manifest, File fil )
+        public ModuleWrapper( String art, String ver, String grp, ManifestInfo manifest, File fil )
         {
             man = manifest;
             artifact = art;
@@ -1200,7 +1219,7 @@ public class PopulateRepositoryMojo
             return module != null ? module : getModuleManifest().getModule();
         }
 
-        public ExamineManifest getModuleManifest()
+        public ManifestInfo getModuleManifest()
         {
             return man;
         }
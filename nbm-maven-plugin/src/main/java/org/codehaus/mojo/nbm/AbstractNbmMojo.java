@@ -20,9 +20,11 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
@@ -32,8 +34,10 @@ import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
@@ -43,12 +47,243 @@ import org.codehaus.mojo.nbm.model.Dependency;
 import org.codehaus.mojo.nbm.model.NetBeansModule;
 import org.codehaus.mojo.nbm.model.io.xpp3.NetBeansModuleXpp3Reader;
 import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.ManifestCache;
 import org.codehaus.plexus.util.IOUtil;
 
 public abstract class AbstractNbmMojo
     extends org.codehaus.mojo.nbm.utils.AbstractNetbeansMojo
 {
 
+    /**
+     * Directory of the persistent cache of examined jar manifests. Entries are keyed by the jar location,
+     * size and timestamp, so jars from the local repository are only opened once across builds.
+     * Set to an empty value to disable the cache.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="${settings.localRepository}/.cache/nbm-maven-plugin/manifests", property="maven.nbm.manifestCache")
+    private File manifestCacheDirectory;
+
+    /**
+     * Directory of the persistent cache of classes defined and referenced by local repository jars,
+     * used by the runtime verification. Entries are keyed by the jar content, so they are shared
+     * by all builds and never go stale. Set to an empty value to disable the cache.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="${settings.localRepository}/.cache/nbm-maven-plugin/classes", property="maven.nbm.classCache")
+    private File classCacheDirectory;
+
+    /**
+     * Directory of the persistent cache of CRC-32 checksums of local repository jars, as written
+     * to <code>update_tracking</code> and <code>.external</code> files. Entries are keyed by the artifact path,
+     * size and timestamp. Set to an empty value to keep checksums for the current build only.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="${settings.localRepository}/.cache/nbm-maven-plugin/checksums", property="maven.nbm.checksumCache")
+    private File checksumCacheDirectory;
+
+    /**
+     * Project context key prefix of the resolved dependency trees, followed by the resolution scope.
+     */
+    private static final String DEPENDENCY_GRAPH_KEY = "nbm-maven-plugin.dependencyGraph:";
+
+    @Parameter(property="session", readonly=true, required=true)
+    protected MavenSession session;
+
+    /**
+     * Timestamp used instead of the current time in generated module versions, NBM release dates
+     * and install times, so that repeated builds of the same sources produce identical output.
+     * Either an ISO 8601 date and time with offset, like <code>2026-01-01T00:00:00Z</code>,
+     * or the number of seconds since the epoch. Other values shorter than two characters keep using the current time.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="${project.build.outputTimestamp}", property="maven.nbm.outputTimestamp")
+    private String outputTimestamp;
+
+    /**
+     * How jars and NBMs taken from the local repository or from other modules are placed into cluster,
+     * application and update site directories: <code>copy</code>, <code>hardlink</code>, <code>reflink</code>
+     * or <code>symlink</code>. Hard and symbolic links save time and disk space but share the file with its source,
+     * so the output must not be modified in place by other tools; symbolic links also break when the output
+     * is moved elsewhere. <code>reflink</code> creates copy-on-write clones with the <code>cp</code> command
+     * on Linux and macOS file systems supporting them (Btrfs, XFS, APFS). Files that cannot be linked are copied.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="copy", property="maven.nbm.filePlacement")
+    private String filePlacement;
+
+    private FilePlacement placement;
+
+    private ChecksumCache checksumCache;
+
+    private ManifestCache manifestCache;
+
+    private ManifestRegistry manifestRegistry;
+
+    /**
+     * The persistent manifest cache configured for this execution.
+     * @return the cache or null if disabled
+     */
+    protected final ManifestCache getManifestCache()
+    {
+        if ( manifestCache == null && manifestCacheDirectory != null && manifestCacheDirectory.getPath().length() > 0 )
+        {
+            manifestCache = new ManifestCache( manifestCacheDirectory );
+        }
+        return manifestCache;
+    }
+
+    /**
+     * The persistent class inventory cache configured for this execution.
+     * @return the cache or null if disabled
+     */
+    final ClassInventoryCache getClassInventoryCache()
+    {
+        if ( classCacheDirectory == null || classCacheDirectory.getPath().length() == 0 || session == null
+            || session.getLocalRepository() == null )
+        {
+            return null;
+        }
+        return new ClassInventoryCache( classCacheDirectory, new File( session.getLocalRepository().getBasedir() ) );
+    }
+
+    /**
+     * Checksums of files shared with the other modules of the current build.
+     * @return the cache, never null
+     */
+    final ChecksumCache getChecksumCache()
+    {
+        if ( checksumCache == null )
+        {
+            File directory = checksumCacheDirectory != null && checksumCacheDirectory.getPath().length() > 0
+                ? checksumCacheDirectory : null;
+            File repository = session != null && session.getLocalRepository() != null
+                ? new File( session.getLocalRepository().getBasedir() ) : null;
+            checksumCache = ChecksumCache.forSession( session, directory, repository );
+        }
+        return checksumCache;
+    }
+
+    /**
+     * The file placement strategy configured for this execution.
+     * @return the placement, never null
+     * @throws MojoExecutionException when the configured strategy is unknown
+     */
+    final FilePlacement getFilePlacement()
+        throws MojoExecutionException
+    {
+        if ( placement == null )
+        {
+            placement = new FilePlacement( filePlacement, getLog() );
+        }
+        return placement;
+    }
+
+    /**
+     * Examined dependency manifests shared with the other modules of the current build.
+     * @return the registry, never null
+     */
+    protected final ManifestRegistry getManifestRegistry()
+    {
+        if ( manifestRegistry == null )
+        {
+            manifestRegistry = ManifestRegistry.forSession( session, getManifestCache() );
+        }
+        return manifestRegistry;
+    }
+
+    /**
+     * The instant to stamp generated content with.
+     * @return the configured output timestamp, or the current time if none is configured
+     * @throws MojoExecutionException when the output timestamp cannot be parsed
+     */
+    protected final Date getBuildDate()
+        throws MojoExecutionException
+    {
+        Date date = parseOutputTimestamp( outputTimestamp );
+        return date != null ? date : new Date();
+    }
+
+    /**
+     * @return true if a fixed output timestamp is configured
+     * @throws MojoExecutionException when the output timestamp cannot be parsed
+     */
+    protected final boolean isReproducible()
+        throws MojoExecutionException
+    {
+        return parseOutputTimestamp( outputTimestamp ) != null;
+    }
+
+    static Date parseOutputTimestamp( String value )
+        throws MojoExecutionException
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        value = value.trim();
+        if ( value.matches( "\\d+" ) )
+        {
+            return new Date( Long.parseLong( value ) * 1000 );
+        }
+        if ( value.length() < 2 )
+        {
+            return null;
+        }
+        for ( String pattern : new String[] { "yyyy-MM-dd'T'HH:mm:ssXXX", "yyyy-MM-dd'T'HH:mm:ss.SSSXXX" } )
+        {
+            SimpleDateFormat format = new SimpleDateFormat( pattern, Locale.ENGLISH );
+            format.setLenient( false );
+            ParsePosition position = new ParsePosition( 0 );
+            Date date = format.parse( value, position );
+            if ( date != null && position.getIndex() == value.length() )
+            {
+                return date;
+            }
+        }
+        throw new MojoExecutionException( "Invalid output timestamp '" + value
+            + "', expected an ISO 8601 date like 2026-01-01T00:00:00Z or seconds since the epoch" );
+    }
+
+    /**
+     * Logs the hit and miss counts of the manifest and checksum caches and how files were placed, if they were used.
+     */
+    protected final void logManifestCacheStatistics()
+    {
+        if ( manifestRegistry != null )
+        {
+            getLog().debug( manifestRegistry.size() + " jars examined in this build so far" );
+        }
+        if ( manifestCache != null )
+        {
+            getLog().debug( manifestCache.toString() );
+        }
+        if ( checksumCache != null )
+        {
+            getLog().debug( checksumCache.toString() );
+        }
+        if ( placement != null )
+        {
+            getLog().debug( placement.toString() );
+        }
+    }
+
+    static ExamineManifest examineArtifact( Artifact artifact, Map<Artifact, ExamineManifest> examinerCache,
+                                            ManifestRegistry manifestRegistry, Log log )
+        throws MojoExecutionException
+    {
+        ExamineManifest depExaminator = examinerCache.get( artifact );
+        if ( depExaminator == null )
+        {
+            if ( manifestRegistry == null )
+            {
+                manifestRegistry = new ManifestRegistry( null );
+            }
+            depExaminator = manifestRegistry.examine( artifact.getFile(), log );
+            examinerCache.put( artifact, depExaminator );
+        }
+        return depExaminator;
+    }
+
     static boolean matchesLibrary( Artifact artifact, List<String> libraries, ExamineManifest depExaminator,
         Log log, boolean useOsgiDependencies )
     {
@@ -94,22 +329,30 @@ public abstract class AbstractNbmMojo
         {
             if ( id.equals( dep.getId() ) )
             {
-                if ( manifest.isNetBeansModule() )
-                {
-                    return dep;
-                }
-                else
-                {
-                    if ( dep.getExplicitValue() != null )
-                    {
-                        return dep;
-                    }
-                    log.warn(
-                        id + " declared as module dependency in descriptor, but not a NetBeans module" );
-                    return null;
-                }
+                return resolveNetBeansDependency( artifact, dep, manifest, log );
             }
         }
+        return resolveNetBeansDependency( artifact, (Dependency) null, manifest, log );
+    }
+
+    /**
+     * The module dependency on an artifact, if it is one.
+     * @param declared the module dependency configured for the artifact, null if there is none
+     */
+    static Dependency resolveNetBeansDependency( Artifact artifact, Dependency declared,
+        ExamineManifest manifest, Log log )
+    {
+        String id = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        if ( declared != null )
+        {
+            if ( manifest.isNetBeansModule() || declared.getExplicitValue() != null )
+            {
+                return declared;
+            }
+            log.warn(
+                id + " declared as module dependency in descriptor, but not a NetBeans module" );
+            return null;
+        }
         if ( "nbm".equals( artifact.getType() ) )
         {
             Dependency dep = new Dependency();
@@ -180,141 +423,6 @@ public abstract class AbstractNbmMojo
         return module;
     }
 
-    static List<Artifact> getLibraryArtifacts( DependencyNode treeRoot, NetBeansModule module,
-                                               List<Artifact> runtimeArtifacts,
-                                               Map<Artifact, ExamineManifest> examinerCache, Log log,
-                                               boolean useOsgiDependencies )
-        throws MojoExecutionException
-    {
-        List<Artifact> include = new ArrayList<Artifact>();
-        if ( module != null )
-        {
-            List<String> librList = new ArrayList<String>();
-            if ( module.getLibraries() != null )
-            {
-                librList.addAll( module.getLibraries() );
-            }
-            CollectLibrariesNodeVisitor visitor = new CollectLibrariesNodeVisitor( librList,
-                runtimeArtifacts, examinerCache, log, treeRoot, useOsgiDependencies );
-            treeRoot.accept( visitor );
-            include.addAll( visitor.getArtifacts() );
-        }
-        return include;
-    }
-
-    static List<ModuleWrapper> getModuleDependencyArtifacts( DependencyNode treeRoot, NetBeansModule module,
-                                                             Dependency[] customDependencies, MavenProject project,
-                                                             Map<Artifact, ExamineManifest> examinerCache,
-                                                             List<Artifact> libraryArtifacts, Log log,
-                                                             boolean useOsgiDependencies )
-        throws MojoExecutionException
-    {
-        List<Dependency> deps = new ArrayList<Dependency>();
-        if (customDependencies != null) {
-            deps.addAll( Arrays.asList( customDependencies ));
-        }
-        if (module != null && !module.getDependencies().isEmpty()) {
-            log.warn( "dependencies in module descriptor are deprecated, use the plugin's parameter moduleDependencies");
-            //we need to make sure a dependency is not twice there, module deps override the config (as is the case with other
-            //configurations)
-            for (Dependency d : module.getDependencies()) {
-                Dependency found = null;
-                for (Dependency d2 : deps) {
-                    if (d2.getId().equals(d.getId())) {
-                        found = d2;
-                        break;
-                    }
-                }
-                if (found != null) {
-                    deps.remove( found );
-                }
-                deps.add(d);
-            }
-        }
-        List<ModuleWrapper> include = new ArrayList<ModuleWrapper>();
-        
-            @SuppressWarnings( "unchecked" )
-            List<Artifact> artifacts = project.getCompileArtifacts();
-            for ( Artifact artifact : artifacts )
-            {
-                if ( libraryArtifacts.contains( artifact ) )
-                {
-                    continue;
-                }
-                ExamineManifest depExaminator = examinerCache.get( artifact );
-                if ( depExaminator == null )
-                {
-                    depExaminator = new ExamineManifest( log );
-                    depExaminator.setArtifactFile( artifact.getFile() );
-                    depExaminator.checkFile();
-                    examinerCache.put( artifact, depExaminator );
-                }
-                Dependency dep = resolveNetBeansDependency( artifact, deps, depExaminator, log );
-                if ( dep != null )
-                {
-                    ModuleWrapper wr = new ModuleWrapper();
-                    wr.dependency = dep;
-                    wr.artifact = artifact;
-                    wr.transitive = false;
-                    //only direct deps matter to us..
-                    if ( depExaminator.isNetBeansModule() && artifact.getDependencyTrail().size() > 2 )
-                    {
-                        log.debug(
-                            artifact.getId() + " omitted as NetBeans module dependency, not a direct one. Declare it in the pom for inclusion." );
-                        wr.transitive = true;
-
-                    }
-                    include.add( wr );
-                }
-                else
-                {
-                    if ( useOsgiDependencies && depExaminator.isOsgiBundle() )
-                    {
-                        ModuleWrapper wr = new ModuleWrapper();
-                        wr.osgi = true;
-                        String id = artifact.getGroupId() + ":" + artifact.getArtifactId();
-                        for ( Dependency depe : deps )
-                        {
-                            if ( id.equals( depe.getId() ) )
-                            {
-                                wr.dependency = depe;
-                            }
-                        }
-                        boolean print = false;
-                        if ( wr.dependency == null )
-                        {
-                            Dependency depe = new Dependency();
-                            depe.setId( id );
-                            depe.setType( "spec" );
-                            wr.dependency = depe;
-                            print = true;
-                        }
-
-                        wr.artifact = artifact;
-                        wr.transitive = false;
-                        //only direct deps matter to us..
-                        if ( artifact.getDependencyTrail().size() > 2 )
-                        {
-                            log.debug(
-                                artifact.getId() + " omitted as NetBeans module OSGi dependency, not a direct one. Declare it in the pom for inclusion." );
-                            wr.transitive = true;
-
-                        }
-                        else
-                        {
-                            if ( print )
-                            {
-                                log.info( "Adding OSGi bundle dependency - " + id );
-                            }
-                        }
-
-                        include.add( wr );
-                    }
-                }
-            }
-        return include;
-    }
-
     static class ModuleWrapper
     {
 
@@ -328,15 +436,28 @@ public abstract class AbstractNbmMojo
 
     }
 
+    /**
+     * The dependency tree of the project, resolved once per build and scope and kept in the project context
+     * for the later goals working on the same project.
+     */
     //copied from dependency:tree mojo
     protected DependencyNode createDependencyTree( MavenProject project, DependencyGraphBuilder dependencyGraphBuilder,
                                                    String scope )
         throws MojoExecutionException
     {
+        String key = DEPENDENCY_GRAPH_KEY + scope;
+        Object cached = project.getContextValue( key );
+        if ( cached instanceof DependencyNode )
+        {
+            getLog().debug( "+ Reusing dependency tree for scope '" + scope + "' resolved earlier in the build" );
+            return (DependencyNode) cached;
+        }
         ArtifactFilter artifactFilter = createResolvingArtifactFilter( scope );
         try
         {
-            return dependencyGraphBuilder.buildDependencyGraph( project, artifactFilter );
+            DependencyNode root = dependencyGraphBuilder.buildDependencyGraph( project, artifactFilter );
+            project.setContextValue( key, root );
+            return root;
         }
         catch ( DependencyGraphBuilderException exception )
         {
@@ -382,6 +503,7 @@ public abstract class AbstractNbmMojo
             // list of dependencies (as "nbm-file") or not..
             // that would be a timesaver
             ExamineManifest mnf = new ExamineManifest( getLog() );
+            mnf.setManifestCache( getManifestCache() );
             File jar = art.getFile();
             if ( !jar.isFile() )
             {
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log collecting messages to be replayed later, so the output of work done in parallel is not interleaved.
+ * Enabled levels are those of the target log.
+ */
+final class BufferedLog
+    implements Log
+{
+
+    private static final int DEBUG = 0;
+
+    private static final int INFO = 1;
+
+    private static final int WARN = 2;
+
+    private static final int ERROR = 3;
+
+    private final Log target;
+
+    private final List<Message> messages = new ArrayList<Message>();
+
+    /**
+     * @param target log to replay to
+     */
+    BufferedLog( Log target )
+    {
+        this.target = target;
+    }
+
+    /**
+     * Writes the collected messages to the target log and forgets them.
+     */
+    synchronized void replay()
+    {
+        for ( Message m : messages )
+        {
+            switch ( m.level )
+            {
+                case DEBUG:
+                    if ( m.error == null )
+                    {
+                        target.debug( m.content );
+                    }
+                    else if ( m.content == null )
+                    {
+                        target.debug( m.error );
+                    }
+                    else
+                    {
+                        target.debug( m.content, m.error );
+                    }
+                    break;
+                case INFO:
+                    if ( m.error == null )
+                    {
+                        target.info( m.content );
+                    }
+                    else if ( m.content == null )
+                    {
+                        target.info( m.error );
+                    }
+                    else
+                    {
+                        target.info( m.content, m.error );
+                    }
+                    break;
+                case WARN:
+                    if ( m.error == null )
+                    {
+                        target.warn( m.content );
+                    }
+                    else if ( m.content == null )
+                    {
+                        target.warn( m.error );
+                    }
+                    else
+                    {
+                        target.warn( m.content, m.error );
+                    }
+                    break;
+                default:
+                    if ( m.error == null )
+                    {
+                        target.error( m.content );
+                    }
+                    else if ( m.content == null )
+                    {
+                        target.error( m.error );
+                    }
+                    else
+                    {
+                        target.error( m.content, m.error );
+                    }
+                    break;
+            }
+        }
+        messages.clear();
+    }
+
+    private synchronized void add( int level, CharSequence content, Throwable error )
+    {
+        messages.add( new Message( level, content, error ) );
+    }
+
+    public boolean isDebugEnabled()
+    {
+        return target.isDebugEnabled();
+    }
+
+    public void debug( CharSequence content )
+    {
+        debug( content, null );
+    }
+
+    public void debug( CharSequence content, Throwable error )
+    {
+        if ( isDebugEnabled() )
+        {
+            add( DEBUG, content, error );
+        }
+    }
+
+    public void debug( Throwable error )
+    {
+        debug( null, error );
+    }
+
+    public boolean isInfoEnabled()
+    {
+        return target.isInfoEnabled();
+    }
+
+    public void info( CharSequence content )
+    {
+        info( content, null );
+    }
+
+    public void info( CharSequence content, Throwable error )
+    {
+        if ( isInfoEnabled() )
+        {
+            add( INFO, content, error );
+        }
+    }
+
+    public void info( Throwable error )
+    {
+        info( null, error );
+    }
+
+    public boolean isWarnEnabled()
+    {
+        return target.isWarnEnabled();
+    }
+
+    public void warn( CharSequence content )
+    {
+        warn( content, null );
+    }
+
+    public void warn( CharSequence content, Throwable error )
+    {
+        if ( isWarnEnabled() )
+        {
+            add( WARN, content, error );
+        }
+    }
+
+    public void warn( Throwable error )
+    {
+        warn( null, error );
+    }
+
+    public boolean isErrorEnabled()
+    {
+        return target.isErrorEnabled();
+    }
+
+    public void error( CharSequence content )
+    {
+        error( content, null );
+    }
+
+    public void error( CharSequence content, Throwable error )
+    {
+        if ( isErrorEnabled() )
+        {
+            add( ERROR, content, error );
+        }
+    }
+
+    public void error( Throwable error )
+    {
+        error( null, error );
+    }
+
+    private static final class Message
+    {
+        final int level;
+
+        final CharSequence content;
+
+        final Throwable error;
+
+        Message( int level, CharSequence content, Throwable error )
+        {
+            this.level = level;
+            this.content = content;
+            this.error = error;
+        }
+    }
+}
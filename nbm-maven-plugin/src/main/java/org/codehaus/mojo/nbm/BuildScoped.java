@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * A value shared by all mojo executions of one reactor build, created on first use.
+ * Values are keyed by the execution request, parallel builds clone the session per module but share the request.
+ * A value is dropped together with its build.
+ * @param <T> type of the value
+ */
+abstract class BuildScoped<T>
+{
+
+    private final Map<Object, T> values = new WeakHashMap<Object, T>();
+
+    /**
+     * @return a scope holding one concurrent map per build
+     */
+    static <K, V> BuildScoped<ConcurrentMap<K, V>> concurrentMap()
+    {
+        return new BuildScoped<ConcurrentMap<K, V>>()
+        {
+            @Override
+            protected ConcurrentMap<K, V> create()
+            {
+                return new ConcurrentHashMap<K, V>();
+            }
+        };
+    }
+
+    /**
+     * @return a new value for a build
+     */
+    protected abstract T create();
+
+    /**
+     * @param session current session, can be null
+     * @return the value of the build, or null if there is no session to share it with
+     */
+    final T get( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return null;
+        }
+        synchronized ( values )
+        {
+            T value = values.get( session.getRequest() );
+            if ( value == null )
+            {
+                value = create();
+                values.put( session.getRequest(), value );
+            }
+            return value;
+        }
+    }
+
+    /**
+     * @param session current session, can be null
+     * @return the value of the build, or null if none was created
+     */
+    final T remove( MavenSession session )
+    {
+        if ( session == null || session.getRequest() == null )
+        {
+            return null;
+        }
+        synchronized ( values )
+        {
+            return values.remove( session.getRequest() );
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.mojo.nbm.utils.AtomicFile;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * CRC-32 checksums of files, as written to <code>update_tracking</code> and <code>.external</code> files.
+ * Files are read in small chunks, never as a whole. Each file is checksummed once per build,
+ * results are shared by all modules of one reactor build like in {@link ClassInventory}.
+ * Checksums of jars from the local repository are also kept on disk across builds, one small
+ * properties file per artifact named after its path in the repository.
+ * Any entry is only used while the file's size and timestamp match the recorded ones.
+ * Writing the cache is best effort, failures are ignored and the file is read again next time.
+ */
+final class ChecksumCache
+{
+
+    private static final String KEY_PATH = "cache.path";
+
+    private static final String KEY_SIZE = "cache.size";
+
+    private static final String KEY_MODIFIED = "cache.modified";
+
+    private static final String KEY_CRC = "crc32";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final BuildScoped<ConcurrentMap<File, Entry>> SHARED = BuildScoped.concurrentMap();
+
+    private final ConcurrentMap<File, Entry> files;
+
+    private final File directory;
+
+    private final String repository;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Cache sharing checksums with all mojo executions of the given build.
+     * @param session current session, null gives a private cache
+     * @param directory folder holding the persistent entries, null to keep checksums in memory only
+     * @param repository local repository, only its files are stored persistently, can be null
+     * @return cache
+     */
+    static ChecksumCache forSession( MavenSession session, File directory, File repository )
+    {
+        ConcurrentMap<File, Entry> shared = SHARED.get( session );
+        return shared != null ? new ChecksumCache( shared, directory, repository )
+                        : new ChecksumCache( directory, repository );
+    }
+
+    /**
+     * Creates a cache not shared with any other execution.
+     * @param directory folder holding the persistent entries, null to keep checksums in memory only
+     * @param repository local repository, only its files are stored persistently, can be null
+     */
+    ChecksumCache( File directory, File repository )
+    {
+        this( new ConcurrentHashMap<File, Entry>(), directory, repository );
+    }
+
+    private ChecksumCache( ConcurrentMap<File, Entry> files, File directory, File repository )
+    {
+        this.files = files;
+        this.directory = directory;
+        this.repository = repository != null ? repository.getAbsolutePath() + File.separator : null;
+    }
+
+    /**
+     * CRC-32 of a file, from the cache when the file did not change.
+     * @param file existing file
+     * @return checksum value
+     * @throws IOException when the file cannot be read
+     */
+    long getCrc32( File file )
+        throws IOException
+    {
+        File absolute = file.getAbsoluteFile();
+        long size = absolute.length();
+        long modified = absolute.lastModified();
+        Entry entry = files.get( absolute );
+        if ( entry != null && entry.size == size && entry.modified == modified )
+        {
+            hits.incrementAndGet();
+            return entry.crc;
+        }
+        String path = repositoryPath( absolute );
+        File stored = path != null ? new File( directory, path + ".properties" ) : null;
+        Long crc = stored != null ? load( stored, path, size, modified ) : null;
+        if ( crc != null )
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+            crc = crc32( absolute );
+            if ( stored != null )
+            {
+                store( stored, path, size, modified, crc );
+            }
+        }
+        files.put( absolute, new Entry( size, modified, crc ) );
+        return crc;
+    }
+
+    /**
+     * Computes the CRC-32 of a file without caching it.
+     * @param file existing file
+     * @return checksum value
+     * @throws IOException when the file cannot be read
+     */
+    static long crc32( File file )
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[(int) Math.min( BUFFER_SIZE, Math.max( file.length(), 1 ) )];
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                crc.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return number of checksums answered from the cache
+     */
+    int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return number of files actually read
+     */
+    int getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Checksum cache at " + directory + ": " + getHits() + " hits, " + getMisses() + " misses";
+    }
+
+    /**
+     * Path of the file relative to the local repository, which identifies the artifact.
+     */
+    private String repositoryPath( File file )
+    {
+        if ( directory == null || repository == null || !file.getPath().startsWith( repository ) )
+        {
+            return null;
+        }
+        return file.getPath().substring( repository.length() ).replace( File.separatorChar, '/' );
+    }
+
+    private static Long load( File entry, String path, long size, long modified )
+    {
+        if ( !entry.isFile() )
+        {
+            return null;
+        }
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( entry );
+            Properties props = new Properties();
+            props.load( in );
+            if ( path.equals( props.getProperty( KEY_PATH ) )
+                && String.valueOf( size ).equals( props.getProperty( KEY_SIZE ) )
+                && String.valueOf( modified ).equals( props.getProperty( KEY_MODIFIED ) ) )
+            {
+                return Long.valueOf( props.getProperty( KEY_CRC ) );
+            }
+            return null;
+        }
+        catch ( IOException ex )
+        {
+            // corrupted or concurrently replaced entry, treat as a miss
+            return null;
+        }
+        catch ( NumberFormatException ex )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private static void store( File entry, String path, long size, long modified, long crc )
+    {
+        Properties props = new Properties();
+        props.setProperty( KEY_PATH, path );
+        props.setProperty( KEY_SIZE, String.valueOf( size ) );
+        props.setProperty( KEY_MODIFIED, String.valueOf( modified ) );
+        props.setProperty( KEY_CRC, String.valueOf( crc ) );
+        AtomicFile.write( entry, props );
+    }
+
+    private static final class Entry
+    {
+        final long size;
+
+        final long modified;
+
+        final long crc;
+
+        Entry( long size, long modified, long crc )
+        {
+            this.size = size;
+            this.modified = modified;
+            this.crc = crc;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.mojo.nbm.utils.AtomicFile;
+import org.codehaus.mojo.nbm.utils.Digests;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Classes defined and referenced by a folder of compiled classes, analyzed incrementally.
+ * The referenced classes of every class file are stored in a cache file together with a digest
+ * of the class file, later runs only analyze class files whose digest changed.
+ */
+final class ClassDependencyCache
+{
+
+    private static final int FORMAT = 2;
+
+    private final File cacheFile;
+
+    private int analyzed;
+
+    private int reused;
+
+    /**
+     * @param cacheFile file holding the results of the previous run, created on demand
+     */
+    ClassDependencyCache( File cacheFile )
+    {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Analyzes all class files in the folder, reusing cached results for unchanged files.
+     * @param classesDir folder with compiled classes
+     * @param universe ids to give the classes
+     * @return defined and referenced classes of the folder
+     * @throws IOException when a class file cannot be read
+     */
+    ClassInventory.Classes analyze( File classesDir, ClassUniverse universe )
+        throws IOException
+    {
+        analyzed = 0;
+        reused = 0;
+        Map<String, Entry> previous = load();
+        Map<String, Entry> current = new HashMap<String, Entry>();
+        BitSet defined = new BitSet();
+        BitSet referenced = new BitSet();
+        Collection<String> references = universe.collector( referenced );
+        if ( classesDir.isDirectory() )
+        {
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir( classesDir );
+            scanner.setIncludes( new String[] { "**/*.class" } );
+            scanner.scan();
+            MessageDigest digest = Digests.create( "SHA-1" );
+            for ( String path : scanner.getIncludedFiles() )
+            {
+                String relative = path.replace( File.separatorChar, '/' );
+                byte[] content = readFile( new File( classesDir, path ) );
+                byte[] hash = digest.digest( content );
+                Entry entry = previous.get( relative );
+                if ( entry != null && Arrays.equals( entry.hash, hash ) )
+                {
+                    reused++;
+                }
+                else
+                {
+                    entry = new Entry( hash, analyzeClass( relative, content ) );
+                    analyzed++;
+                }
+                current.put( relative, entry );
+                defined.set( universe.id( toClassName( relative ) ) );
+                Collections.addAll( references, entry.references );
+            }
+        }
+        if ( analyzed > 0 || current.size() != previous.size() )
+        {
+            store( current );
+        }
+        return new ClassInventory.Classes( defined, referenced );
+    }
+
+    /**
+     * @return number of class files analyzed by the last call of {@link #analyze(File, ClassUniverse)}
+     */
+    int getAnalyzed()
+    {
+        return analyzed;
+    }
+
+    /**
+     * @return number of class files taken from the cache by the last call of {@link #analyze(File, ClassUniverse)}
+     */
+    int getReused()
+    {
+        return reused;
+    }
+
+    private static byte[] readFile( File file )
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream( file );
+        try
+        {
+            return IOUtil.toByteArray( in );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static String[] analyzeClass( String path, byte[] content )
+        throws IOException
+    {
+        Set<String> dependencies = new HashSet<String>();
+        try
+        {
+            ClassReferenceScanner.scan( ByteBuffer.wrap( content ), dependencies );
+        }
+        catch ( IOException ex )
+        {
+            throw new IOException( path + ": " + ex.getMessage(), ex );
+        }
+        return dependencies.toArray( new String[dependencies.size()] );
+    }
+
+    static String toClassName( String relativePath )
+    {
+        return relativePath.substring( 0, relativePath.length() - ".class".length() ).replace( '/', '.' );
+    }
+
+    private Map<String, Entry> load()
+    {
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        if ( !cacheFile.isFile() )
+        {
+            return entries;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile ) ) );
+            if ( in.readInt() != FORMAT )
+            {
+                return entries;
+            }
+            int count = in.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                String path = in.readUTF();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully( hash );
+                String[] references = new String[in.readInt()];
+                for ( int j = 0; j < references.length; j++ )
+                {
+                    references[j] = in.readUTF();
+                }
+                entries.put( path, new Entry( hash, references ) );
+            }
+            return entries;
+        }
+        catch ( IOException ex )
+        {
+            // corrupted cache, analyze everything again
+            return new HashMap<String, Entry>();
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private void store( final Map<String, Entry> entries )
+    {
+        AtomicFile.write( cacheFile, new AtomicFile.Content()
+        {
+            public void writeTo( OutputStream stream )
+                throws IOException
+            {
+                DataOutputStream out = new DataOutputStream( stream );
+                out.writeInt( FORMAT );
+                out.writeInt( entries.size() );
+                for ( Map.Entry<String, Entry> e : entries.entrySet() )
+                {
+                    out.writeUTF( e.getKey() );
+                    out.writeByte( e.getValue().hash.length );
+                    out.write( e.getValue().hash );
+                    out.writeInt( e.getValue().references.length );
+                    for ( String reference : e.getValue().references )
+                    {
+                        out.writeUTF( reference );
+                    }
+                }
+                out.flush();
+            }
+        } );
+    }
+
+    private static final class Entry
+    {
+        final byte[] hash;
+
+        final String[] references;
+
+        Entry( byte[] hash, String[] references )
+        {
+            this.hash = hash;
+            this.references = references;
+        }
+    }
+}
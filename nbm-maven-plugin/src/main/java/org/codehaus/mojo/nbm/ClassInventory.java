@@ -0,0 +1,321 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.shared.dependency.analyzer.ClassFileVisitor;
+import org.apache.maven.shared.dependency.analyzer.ClassFileVisitorUtils;
+import org.codehaus.mojo.nbm.utils.ZipCentralDirectory;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Classes defined and referenced by jars and class folders, each scanned once per build.
+ * Class names of a jar are taken from its central directory, class files are only read when
+ * the referenced classes are asked for, and then only their constant pool and signatures are parsed
+ * by {@link ClassReferenceScanner}.
+ * Classes are kept as bit sets of ids of a {@link ClassUniverse}, assigned while scanning.
+ * Jars and the universe are shared by all modules of one reactor build like in {@link ManifestRegistry},
+ * folders only live as long as the inventory instance.
+ * Referenced classes of jars from the local repository are also kept in a {@link ClassInventoryCache}
+ * across builds, listing the defined classes alone is cheaper than hashing the jar for a lookup.
+ */
+final class ClassInventory
+{
+
+    /**
+     * Holds the universe and jars of a build, executions wrap them with their own cache and folders.
+     */
+    private static final BuildScoped<ClassInventory> SHARED = new BuildScoped<ClassInventory>()
+    {
+        @Override
+        protected ClassInventory create()
+        {
+            return new ClassInventory( null );
+        }
+    };
+
+    private final ClassUniverse universe;
+
+    private final ConcurrentMap<File, Entry> jars;
+
+    private final ConcurrentMap<File, Entry> folders = new ConcurrentHashMap<File, Entry>();
+
+    private final ClassInventoryCache cache;
+
+    private final AtomicInteger scanned = new AtomicInteger();
+
+    /**
+     * Inventory sharing jar results with all mojo executions of the given build.
+     * @param session current session, null gives a private inventory
+     * @param cache persistent cache, can be null
+     * @return inventory
+     */
+    static ClassInventory forSession( MavenSession session, ClassInventoryCache cache )
+    {
+        ClassInventory shared = SHARED.get( session );
+        return shared != null ? new ClassInventory( shared.universe, shared.jars, cache ) : new ClassInventory( cache );
+    }
+
+    /**
+     * Creates an inventory not shared with any other execution.
+     * @param cache persistent cache, can be null
+     */
+    ClassInventory( ClassInventoryCache cache )
+    {
+        this( new ClassUniverse(), new ConcurrentHashMap<File, Entry>(), cache );
+    }
+
+    private ClassInventory( ClassUniverse universe, ConcurrentMap<File, Entry> jars, ClassInventoryCache cache )
+    {
+        this.universe = universe;
+        this.jars = jars;
+        this.cache = cache;
+    }
+
+    /**
+     * @return ids of the classes of this inventory
+     */
+    ClassUniverse getUniverse()
+    {
+        return universe;
+    }
+
+    /**
+     * @return number of jars and folders actually read by this instance
+     */
+    int getScanned()
+    {
+        return scanned.get();
+    }
+
+    /**
+     * Defined and referenced classes of a jar or class folder.
+     * @param file jar or folder
+     * @return classes, never null
+     * @throws IOException when the file cannot be read
+     */
+    Classes getClasses( File file )
+        throws IOException
+    {
+        return get( file, true );
+    }
+
+    /**
+     * Classes defined in a jar or class folder.
+     * @param file jar or folder
+     * @return shared set of class ids, callers must not modify it
+     * @throws IOException when the file cannot be read
+     */
+    BitSet getDefinedClasses( File file )
+        throws IOException
+    {
+        return get( file, false ).defined;
+    }
+
+    /**
+     * Registers classes obtained elsewhere, like the incrementally analyzed output folder.
+     * @param file jar or folder
+     * @param classes its classes
+     */
+    void put( File file, Classes classes )
+    {
+        File key = file.getAbsoluteFile();
+        ( key.isFile() ? jars : folders ).put( key, new Entry( key, classes ) );
+    }
+
+    private Classes get( File file, boolean referenced )
+        throws IOException
+    {
+        File key = file.getAbsoluteFile();
+        ConcurrentMap<File, Entry> entries = key.isFile() ? jars : folders;
+        Entry entry = entries.get( key );
+        if ( entry != null && entry.isCurrent( key ) && ( !referenced || entry.classes.referenced != null ) )
+        {
+            return entry.classes;
+        }
+        // concurrent executions may scan the same jar twice, the results are the same
+        String cacheKey = referenced && cache != null ? cache.key( key ) : null;
+        Classes classes = cacheKey != null ? cache.load( cacheKey, universe ) : null;
+        if ( classes == null )
+        {
+            classes = scan( key, referenced );
+            if ( cacheKey != null )
+            {
+                cache.store( cacheKey, classes, universe );
+            }
+        }
+        entries.put( key, new Entry( key, classes ) );
+        return classes;
+    }
+
+    private Classes scan( File file, boolean referenced )
+        throws IOException
+    {
+        scanned.incrementAndGet();
+        BitSet defined = new BitSet();
+        BitSet references = referenced ? new BitSet() : null;
+        ZipCentralDirectory zip = null;
+        if ( file.isFile() )
+        {
+            try
+            {
+                zip = ZipCentralDirectory.open( file );
+            }
+            catch ( ZipException ex )
+            {
+                // unusual archive layout, let the JDK read it
+            }
+        }
+        if ( zip != null )
+        {
+            try
+            {
+                scanJar( zip, defined, references == null ? null : universe.collector( references ) );
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        else
+        {
+            scanStreams( file, defined, references == null ? null : universe.collector( references ) );
+        }
+        return new Classes( defined, references );
+    }
+
+    /**
+     * Class names come from the central directory, entries are only read when references are asked for.
+     */
+    private void scanJar( ZipCentralDirectory zip, BitSet defined, Collection<String> references )
+        throws IOException
+    {
+        for ( ZipCentralDirectory.Entry entry : zip.getEntries() )
+        {
+            String name = entry.getName();
+            if ( entry.isDirectory() || !name.endsWith( ".class" ) )
+            {
+                continue;
+            }
+            defined.set( universe.id( ClassDependencyCache.toClassName( name ) ) );
+            if ( references != null )
+            {
+                try
+                {
+                    ClassReferenceScanner.scan( ByteBuffer.wrap( zip.readFully( entry ) ), references );
+                }
+                catch ( IOException ex )
+                {
+                    throw new IOException( name + " in " + zip.getFile() + ": " + ex.getMessage(), ex );
+                }
+            }
+        }
+    }
+
+    private void scanStreams( final File file, final BitSet defined, final Collection<String> references )
+        throws IOException
+    {
+        try
+        {
+            ClassFileVisitorUtils.accept( file.toURI().toURL(), new ClassFileVisitor()
+            {
+                public void visitClass( String className, InputStream in )
+                {
+                    defined.set( universe.id( className ) );
+                    if ( references != null )
+                    {
+                        try
+                        {
+                            ClassReferenceScanner.scan( ByteBuffer.wrap( IOUtil.toByteArray( in ) ), references );
+                        }
+                        catch ( IOException ex )
+                        {
+                            throw new ScanException(
+                                new IOException( className + " in " + file + ": " + ex.getMessage(), ex ) );
+                        }
+                    }
+                }
+            } );
+        }
+        catch ( ScanException ex )
+        {
+            throw (IOException) ex.getCause();
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} out of a {@link ClassFileVisitor}.
+     */
+    private static final class ScanException
+        extends RuntimeException
+    {
+        ScanException( IOException cause )
+        {
+            super( cause );
+        }
+    }
+
+    private static final class Entry
+    {
+        final long length;
+
+        final long modified;
+
+        final Classes classes;
+
+        Entry( File file, Classes classes )
+        {
+            this.length = file.length();
+            this.modified = file.lastModified();
+            this.classes = classes;
+        }
+
+        boolean isCurrent( File file )
+        {
+            return !file.isFile() || ( length == file.length() && modified == file.lastModified() );
+        }
+    }
+
+    /**
+     * Classes defined in and referenced from a jar or folder, as ids of the universe of the inventory.
+     * The sets are shared and must not be modified.
+     */
+    static final class Classes
+    {
+        final BitSet defined;
+
+        /**
+         * Null when only the defined classes were collected.
+         */
+        final BitSet referenced;
+
+        Classes( BitSet defined, BitSet referenced )
+        {
+            this.defined = defined;
+            this.referenced = referenced;
+        }
+    }
+}
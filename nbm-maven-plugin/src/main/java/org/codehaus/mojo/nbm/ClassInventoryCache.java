@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.codehaus.mojo.nbm.utils.AtomicFile;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Persistent cache of {@link ClassInventory.Classes} of jars from the local repository, shared between builds.
+ * Entries are named after the SHA-256 of the jar content, so an entry never needs to be invalidated
+ * and all builds using the same jar, from any path, share it.
+ * Class names are stored sorted with the prefix shared with the previous name omitted,
+ * which keeps entries at a fraction of the size of the jar's class files.
+ * Entries are written with {@link AtomicFile}, concurrent builds either see a complete entry or none.
+ * Writing the cache is best effort, failures are ignored and the jar is scanned again next time.
+ */
+final class ClassInventoryCache
+{
+
+    private static final int FORMAT = 1;
+
+    private final File directory;
+
+    private final String repository;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory folder holding the cache entries, created on demand
+     * @param repository local repository, only jars in it are cached
+     */
+    ClassInventoryCache( File directory, File repository )
+    {
+        this.directory = directory;
+        this.repository = repository.getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * @param jar jar file
+     * @return key of the jar, or null if the jar is not taken from the local repository
+     * @throws IOException when the jar cannot be read
+     */
+    String key( File jar )
+        throws IOException
+    {
+        if ( !jar.isFile() || !jar.getAbsolutePath().startsWith( repository ) )
+        {
+            return null;
+        }
+        return Fingerprint.hash( jar );
+    }
+
+    /**
+     * @param key key returned by {@link #key(File)}
+     * @param universe ids to give the loaded classes
+     * @return cached classes or null
+     */
+    ClassInventory.Classes load( String key, ClassUniverse universe )
+    {
+        File entry = entryFile( key );
+        if ( entry.isFile() )
+        {
+            DataInputStream in = null;
+            try
+            {
+                in = new DataInputStream( new BufferedInputStream( new FileInputStream( entry ) ) );
+                if ( in.readInt() == FORMAT )
+                {
+                    BitSet defined = new BitSet();
+                    readNames( in, universe.collector( defined ) );
+                    BitSet referenced = new BitSet();
+                    readNames( in, universe.collector( referenced ) );
+                    hits.incrementAndGet();
+                    return new ClassInventory.Classes( defined, referenced );
+                }
+            }
+            catch ( IOException ex )
+            {
+                // corrupted entry, treat as a miss
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param key key returned by {@link #key(File)}
+     * @param classes scanned defined and referenced classes of the jar
+     * @param universe ids of the classes
+     */
+    void store( String key, final ClassInventory.Classes classes, final ClassUniverse universe )
+    {
+        AtomicFile.write( entryFile( key ), new AtomicFile.Content()
+        {
+            public void writeTo( OutputStream stream )
+                throws IOException
+            {
+                DataOutputStream out = new DataOutputStream( stream );
+                out.writeInt( FORMAT );
+                writeNames( out, universe.names( classes.defined ) );
+                writeNames( out, universe.names( classes.referenced ) );
+                out.flush();
+            }
+        } );
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups without a usable entry
+     */
+    int getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Class inventory cache at " + directory + ": " + getHits() + " hits, " + getMisses() + " misses";
+    }
+
+    private File entryFile( String key )
+    {
+        return new File( new File( directory, key.substring( 0, 2 ) ), key + ".classes" );
+    }
+
+    private static void writeNames( DataOutputStream out, Collection<String> names )
+        throws IOException
+    {
+        String[] sorted = names.toArray( new String[names.size()] );
+        Arrays.sort( sorted );
+        out.writeInt( sorted.length );
+        String previous = "";
+        for ( String name : sorted )
+        {
+            int max = Math.min( Math.min( previous.length(), name.length() ), 0xFFFF );
+            int common = 0;
+            while ( common < max && previous.charAt( common ) == name.charAt( common ) )
+            {
+                common++;
+            }
+            out.writeShort( common );
+            out.writeUTF( name.substring( common ) );
+            previous = name;
+        }
+    }
+
+    private static void readNames( DataInputStream in, Collection<String> names )
+        throws IOException
+    {
+        int count = in.readInt();
+        String previous = "";
+        for ( int i = 0; i < count; i++ )
+        {
+            int common = in.readUnsignedShort();
+            if ( common > previous.length() )
+            {
+                throw new IOException( "Invalid entry" );
+            }
+            previous = previous.substring( 0, common ) + in.readUTF();
+            names.add( previous );
+        }
+    }
+}
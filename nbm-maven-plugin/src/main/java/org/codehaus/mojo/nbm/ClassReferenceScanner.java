@@ -0,0 +1,475 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Collects the classes referenced by a class file without visiting its code.
+ * Every class used by the bytecode, declared or caught is a {@code CONSTANT_Class} entry of the constant pool,
+ * the remaining references are found in descriptors and generic signatures of the class, its fields and methods,
+ * method handle types and annotations. Method bodies are skipped as a whole.
+ * Local variable debug information is not considered, a local variable type always shows up
+ * in some other reference when the variable is actually used.
+ */
+final class ClassReferenceScanner
+{
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final byte UTF8 = 1;
+
+    private static final byte CLASS = 7;
+
+    private static final byte NAME_AND_TYPE = 12;
+
+    private static final byte METHOD_TYPE = 16;
+
+    private final ByteBuffer buf;
+
+    private final Collection<String> names;
+
+    private int[] offsets;
+
+    private byte[] tags;
+
+    private String[] strings;
+
+    private char[] chars = new char[64];
+
+    private ClassReferenceScanner( ByteBuffer buf, Collection<String> names )
+    {
+        this.buf = buf;
+        this.names = names;
+    }
+
+    /**
+     * Adds the binary names of all classes referenced by the class file, in dot notation.
+     * The class itself is included, primitive types are not.
+     * @param classFile content of the class file from its current position, the position is not changed
+     * @param names collection to add the names to
+     * @throws IOException when the data is not a valid class file
+     */
+    static void scan( ByteBuffer classFile, Collection<String> names )
+        throws IOException
+    {
+        try
+        {
+            new ClassReferenceScanner( classFile.slice(), names ).scan();
+        }
+        catch ( BufferUnderflowException ex )
+        {
+            throw new IOException( "Truncated class file" );
+        }
+        catch ( IndexOutOfBoundsException ex )
+        {
+            throw new IOException( "Invalid class file: " + ex.getMessage() );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            throw new IOException( "Invalid class file: " + ex.getMessage() );
+        }
+    }
+
+    private void scan()
+        throws IOException
+    {
+        if ( buf.getInt() != MAGIC )
+        {
+            throw new IOException( "Not a class file" );
+        }
+        skip( 4 ); // minor and major version
+        readConstantPool();
+        for ( int i = 1; i < tags.length; i++ )
+        {
+            switch ( tags[i] )
+            {
+                case CLASS:
+                    addClass( utf( buf.getShort( offsets[i] ) & 0xFFFF ) );
+                    break;
+                case NAME_AND_TYPE:
+                    signature( utf( buf.getShort( offsets[i] + 2 ) & 0xFFFF ) );
+                    break;
+                case METHOD_TYPE:
+                    signature( utf( buf.getShort( offsets[i] ) & 0xFFFF ) );
+                    break;
+                default:
+                    break;
+            }
+        }
+        skip( 6 ); // access flags, this and super class
+        skip( 2 * u2() ); // interfaces
+        members(); // fields
+        members(); // methods
+        attributes();
+    }
+
+    private void readConstantPool()
+        throws IOException
+    {
+        int count = u2();
+        offsets = new int[count];
+        tags = new byte[count];
+        strings = new String[count];
+        for ( int i = 1; i < count; i++ )
+        {
+            byte tag = buf.get();
+            tags[i] = tag;
+            offsets[i] = buf.position();
+            switch ( tag )
+            {
+                case UTF8:
+                    skip( u2() );
+                    break;
+                case 7: // class
+                case 8: // string
+                case 16: // method type
+                case 19: // module
+                case 20: // package
+                    skip( 2 );
+                    break;
+                case 15: // method handle
+                    skip( 3 );
+                    break;
+                case 3: // integer
+                case 4: // float
+                case 9: // field
+                case 10: // method
+                case 11: // interface method
+                case 12: // name and type
+                case 17: // dynamic
+                case 18: // invoke dynamic
+                    skip( 4 );
+                    break;
+                case 5: // long
+                case 6: // double
+                    skip( 8 );
+                    i++;
+                    break;
+                default:
+                    throw new IOException( "Unknown constant pool tag " + tag );
+            }
+        }
+    }
+
+    private void members()
+    {
+        int count = u2();
+        for ( int i = 0; i < count; i++ )
+        {
+            skip( 4 ); // access flags and name
+            signature( utf( u2() ) );
+            attributes();
+        }
+    }
+
+    private void attributes()
+    {
+        int count = u2();
+        for ( int i = 0; i < count; i++ )
+        {
+            String name = utf( u2() );
+            int length = buf.getInt();
+            int end = buf.position() + length;
+            if ( "Signature".equals( name ) )
+            {
+                signature( utf( u2() ) );
+            }
+            else if ( "RuntimeVisibleAnnotations".equals( name ) || "RuntimeInvisibleAnnotations".equals( name ) )
+            {
+                annotations();
+            }
+            else if ( "RuntimeVisibleParameterAnnotations".equals( name )
+                || "RuntimeInvisibleParameterAnnotations".equals( name ) )
+            {
+                int parameters = buf.get() & 0xFF;
+                for ( int p = 0; p < parameters; p++ )
+                {
+                    annotations();
+                }
+            }
+            else if ( "AnnotationDefault".equals( name ) )
+            {
+                elementValue();
+            }
+            buf.position( end );
+        }
+    }
+
+    private void annotations()
+    {
+        int count = u2();
+        for ( int i = 0; i < count; i++ )
+        {
+            annotation();
+        }
+    }
+
+    private void annotation()
+    {
+        signature( utf( u2() ) );
+        int pairs = u2();
+        for ( int i = 0; i < pairs; i++ )
+        {
+            skip( 2 ); // element name
+            elementValue();
+        }
+    }
+
+    private void elementValue()
+    {
+        char tag = (char) ( buf.get() & 0xFF );
+        switch ( tag )
+        {
+            case 'e':
+                signature( utf( u2() ) );
+                skip( 2 );
+                break;
+            case 'c':
+                signature( utf( u2() ) );
+                break;
+            case '@':
+                annotation();
+                break;
+            case '[':
+                int count = u2();
+                for ( int i = 0; i < count; i++ )
+                {
+                    elementValue();
+                }
+                break;
+            default:
+                skip( 2 ); // constant value
+                break;
+        }
+    }
+
+    private void addClass( String internalName )
+    {
+        if ( internalName.length() > 0 && internalName.charAt( 0 ) == '[' )
+        {
+            signature( internalName );
+        }
+        else
+        {
+            names.add( internalName.replace( '/', '.' ) );
+        }
+    }
+
+    /**
+     * Adds the classes of a field or method descriptor or of a generic signature.
+     */
+    private void signature( String signature )
+    {
+        new SignatureParser( signature ).parse();
+    }
+
+    private final class SignatureParser
+    {
+        private final String s;
+
+        private int pos;
+
+        SignatureParser( String s )
+        {
+            this.s = s;
+        }
+
+        void parse()
+        {
+            if ( s.length() > 0 && s.charAt( 0 ) == '<' )
+            {
+                formalTypeParameters();
+            }
+            while ( pos < s.length() )
+            {
+                char c = s.charAt( pos );
+                if ( c == '(' || c == ')' || c == '^' )
+                {
+                    pos++;
+                }
+                else
+                {
+                    type();
+                }
+            }
+        }
+
+        private void formalTypeParameters()
+        {
+            pos++;
+            while ( s.charAt( pos ) != '>' )
+            {
+                pos = indexOf( ':' );
+                while ( pos < s.length() && s.charAt( pos ) == ':' )
+                {
+                    pos++;
+                    char c = s.charAt( pos );
+                    if ( c == 'L' || c == 'T' || c == '[' )
+                    {
+                        type();
+                    }
+                }
+            }
+            pos++;
+        }
+
+        private int indexOf( char c )
+        {
+            int index = s.indexOf( c, pos );
+            if ( index < 0 )
+            {
+                throw new IllegalArgumentException( "invalid signature " + s );
+            }
+            return index;
+        }
+
+        private void type()
+        {
+            char c = s.charAt( pos++ );
+            switch ( c )
+            {
+                case 'L':
+                    classType();
+                    break;
+                case 'T':
+                    pos = indexOf( ';' ) + 1;
+                    break;
+                case '[':
+                    type();
+                    break;
+                default:
+                    // primitive or void
+                    break;
+            }
+        }
+
+        private void classType()
+        {
+            StringBuilder name = new StringBuilder();
+            int start = pos;
+            while ( true )
+            {
+                char c = s.charAt( pos );
+                if ( c == ';' || c == '<' || c == '.' )
+                {
+                    name.append( s, start, pos );
+                    names.add( name.toString().replace( '/', '.' ) );
+                    if ( c == '<' )
+                    {
+                        typeArguments();
+                        c = s.charAt( pos );
+                    }
+                    pos++;
+                    if ( c == ';' )
+                    {
+                        return;
+                    }
+                    // inner class of a parameterized type
+                    name.append( '$' );
+                    start = pos;
+                }
+                else
+                {
+                    pos++;
+                }
+            }
+        }
+
+        private void typeArguments()
+        {
+            pos++;
+            while ( s.charAt( pos ) != '>' )
+            {
+                char c = s.charAt( pos );
+                if ( c == '*' )
+                {
+                    pos++;
+                }
+                else
+                {
+                    if ( c == '+' || c == '-' )
+                    {
+                        pos++;
+                    }
+                    type();
+                }
+            }
+            pos++;
+        }
+    }
+
+    private String utf( int index )
+    {
+        if ( tags[index] != UTF8 )
+        {
+            throw new IllegalArgumentException( "constant " + index + " is not UTF8" );
+        }
+        String value = strings[index];
+        if ( value == null )
+        {
+            value = decode( offsets[index] );
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a modified UTF-8 constant.
+     */
+    private String decode( int offset )
+    {
+        int length = buf.getShort( offset ) & 0xFFFF;
+        if ( chars.length < length )
+        {
+            chars = new char[length];
+        }
+        int pos = offset + 2;
+        int end = pos + length;
+        int n = 0;
+        while ( pos < end )
+        {
+            int b = buf.get( pos++ ) & 0xFF;
+            if ( b < 0x80 )
+            {
+                chars[n++] = (char) b;
+            }
+            else if ( b < 0xE0 )
+            {
+                chars[n++] = (char) ( ( ( b & 0x1F ) << 6 ) | ( buf.get( pos++ ) & 0x3F ) );
+            }
+            else
+            {
+                int b2 = buf.get( pos++ ) & 0x3F;
+                chars[n++] = (char) ( ( ( b & 0x0F ) << 12 ) | ( b2 << 6 ) | ( buf.get( pos++ ) & 0x3F ) );
+            }
+        }
+        return new String( chars, 0, n );
+    }
+
+    private int u2()
+    {
+        return buf.getShort() & 0xFFFF;
+    }
+
+    private void skip( int bytes )
+    {
+        buf.position( buf.position() + bytes );
+    }
+}
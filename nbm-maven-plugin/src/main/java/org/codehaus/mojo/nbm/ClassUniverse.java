@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dense integer ids for class names, so sets of classes can be kept as {@link BitSet}s.
+ * Runtime verification intersects and subtracts sets of hundreds of thousands of classes,
+ * with bit sets these are word wise operations instead of string hashing.
+ * Ids are assigned when a jar or folder is scanned, so the {@link ClassInventory} owning the universe
+ * keeps one bit set per jar instead of sets of names. Names are only looked up again for reporting.
+ * Every class also gets the id of its package, so public packages are matched once per package.
+ * Concurrent verifications share a universe: lookups of known names and of ids do not lock,
+ * only assigning a new id does.
+ */
+final class ClassUniverse
+{
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Guarded by this, like all writes.
+     */
+    private final Map<String, Integer> packageIds = new HashMap<String, Integer>();
+
+    private int size;
+
+    /**
+     * Replaced when full, an id is only handed out after its entries were written,
+     * and through {@link #ids} or a published bit set, so readers always see them.
+     */
+    private volatile String[] names = new String[1024];
+
+    private volatile int[] packages = new int[1024];
+
+    private volatile String[] packageNames = new String[64];
+
+    /**
+     * @param name class name
+     * @return id of the class, assigned on first use
+     */
+    int id( String name )
+    {
+        Integer id = ids.get( name );
+        return id != null ? id : assign( name );
+    }
+
+    private synchronized int assign( String name )
+    {
+        Integer known = ids.get( name );
+        if ( known != null )
+        {
+            return known;
+        }
+        int id = size++;
+        if ( id == names.length )
+        {
+            names = Arrays.copyOf( names, id * 2 );
+            packages = Arrays.copyOf( packages, id * 2 );
+        }
+        names[id] = name;
+        packages[id] = packageId( name.substring( 0, Math.max( name.lastIndexOf( '.' ), 0 ) ) );
+        ids.put( name, id );
+        return id;
+    }
+
+    private int packageId( String packageName )
+    {
+        Integer id = packageIds.get( packageName );
+        if ( id == null )
+        {
+            id = packageIds.size();
+            if ( id == packageNames.length )
+            {
+                packageNames = Arrays.copyOf( packageNames, id * 2 );
+            }
+            packageNames[id] = packageName;
+            packageIds.put( packageName, id );
+        }
+        return id;
+    }
+
+    /**
+     * @param id id returned by {@link #id(String)}
+     * @return class name
+     */
+    String name( int id )
+    {
+        return names[id];
+    }
+
+    /**
+     * @param id id returned by {@link #id(String)}
+     * @return id of the package of the class
+     */
+    int packageOf( int id )
+    {
+        return packages[id];
+    }
+
+    /**
+     * @param packageId id returned by {@link #packageOf(int)}
+     * @return dot separated package name, empty for the default package
+     */
+    String packageName( int packageId )
+    {
+        return packageNames[packageId];
+    }
+
+    /**
+     * For scanners collecting class names, adds the id of every name added to the collection to the bit set
+     * rather than keeping the name.
+     * @param bits set to add to
+     * @return collection backed by the bit set
+     */
+    Collection<String> collector( final BitSet bits )
+    {
+        return new AbstractCollection<String>()
+        {
+            @Override
+            public boolean add( String name )
+            {
+                int id = id( name );
+                boolean added = !bits.get( id );
+                bits.set( id );
+                return added;
+            }
+
+            @Override
+            public Iterator<String> iterator()
+            {
+                return names( bits ).iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return bits.cardinality();
+            }
+        };
+    }
+
+    /**
+     * @param bits set of ids
+     * @return class names in id order
+     */
+    List<String> names( BitSet bits )
+    {
+        List<String> result = new ArrayList<String>( bits.cardinality() );
+        for ( int i = bits.nextSetBit( 0 ); i >= 0; i = bits.nextSetBit( i + 1 ) )
+        {
+            result.add( name( i ) );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import org.codehaus.mojo.nbm.utils.AtomicFile;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * State of the module cluster folder built by the nbm goal, kept in the nbm build folder between builds.
+ * Records the inputs each part of the cluster was made from, and size, timestamp and CRC-32 of every file
+ * in the cluster at the end of the build.
+ * A part is only made again when its inputs changed, or when the cluster no longer looks exactly like
+ * at the end of the previous build, for example because it was partly deleted or modified by other tools.
+ * The state file is removed when loaded, so a build that fails halfway leaves no state behind.
+ */
+final class ClusterState
+{
+
+    private static final String INPUT = "input.";
+
+    private static final String FILE = "file.";
+
+    private final File stateFile;
+
+    private final File clusterDir;
+
+    private final Properties previous;
+
+    private final boolean intact;
+
+    private final Properties current = new Properties();
+
+    private ClusterState( File stateFile, File clusterDir, Properties previous, boolean intact )
+    {
+        this.stateFile = stateFile;
+        this.clusterDir = clusterDir;
+        this.previous = previous;
+        this.intact = intact;
+    }
+
+    /**
+     * Reads the state of the previous build and checks it against the cluster folder.
+     * @param stateFile file holding the state
+     * @param clusterDir cluster folder
+     * @return state, without any recorded parts if the file is missing or unreadable
+     */
+    static ClusterState load( File stateFile, File clusterDir )
+    {
+        Properties previous = new Properties();
+        if ( stateFile.isFile() )
+        {
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream( stateFile );
+                previous.load( in );
+            }
+            catch ( IOException ex )
+            {
+                previous.clear();
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+            stateFile.delete();
+        }
+        boolean intact = !previous.isEmpty();
+        if ( intact )
+        {
+            Set<String> recorded = new TreeSet<String>();
+            for ( String key : previous.stringPropertyNames() )
+            {
+                if ( key.startsWith( FILE ) )
+                {
+                    recorded.add( key.substring( FILE.length() ) );
+                }
+            }
+            Set<String> files = new TreeSet<String>();
+            for ( String path : scan( clusterDir ) )
+            {
+                files.add( path );
+                String[] stamp = stamp( previous, path );
+                File file = new File( clusterDir, path );
+                if ( stamp == null || !stamp[0].equals( String.valueOf( file.length() ) )
+                    || !stamp[1].equals( String.valueOf( file.lastModified() ) ) )
+                {
+                    intact = false;
+                    break;
+                }
+            }
+            intact = intact && files.equals( recorded );
+        }
+        return new ClusterState( stateFile, clusterDir, previous, intact );
+    }
+
+    /**
+     * Records the inputs of one part of the cluster.
+     * @param part name of the part
+     * @param inputs fingerprint of the inputs
+     * @return true if the part was made from the same inputs by the previous build and is still in place
+     */
+    boolean isUpToDate( String part, String inputs )
+    {
+        current.setProperty( INPUT + part, inputs );
+        return intact && inputs.equals( previous.getProperty( INPUT + part ) );
+    }
+
+    /**
+     * @param prefix common prefix of the part names
+     * @return names of the matching parts recorded by the previous build but not by this one so far
+     */
+    Set<String> getRemovedParts( String prefix )
+    {
+        Set<String> removed = new TreeSet<String>();
+        for ( String key : previous.stringPropertyNames() )
+        {
+            if ( key.startsWith( INPUT + prefix ) && !current.containsKey( key ) )
+            {
+                removed.add( key.substring( INPUT.length() ) );
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * CRC-32 of a file recorded by the previous build, if the file did not change since.
+     * @param path path of the file in the cluster, separated by <code>/</code>
+     * @return checksum or null
+     */
+    Long getCrc32( String path )
+    {
+        String[] stamp = stamp( previous, path );
+        File file = new File( clusterDir, path );
+        if ( stamp != null && stamp[0].equals( String.valueOf( file.length() ) )
+            && stamp[1].equals( String.valueOf( file.lastModified() ) ) )
+        {
+            try
+            {
+                return Long.valueOf( stamp[2] );
+            }
+            catch ( NumberFormatException ex )
+            {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records all files of the cluster and writes the state.
+     * @param crcs known checksums keyed by path in the cluster, others are taken from the previous state
+     *             or computed
+     * @param checksums computes missing checksums
+     * @return true if the state was written
+     * @throws IOException when a file cannot be read
+     */
+    boolean store( Map<String, Long> crcs, ChecksumCache checksums )
+        throws IOException
+    {
+        Properties props = new Properties();
+        props.putAll( current );
+        for ( String path : scan( clusterDir ) )
+        {
+            File file = new File( clusterDir, path );
+            Long crc = crcs.get( path );
+            if ( crc == null )
+            {
+                crc = getCrc32( path );
+            }
+            if ( crc == null )
+            {
+                crc = checksums.getCrc32( file );
+            }
+            props.setProperty( FILE + path, file.length() + "," + file.lastModified() + "," + crc );
+        }
+        return AtomicFile.write( stateFile, props );
+    }
+
+    /**
+     * @return size, timestamp and CRC-32 recorded for the file, or null
+     */
+    private static String[] stamp( Properties props, String path )
+    {
+        String value = props.getProperty( FILE + path );
+        if ( value == null )
+        {
+            return null;
+        }
+        String[] stamp = value.split( "," );
+        return stamp.length == 3 ? stamp : null;
+    }
+
+    /**
+     * @return paths of all files in the cluster, separated by <code>/</code>
+     */
+    private static Set<String> scan( File clusterDir )
+    {
+        Set<String> paths = new TreeSet<String>();
+        if ( clusterDir.isDirectory() )
+        {
+            DirectoryScanner scanner = new DirectoryScanner();
+            scanner.setBasedir( clusterDir );
+            scanner.scan();
+            for ( String path : scanner.getIncludedFiles() )
+            {
+                paths.add( path.replace( File.separatorChar, '/' ) );
+            }
+        }
+        return paths;
+    }
+}
@@ -38,6 +38,7 @@ import java.util.jar.Pack200;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -63,6 +64,9 @@ import org.apache.tools.ant.filters.StringInputStream;
 import org.apache.tools.ant.taskdefs.Chmod;
 import org.apache.tools.ant.types.FileSet;
 import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.ExamineManifestBatch;
+import org.codehaus.mojo.nbm.utils.ManifestInfo;
+import org.codehaus.mojo.nbm.utils.PackageMatcher;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
@@ -187,6 +191,9 @@ public class CreateClusterAppMojo
         if ( "nbm-application".equals( project.getPackaging() ) )
         {
             Project antProject = registerNbmAntTasks();
+            final long installTime = getBuildDate().getTime();
+            FilePlacement placement = getFilePlacement();
+            final ChecksumCache checksums = getChecksumCache();
 
             Set<String> wrappedBundleCNBs = new HashSet<>(100);
             Map<String, Set<String>> clusterDependencies = new HashMap<>();
@@ -236,6 +243,9 @@ public class CreateClusterAppMojo
                                 FileSet set = makeTask.createFileSet();
                                 set.setDir( cluster.location );
                                 makeTask.setOutputfiledir( cluster.location );
+                                // checksums of the extracted files, genlist only reads them back for NBMs without a module jar
+                                Map<String, Long> crcs = new HashMap<>();
+                                ExamineManifest tracked = null;
                                 String[] executables = null;
                                 File classpathRoot = null;
                                 String classPath = null;
@@ -275,9 +285,10 @@ public class CreateClusterAppMojo
                                                 InputStream is = jf.getInputStream( ent );
                                                 try
                                                 {
-                                                    externalDownload( new File( fl.getParentFile(),
+                                                    long crc = externalDownload( new File( fl.getParentFile(),
                                                                                 fl.getName().replaceFirst( "[.]external$",
-                                                                                                           "" ) ), is );
+                                                                                                           "" ) ), is, placement );
+                                                    crcs.put( UpdateTracking.stripExternal( part ), crc );
                                                 }
                                                 finally
                                                 {
@@ -292,10 +303,11 @@ public class CreateClusterAppMojo
 
                                                 fl.getParentFile().mkdirs();
                                                 fl.createNewFile();
-                                                BufferedOutputStream outstream = null;
+                                                CheckedOutputStream outstream = null;
                                                 try
                                                 {
-                                                    outstream = new BufferedOutputStream( new FileOutputStream( fl ) );
+                                                    outstream = new CheckedOutputStream(
+                                                        new BufferedOutputStream( new FileOutputStream( fl ) ), new CRC32() );
                                                     InputStream instream = jf.getInputStream( ent );
                                                     if ( ispack200 )
                                                     {
@@ -320,6 +332,7 @@ public class CreateClusterAppMojo
                                                 {
                                                     IOUtil.close( outstream );
                                                 }
+                                                crcs.put( part, outstream.getChecksum().getValue() );
                                             }
                                         }
                                             
@@ -333,12 +346,14 @@ public class CreateClusterAppMojo
                                             if ( part.matches("(modules|core|lib)/[^/]+[.]jar") )
                                             {
                                                 ExamineManifest ex = new ExamineManifest( getLog() );
+                                                ex.setManifestCache( getManifestCache() );
                                                 ex.setJarFile( fl );
                                                 ex.setPopulateDependencies( true );
                                                 ex.checkFile();
                                                 if ( ex.isNetBeansModule() )
                                                 {
                                                     makeTask.setModule( part );
+                                                    tracked = ex;
                                                     addToMap(clusterDependencies, clusterName, ex.getDependencyTokens());
                                                     addToMap(clusterModules, clusterName, Collections.singletonList( ex.getModule() ));
                                                     if (ex.getClasspath().length() > 0) { //MNBMODULE-220
@@ -360,8 +375,6 @@ public class CreateClusterAppMojo
                                                         provideTokens.addAll(ex.getNetBeansProvidesTokens());
                                                         for (String pack : ex.getPackages()) {
                                                             if (pack.endsWith( ".**")) {
-                                                                //what to do with subpackages?
-                                                                pack = pack.substring( 0, pack.length() - ".**".length());
                                                                 osgiExportsSubs.add( pack );
                                                             } else if (pack.endsWith( ".*")) {
                                                                 pack = pack.substring( 0, pack.length() - ".*".length());
@@ -376,6 +389,7 @@ public class CreateClusterAppMojo
                                     }
                                     if (classPath != null) { //MNBMODULE-220 collect wrappedbundleCNBs, later useful in assignClustersToBundles(), these get removed from list of bundles.
                                         String[] paths = StringUtils.split( classPath, " ");
+                                        List<File> classpathFiles = new ArrayList<>();
                                         for (String path : paths) {
                                             path = path.trim();
                                             File classpathFile = new File(classpathRoot, path);
@@ -393,10 +407,11 @@ public class CreateClusterAppMojo
                                                 getLog().warn( "Could not resolve Class-Path item in " + art.getId() + ", path is:" + path +  ", skipping");
                                                 continue; //try to guard against future failures
                                             } 
-                                            ExamineManifest ex = new ExamineManifest( getLog() );
-                                            ex.setJarFile( classpathFile );
-                                            //ex.setPopulateDependencies( true );
-                                            ex.checkFile();
+                                            classpathFiles.add( classpathFile );
+                                        }
+                                        ExamineManifestBatch batch = new ExamineManifestBatch( getLog() );
+                                        batch.setManifestCache( getManifestCache() );
+                                        for ( ExamineManifest ex : batch.examine( classpathFiles ) ) {
                                             if (ex.isOsgiBundle()) {
                                                 wrappedBundleCNBs.add( ex.getModule() );
                                             }
@@ -406,7 +421,20 @@ public class CreateClusterAppMojo
                             {
                                 try
                                 {
-                                    makeTask.execute();
+                                    if ( tracked != null )
+                                    {
+                                        UpdateTracking tracking = new UpdateTracking( tracked.getModuleWithRelease(),
+                                                                                      tracked.getSpecVersion(), installTime );
+                                        for ( Map.Entry<String, Long> crc : crcs.entrySet() )
+                                        {
+                                            tracking.addFile( crc.getKey(), crc.getValue() );
+                                        }
+                                        tracking.write( cluster.location );
+                                    }
+                                    else
+                                    {
+                                        makeTask.execute();
+                                    }
                                 }
                                 catch ( BuildException e )
                                 {
@@ -442,7 +470,7 @@ public class CreateClusterAppMojo
                 }
                 if ( res.isOSGiBundle() )
                 {
-                    ExamineManifest ex = res.getExaminedManifest();
+                    ManifestInfo ex = res.getExaminedManifest().getManifestInfo();
                     bundles.add( new BundleTuple( art,  ex) );
                     if (verifyIntegrity) {
                         dependencyCNBs.addAll(ex.getDependencyTokens());
@@ -473,6 +501,7 @@ public class CreateClusterAppMojo
                     dependencyCNBs.remove( "org.eclipse.osgi"); //this is special.
                 }
                 osgiImports.removeAll( osgiExports );
+                PackageMatcher subpackageExports = PackageMatcher.forPublicPackages( osgiExportsSubs );
                 Iterator<String> it = osgiImports.iterator();
                 while (it.hasNext()) {
                     String s = it.next();
@@ -480,11 +509,8 @@ public class CreateClusterAppMojo
                         it.remove();
                         continue;
                     }
-                    for (String sub : osgiExportsSubs) {
-                        if (s.startsWith( sub )) {
-                            it.remove();
-                            break;
-                        }
+                    if (subpackageExports.matchesPackage( s )) {
+                        it.remove();
                     }
                 }
                 requireTokens.removeAll( provideTokens );
@@ -529,7 +555,7 @@ public class CreateClusterAppMojo
             
             for (BundleTuple ent : bundles) {
                 Artifact art = ent.artifact;
-                final ExamineManifest ex = ent.manifest;
+                final ManifestInfo ex = ent.manifest;
                 
                 String clstr = ent.cluster;
                 if (clstr == null) {
@@ -553,7 +579,7 @@ public class CreateClusterAppMojo
                     final String specVer = ex.getSpecVersion();
                     try
                     {
-                        FileUtils.copyFile( art.getFile(), moduleArt );
+                        placement.place( art.getFile(), moduleArt );
                         final File moduleConf = new File( confModules, cnbDashed + ".xml" );
                         FileUtils.copyStreamToFile( new InputStreamFacade() {
                             @Override
@@ -566,7 +592,7 @@ public class CreateClusterAppMojo
                             @Override
                             public InputStream getInputStream() throws IOException
                             {
-                                return new StringInputStream( createBundleUpdateTracking( cnb, moduleArt, moduleConf, specVer ), "UTF-8" );
+                                return new StringInputStream( createBundleUpdateTracking( cnb, checksums.getCrc32( art.getFile() ), moduleConf, specVer, installTime ), "UTF-8" );
                             }
                         }, new File( updateTracking, cnbDashed + ".xml" ) );
                     }
@@ -579,6 +605,7 @@ public class CreateClusterAppMojo
 
             getLog().info(
                 "Created NetBeans module cluster(s) at " + nbmBuildDirFile.getAbsoluteFile() );
+            logManifestCacheStatistics();
 
         }
         else
@@ -858,7 +885,10 @@ public class CreateClusterAppMojo
         return new ClusterTuple( clusterFile, newer );
     }
 
-    private void externalDownload( File f, InputStream is )
+    /**
+     * @return CRC-32 of the downloaded file
+     */
+    private long externalDownload( File f, InputStream is, FilePlacement placement )
         throws IOException
     {
         // Cf. org.netbeans.nbbuild.AutoUpdate
@@ -890,7 +920,7 @@ public class CreateClusterAppMojo
                     try
                     {
                         artifactResolver.resolve( artifact, project.getRemoteArtifactRepositories(), localRepository );
-                        FileUtils.copyFile( artifact.getFile(), f );
+                        placement.place( artifact.getFile(), f );
                         found = true;
                     }
                     catch ( AbstractArtifactResolutionException x )
@@ -929,7 +959,8 @@ public class CreateClusterAppMojo
         {
             throw new IOException( "Could not download " + f );
         }
-        if ( crc != -1 && crc != crcForFile( f ).getValue() )
+        long actual = ChecksumCache.crc32( f );
+        if ( crc != -1 && crc != actual )
         {
             throw new IOException( "CRC-32 of " + f + " does not match declared " + crc );
         }
@@ -937,6 +968,7 @@ public class CreateClusterAppMojo
         {
             throw new IOException( "Size of " + f + " does not match declared " + size );
         }
+        return actual;
     }
 
     private File getHarnessNbm() throws MojoExecutionException
@@ -1034,7 +1066,7 @@ public class CreateClusterAppMojo
         {
             BundleTuple ent = it.next();
             Artifact art = ent.artifact;
-            ExamineManifest ex = ent.manifest;
+            ManifestInfo ex = ent.manifest;
             String spec = ex.getModule();
             //null check for tests
             //have a way to force inclusion of osgi items. Direct dependency is never wrapped by modules.
@@ -1183,10 +1215,10 @@ public class CreateClusterAppMojo
     
     static class BundleTuple {
         final Artifact artifact;
-        final ExamineManifest manifest;
+        final ManifestInfo manifest;
         String cluster;
 
-        BundleTuple( Artifact artifact, ExamineManifest manifest )
+        BundleTuple( Artifact artifact, ManifestInfo manifest )
         {
             this.artifact = artifact;
             this.manifest = manifest;
@@ -1220,35 +1252,14 @@ public class CreateClusterAppMojo
 "</module>\n";
     }
 
-    static String createBundleUpdateTracking( String cnb, File moduleArt, File moduleConf, String specVersion )
-        throws FileNotFoundException, IOException
-    {
-
-        return
-"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
-"<module codename=\"" + cnb + "\">\n" +
-"    <module_version install_time=\"" + System.currentTimeMillis() + "\" last=\"true\" origin=\"installer\" specification_version=\"" + specVersion + "\">\n" +
-"        <file crc=\"" + crcForFile( moduleConf ).getValue() + "\" name=\"config/Modules/" + cnb.replace( ".", "-" ) + ".xml\"/>\n" +
-"        <file crc=\"" + crcForFile( moduleArt ).getValue() + "\" name=\"modules/" + cnb.replace( ".", "-" ) + ".jar\"/>\n" +
-"    </module_version>\n" +
-"</module>";
-
-    }
-
-    static CRC32 crcForFile( File inFile )
-        throws FileNotFoundException, IOException
+    static String createBundleUpdateTracking( String cnb, long moduleCrc, File moduleConf, String specVersion,
+                                              long installTime )
+        throws IOException
     {
-        CRC32 crc = new CRC32();
-        try (InputStream inFileStream = new FileInputStream( inFile )) {
-            byte[] array = new byte[(int) inFile.length()];
-            int len = inFileStream.read( array );
-            if ( len != array.length )
-            {
-                throw new IOException( "Cannot fully read " + inFile );
-            }
-            crc.update( array );
-        }
-        return crc;
+        String cnbDashed = cnb.replace( ".", "-" );
+        return new UpdateTracking( cnb, specVersion, installTime )
+            .addFile( "config/Modules/" + cnbDashed + ".xml", ChecksumCache.crc32( moduleConf ) )
+            .addFile( "modules/" + cnbDashed + ".jar", moduleCrc ).toXml();
     }
 
 }
@@ -70,6 +70,8 @@ public class CreateClusterMojo
         throws MojoExecutionException, MojoFailureException
     {
         Project antProject = registerNbmAntTasks();
+        final long installTime = getBuildDate().getTime();
+        final ChecksumCache checksums = getChecksumCache();
 
         if ( !nbmBuildDir.exists() )
         {
@@ -127,6 +129,7 @@ public class CreateClusterMojo
                                                 + ". Cannot find the main artifact in output directory." );
                             continue;
                         }
+                        mnf.setManifestCache( getManifestCache() );
                         mnf.setJarFile( jar );
                         mnf.checkFile();
 
@@ -157,7 +160,7 @@ public class CreateClusterMojo
                             FileUtils.copyStreamToFile( new InputStreamFacade() {
                                 public InputStream getInputStream() throws IOException
                                 {
-                                    return new StringInputStream( CreateClusterAppMojo.createBundleUpdateTracking( cnb, moduleArt, moduleConf, specVer ), "UTF-8" );
+                                    return new StringInputStream( CreateClusterAppMojo.createBundleUpdateTracking( cnb, checksums.getCrc32( moduleArt ), moduleConf, specVer, installTime ), "UTF-8" );
                                 }
                             }, new File( updateTracting, cnbDashed + ".xml" ) );
                         }
@@ -191,6 +194,7 @@ public class CreateClusterMojo
                 }
             }
             getLog().info( "Created NetBeans module cluster(s) at " + nbmBuildDir );
+            logManifestCacheStatistics();
         }
         else
         {
@@ -20,9 +20,9 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.TimeZone;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -38,6 +38,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.taskdefs.SignJar;
 import org.apache.tools.ant.util.FileUtils;
 import org.codehaus.plexus.PlexusConstants;
 import org.codehaus.plexus.PlexusContainer;
@@ -154,6 +155,38 @@ public class CreateNbmMojo
     @Parameter
     private File licenseFile;
     
+    /**
+     * How the NBM file is written: <code>ant</code> uses the <code>makenbm</code> task of the NetBeans harness,
+     * <code>native</code> a built-in writer that compresses the entries in parallel and does not compress
+     * jars a second time. OSGi bundles and modules with localized jars are always written with <code>ant</code>.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="ant", property="maven.nbm.writer")
+    private String nbmWriter;
+
+    /**
+     * Deflate level of the <code>native</code> NBM writer, from 0 (no compression) to 9 (best compression).
+     * @since 4.2
+     */
+    @Parameter(defaultValue="6", property="maven.nbm.compressionLevel")
+    private int nbmCompressionLevel;
+
+    /**
+     * Number of blocks of 128 KB compressed at the same time by the <code>native</code> NBM writer,
+     * 0 for one per available processor.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="0", property="maven.nbm.compressionThreads")
+    private int nbmCompressionThreads;
+
+    /**
+     * Whether the <code>native</code> NBM writer stores jars and other compressed archives as they are,
+     * instead of compressing them again for little gain.
+     * @since 4.2
+     */
+    @Parameter(defaultValue="true", property="maven.nbm.storeArchives")
+    private boolean nbmStoreArchives;
+
 
     // <editor-fold defaultstate="collapsed" desc="Component parameters">
 
@@ -195,37 +228,24 @@ public class CreateNbmMojo
 
         // 3. generate nbm
         File nbmFile = new File( nbmBuildDir, finalName + ".nbm" );
-        MakeNBM nbmTask = (MakeNBM) antProject.createTask( "makenbm" );
-        nbmTask.setFile( nbmFile );
-        nbmTask.setProductDir( clusterDir );
-
-        nbmTask.setModule( "modules" + File.separator + moduleJarName + ".jar" );
         boolean reqRestart = requiresRestart;
         if (!reqRestart && module.isRequiresRestart()) {
             reqRestart = module.isRequiresRestart();
             getLog().warn( "Module descriptor's requiresRestart field is deprecated, use plugin's configuration in pom.xml");
         }
-        nbmTask.setNeedsrestart( Boolean.toString( reqRestart ) );
         String moduleAuthor = author;
         if (module.getAuthor() != null) {
             moduleAuthor = module.getAuthor();
             getLog().warn( "Module descriptor's requiresRestart field is deprecated, use plugin's configuration in pom.xml");
         }
-        nbmTask.setModuleauthor( moduleAuthor );
+        File ks = null;
         if ( keystore != null && keystorealias != null && keystorepassword != null )
         {
-            File ks = new File( keystore );
+            ks = new File( keystore );
             if ( !ks.exists() )
             {
                 getLog().warn( "Cannot find keystore file at " + ks.getAbsolutePath() );
-            }
-            else
-            {
-                Signature sig = nbmTask.createSignature();
-                sig.setKeystore( ks );
-                sig.setAlias( keystorealias );
-                sig.setStorepass( keystorepassword );
-                getLog().debug( "Setup the Ant task to sign the NBM file." );
+                ks = null;
             }
         }
         else if ( keystore != null || keystorepassword != null || keystorealias != null )
@@ -245,49 +265,40 @@ public class CreateNbmMojo
             getLog().warn( "Module descriptor's licenseFile field is deprecated, use plugin's configuration in pom.xml");
             
         }
+        boolean defaultLicense = false;
         if ( licName != null && licFile != null )
         {
             if ( !licFile.exists() || !licFile.isFile() )
             {
                 getLog().warn( "Cannot find license file at " + licFile.getAbsolutePath() );
-            }
-            else
-            {
-                Blurb lb = nbmTask.createLicense();
-                lb.setFile( licFile );
-                lb.addText( licName );
+                licFile = null;
             }
         }
         else if ( licName != null || licFile != null )
         {
             getLog().warn(
                     "To set license for the nbm, you need to specify both licenseName and licenseFile parameters." );
+            licFile = null;
         }
         else
         {
-            Blurb lb = nbmTask.createLicense();
-            lb.addText( createDefaultLicenseHeader() );
-            lb.addText( createDefaultLicenseText() );
+            defaultLicense = true;
         }
         String hpUrl = homePageUrl;
         if (module.getHomepageUrl() != null) {
             getLog().warn( "Module descriptor's homePageUrl field is deprecated, use plugin's configuration in pom.xml");
             hpUrl = module.getHomepageUrl();
         }
-        if ( hpUrl != null )
-        {
-            nbmTask.setHomepage( hpUrl );
-        }
         String distribUrl = distributionUrl;
         if (module.getDistributionUrl() != null) {
             distribUrl = module.getDistributionUrl();
             getLog().warn( "Module descriptor's distributionUrl field is deprecated, use plugin's configuration in pom.xml");
         }
+        String dist = null;
         if ( distribUrl != null )
         {
             ArtifactRepository distRepository = CreateUpdateSiteMojo.getDeploymentRepository(
                     distribUrl, container, getLog() );
-            String dist = null;
             if ( distRepository == null )
             {
                 if ( !distribUrl.contains( "::" ) )
@@ -308,25 +319,110 @@ public class CreateNbmMojo
                         + distRepository.pathOf( art );
 
             }
-            nbmTask.setDistribution( dist );
         }
         else
         {
-            nbmTask.setDistribution( nbmFile.getName() );
+            dist = nbmFile.getName();
         }
-        if ( ! "extra".equals( cluster ) )
+        //MNBMODULE-217 avoid using the static DATE_FORMAT variable in MavenNBM.java (in ant harness)
+        if ( isReproducible() )
         {
-            nbmTask.setTargetcluster( cluster );
+            DATE_FORMAT.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
         }
-        //MNBMODULE-217 avoid using the static DATE_FORMAT variable in MavenNBM.java (in ant harness)
-        nbmTask.setReleasedate( DATE_FORMAT.format(new Date(System.currentTimeMillis())) );
-        try
+        String releaseDate = DATE_FORMAT.format( getBuildDate() );
+
+        File moduleJar = new File( clusterDir, "modules" + File.separator + moduleJarName + ".jar" );
+        if ( isNativeWriter( moduleJar ) )
         {
-            nbmTask.execute();
+            NbmWriter writer = new NbmWriter( clusterDir, moduleJar );
+            writer.setNeedsRestart( reqRestart );
+            writer.setModuleAuthor( moduleAuthor );
+            writer.setHomepage( hpUrl );
+            writer.setDistribution( dist );
+            if ( ! "extra".equals( cluster ) )
+            {
+                writer.setTargetCluster( cluster );
+            }
+            writer.setReleaseDate( releaseDate );
+            writer.setLevel( nbmCompressionLevel );
+            writer.setThreads( nbmCompressionThreads );
+            writer.setStoreArchives( nbmStoreArchives );
+            if ( isReproducible() )
+            {
+                writer.setTime( getBuildDate().getTime() );
+            }
+            try
+            {
+                if ( licFile != null || defaultLicense )
+                {
+                    // the task is not run, it only builds the license text and name exactly like below
+                    MakeNBM licenseTask = (MakeNBM) antProject.createTask( "makenbm" );
+                    writer.setLicense( createLicense( licenseTask, licFile, licName ) );
+                }
+                long start = System.currentTimeMillis();
+                writer.write( nbmFile );
+                getLog().debug( "Wrote " + nbmFile + " in " + ( System.currentTimeMillis() - start ) + " ms" );
+            }
+            catch ( IOException | BuildException e )
+            {
+                throw new MojoExecutionException( "Cannot Generate nbm file:" + e.getMessage(), e );
+            }
+            if ( ks != null )
+            {
+                SignJar signTask = (SignJar) antProject.createTask( "signjar" );
+                signTask.setJar( nbmFile );
+                signTask.setKeystore( ks.getAbsolutePath() );
+                signTask.setAlias( keystorealias );
+                signTask.setStorepass( keystorepassword );
+                try
+                {
+                    signTask.execute();
+                }
+                catch ( BuildException e )
+                {
+                    throw new MojoExecutionException( "Cannot sign nbm file:" + e.getMessage(), e );
+                }
+            }
         }
-        catch ( BuildException e )
+        else
         {
-            throw new MojoExecutionException( "Cannot Generate nbm file:" + e.getMessage(), e );
+            MakeNBM nbmTask = (MakeNBM) antProject.createTask( "makenbm" );
+            nbmTask.setFile( nbmFile );
+            nbmTask.setProductDir( clusterDir );
+
+            nbmTask.setModule( "modules" + File.separator + moduleJarName + ".jar" );
+            nbmTask.setNeedsrestart( Boolean.toString( reqRestart ) );
+            nbmTask.setModuleauthor( moduleAuthor );
+            if ( ks != null )
+            {
+                Signature sig = nbmTask.createSignature();
+                sig.setKeystore( ks );
+                sig.setAlias( keystorealias );
+                sig.setStorepass( keystorepassword );
+                getLog().debug( "Setup the Ant task to sign the NBM file." );
+            }
+            if ( licFile != null || defaultLicense )
+            {
+                createLicense( nbmTask, licFile, licName );
+            }
+            if ( hpUrl != null )
+            {
+                nbmTask.setHomepage( hpUrl );
+            }
+            nbmTask.setDistribution( dist );
+            if ( ! "extra".equals( cluster ) )
+            {
+                nbmTask.setTargetcluster( cluster );
+            }
+            nbmTask.setReleasedate( releaseDate );
+            try
+            {
+                nbmTask.execute();
+            }
+            catch ( BuildException e )
+            {
+                throw new MojoExecutionException( "Cannot Generate nbm file:" + e.getMessage(), e );
+            }
         }
         try
         {
@@ -340,6 +436,63 @@ public class CreateNbmMojo
         }
     }
 
+    /**
+     * @param nbmTask task to add the license to
+     * @param licFile license file, or null for the default license
+     * @param licName name of the license in the file
+     * @return the license
+     */
+    private Blurb createLicense( MakeNBM nbmTask, File licFile, String licName )
+    {
+        Blurb lb = nbmTask.createLicense();
+        if ( licFile != null )
+        {
+            lb.setFile( licFile );
+            lb.addText( licName );
+        }
+        else
+        {
+            lb.addText( createDefaultLicenseHeader() );
+            lb.addText( createDefaultLicenseText() );
+        }
+        return lb;
+    }
+
+    /**
+     * @return true if the NBM file is written by {@link NbmWriter}
+     */
+    private boolean isNativeWriter( File moduleJar )
+        throws MojoExecutionException
+    {
+        if ( "ant".equals( nbmWriter ) )
+        {
+            return false;
+        }
+        if ( !"native".equals( nbmWriter ) )
+        {
+            throw new MojoExecutionException( "Unknown nbmWriter '" + nbmWriter
+                + "', allowed values are ant and native" );
+        }
+        if ( nbmCompressionLevel < 0 || nbmCompressionLevel > 9 )
+        {
+            throw new MojoExecutionException( "nbmCompressionLevel must be between 0 and 9" );
+        }
+        try
+        {
+            if ( !NbmWriter.isSupported( moduleJar ) )
+            {
+                getLog().info( "Writing the NBM file with the makenbm task, "
+                                   + "the module is an OSGi bundle or has localized jars" );
+                return false;
+            }
+            return true;
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot read " + moduleJar, e );
+        }
+    }
+
     public void contextualize( Context context )
             throws ContextException
     {
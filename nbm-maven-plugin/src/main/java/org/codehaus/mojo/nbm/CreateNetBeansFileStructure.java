@@ -17,27 +17,26 @@
 package org.codehaus.mojo.nbm;
 
 import java.io.*;
-import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.zip.ZipException;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
 //import org.apache.maven.artifact.factory.ArtifactFactory;
-import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -53,16 +52,16 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Copy;
 import org.apache.tools.ant.taskdefs.Jar;
 import org.apache.tools.ant.types.FileSet;
-import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.PatternSet;
-import org.apache.tools.ant.util.FileUtils;
 import org.netbeans.nbbuild.CreateModuleXML;
 import org.netbeans.nbbuild.MakeListOfNBM;
 import org.codehaus.mojo.nbm.model.NetBeansModule;
 import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.ZipCentralDirectory;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.StringUtils;
-import org.netbeans.nbbuild.JHIndexer;
 
 /**
  * Create the NetBeans module directory structure, a prerequisite for nbm creation and cluster creation.
@@ -200,9 +199,6 @@ public abstract class CreateNetBeansFileStructure
     @Component
     protected MavenResourcesFiltering mavenResourcesFiltering;
 
-    @Parameter(property="session", readonly=true, required=true)
-    protected MavenSession session;
-
 
     //items used by the CreateNBMMojo.
     protected Project antProject;
@@ -254,59 +250,23 @@ public abstract class CreateNetBeansFileStructure
 
         //2. create nbm resources
         File moduleFile = new File( moduleJarLocation, moduleJarName + ".jar" );
+        // checksums of files copied into the cluster, keyed by their path in it
+        Map<String, Long> crcs = new HashMap<String, Long>();
+        ChecksumCache checksums = getChecksumCache();
+        ClusterState state = ClusterState.load( new File( nbmBuildDir, "cluster.state" ), clusterDir );
+        String jarInputs;
 
         try
         {
-            boolean needPlainCopy = false;
-            InputStream is = new FileInputStream( jarFile );
-            try
+            long jarCrc = checksums.getCrc32( jarFile );
+            jarInputs = jarCrc + ":" + jarFile.length();
+            if ( state.isUpToDate( "jar", jarInputs ) )
             {
-                JarInputStream jis = new JarInputStream( is );
-                Manifest m = jis.getManifest();
-                Attributes a = m.getMainAttributes();
-                String classPath = ( String ) a.remove( new Attributes.Name( "X-Class-Path" ) );
-                if ( classPath == null )
-                {
-                    needPlainCopy = true;
-                }
-                else // MNBMODULE-133
-                {
-                    getLog().info( "Copying module JAR to " + moduleJarLocation + " with manifest updates" );
-                    a.putValue( "Class-Path", classPath );
-                    a.remove( new Attributes.Name( "Maven-Class-Path" ) );
-                    OutputStream os = new FileOutputStream( moduleFile );
-                    try
-                    {
-                        JarOutputStream jos = new JarOutputStream( os, m );
-                        JarEntry entry;
-                        while ( ( entry = jis.getNextJarEntry() ) != null )
-                        {
-                            JarEntry entry2 = new JarEntry( entry );
-                            jos.putNextEntry( entry2 );
-                            int c;
-                            while ( ( c = jis.read() ) != -1 )
-                            {
-                                jos.write( c );
-                            }
-                            jos.closeEntry();
-                        }
-                        jos.finish();
-                        jos.close();
-                    }
-                    finally
-                    {
-                        os.close();
-                    }
-                }
-            }
-            finally
-            {
-                is.close();
+                getLog().info( "Module JAR in " + moduleJarLocation + " is up to date" );
             }
-            if ( needPlainCopy )
+            else
             {
-                getLog().info( "Copying module JAR to " + moduleJarLocation );
-                FileUtils.getFileUtils().copyFile( jarFile, moduleFile, null, true, false );
+                copyModuleJar( jarFile, moduleFile, jarCrc, crcs );
             }
         }
         catch ( IOException x )
@@ -322,8 +282,12 @@ public abstract class CreateNetBeansFileStructure
         if ( module != null )
         {
             // copy libraries to the designated place..
+            // the manifest goal classified them earlier in the build, otherwise look at all runtime artifacts
+            DependencyClassification classification = DependencyClassification.forProject( project );
             @SuppressWarnings("unchecked")
-            List<Artifact> artifacts = project.getRuntimeArtifacts();
+            List<Artifact> artifacts =
+                classification != null ? classification.getLibraries() : project.getRuntimeArtifacts();
+            FilePlacement placement = getFilePlacement();
             for ( Artifact artifact : artifacts )
             {
                 File source = artifact.getFile();
@@ -335,23 +299,29 @@ public abstract class CreateNetBeansFileStructure
                     File target = new File( moduleJarLocation, path );
 
                     File targetDir = target.getParentFile();
-                    targetDir.mkdirs();
 
                     try
                     {
-                        FileUtils.getFileUtils().copyFile( source, target, null, true, false );
-                        if ( externals != null && externals.contains(artifact.getGroupId() + ":" + artifact.getArtifactId())) // MNBMODULE-138
+                        boolean external = externals != null && externals.contains(artifact.getGroupId() + ":" + artifact.getArtifactId()); // MNBMODULE-138
+                        long crc = checksums.getCrc32( source );
+                        crcs.put( "modules/" + path, crc );
+                        if ( state.isUpToDate( "lib:modules/" + path, crc + ":" + source.length() + ":" + external ) )
+                        {
+                            continue;
+                        }
+                        placement.place( source, target );
+                        if ( external )
                         {
                             String name = target.getName();
                             getLog().info( "Using *.external replacement for " + name );
-                            PrintWriter external = new PrintWriter( new File( targetDir, name + ".external" ), "UTF-8" );
+                            PrintWriter writer = new PrintWriter( new File( targetDir, name + ".external" ), "UTF-8" );
                             try
                             {
-                                writeExternal( external, artifact );
+                                writeExternal( writer, artifact, checksums );
                             }
                             finally
                             {
-                                external.close();
+                                writer.close();
                             }
                         }
                     }
@@ -362,11 +332,27 @@ public abstract class CreateNetBeansFileStructure
                     }
                 }
             }
-            if ( nbmResources != null )
+            for ( String part : state.getRemovedParts( "lib:" ) )
+            {
+                File stale = new File( clusterDir, part.substring( "lib:".length() ) );
+                getLog().info( "Removing " + stale + ", it is no longer on the module's Class-Path" );
+                stale.delete();
+                new File( stale.getPath() + ".external" ).delete();
+            }
+            logManifestCacheStatistics();
+            String resourceInputs = resourceInputs();
+            if ( resourceInputs != null && state.isUpToDate( "resources", resourceInputs ) )
+            {
+                getLog().info( "NBM resources are up to date" );
+            }
+            else
             {
-                copyNbmResources();
+                if ( nbmResources != null )
+                {
+                    copyNbmResources();
+                }
+                copyDeprecatedNbmResources();
             }
-            copyDeprecatedNbmResources();
         }
 
         //javahelp stuff.
@@ -375,47 +361,109 @@ public abstract class CreateNetBeansFileStructure
             getLog().warn( "src/main/javahelp/ deprecated; use @HelpSetRegistration instead" );
             File javahelp_target = new File( buildDir, "javahelp" );
             String javahelpbase = moduleJarName.replace( '-', File.separatorChar ) + File.separator + "docs";
-            String javahelpSearch = "JavaHelpSearch";
-            File b = new File( javahelp_target, javahelpbase );
-            File p = new File( b, javahelpSearch );
-            p.mkdirs();
-            Copy cp = (Copy) antProject.createTask( "copy" );
-            cp.setTodir( javahelp_target );
-            FileSet set = new FileSet();
-            set.setDir( nbmJavahelpSource );
-            cp.addFileset( set );
-            cp.execute();
-            getLog().info( "Generating JavaHelp Index..." );
-
-            JHIndexer jhTask = (JHIndexer) antProject.createTask( "jhindexer" );
-            jhTask.setBasedir( b );
-            jhTask.setDb( p );
-            jhTask.setIncludes( "**/*.html" );
-            jhTask.setExcludes( javahelpSearch );
-            Path path = new Path( antProject );
-            jhTask.setClassPath( path );
-            clearStaticFieldsInJavaHelpIndexer();
+            String helpInputs;
             try
             {
-                jhTask.execute();
+                helpInputs = JavaHelpIndexer.fingerprint( nbmJavahelpSource, moduleJarName );
             }
-            catch ( BuildException e )
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot read JavaHelp sources", e );
+            }
+            try
+            {
+                if ( new JavaHelpIndexer().update( nbmJavahelpSource, javahelp_target,
+                                                   new File( javahelp_target, javahelpbase ),
+                                                   new File( buildDir, "javahelp.fingerprint" ), helpInputs ) )
+                {
+                    getLog().info( "Generated JavaHelp Index" );
+                }
+                else
+                {
+                    getLog().info( "JavaHelp index is up to date" );
+                }
+            }
+            catch ( IOException e )
             {
                 getLog().error( "Cannot generate JavaHelp index." );
                 throw new MojoExecutionException( e.getMessage(), e );
             }
             File helpJarLocation = new File( clusterDir, "modules/docs" );
-            helpJarLocation.mkdirs();
-            Jar jar = (Jar) antProject.createTask( "jar" );
-            jar.setDestFile( new File( helpJarLocation, moduleJarName + ".jar" ) );
-            set = new FileSet();
-            set.setDir( javahelp_target );
-            jar.addFileset( set );
-            jar.execute();
+            File helpJar = new File( helpJarLocation, moduleJarName + ".jar" );
+            if ( !state.isUpToDate( "javahelp", helpInputs ) || !helpJar.isFile() )
+            {
+                helpJarLocation.mkdirs();
+                Jar jar = (Jar) antProject.createTask( "jar" );
+                jar.setDestFile( helpJar );
+                FileSet set = new FileSet();
+                set.setDir( javahelp_target );
+                jar.addFileset( set );
+                jar.execute();
+            }
         }
 
         File configDir = new File( clusterDir, "config" + File.separator + "Modules" );
         configDir.mkdirs();
+        if ( state.isUpToDate( "config", type + ":" + jarInputs ) )
+        {
+            getLog().debug( "Module config file in " + configDir + " is up to date" );
+        }
+        else
+        {
+            createModuleXml( configDir, autoload, eager, disabled );
+        }
+        if ( modExaminator.isNetBeansModule() )
+        {
+            try
+            {
+                writeUpdateTracking( modExaminator, crcs, state );
+            }
+            catch ( IOException e )
+            {
+                getLog().error( "Cannot Generate nbm list" );
+                throw new MojoExecutionException( e.getMessage(), e );
+            }
+        }
+        else
+        {
+            MakeListOfNBM makeTask = (MakeListOfNBM) antProject.createTask( "genlist" );
+            antProject.setNewProperty( "module.name", finalName );
+            antProject.setProperty( "cluster.dir", cluster );
+            FileSet set = makeTask.createFileSet();
+            set.setDir( clusterDir );
+            PatternSet pattern = set.createPatternSet();
+            pattern.setIncludes( "**" );
+            makeTask.setModule( "modules" + File.separator + moduleJarName + ".jar" );
+            makeTask.setOutputfiledir( clusterDir );
+            try
+            {
+                makeTask.execute();
+            }
+            catch ( BuildException e )
+            {
+                getLog().error( "Cannot Generate nbm list" );
+                throw new MojoExecutionException( e.getMessage(), e );
+            }
+        }
+        String problem;
+        try
+        {
+            problem = state.store( crcs, checksums ) ? null : "the state file cannot be written";
+        }
+        catch ( IOException e )
+        {
+            problem = e.toString();
+        }
+        if ( problem != null )
+        {
+            getLog().warn( "Cannot record the state of " + clusterDir + ", it will be made again by the next build: "
+                + problem );
+        }
+    }
+
+    private void createModuleXml( File configDir, boolean autoload, boolean eager, boolean disabled )
+        throws MojoExecutionException
+    {
         CreateModuleXML moduleXmlTask = (CreateModuleXML) antProject.createTask( "createmodulexml" );
         moduleXmlTask.setXmldir( configDir );
         FileSet fs = new FileSet();
@@ -446,25 +494,137 @@ public abstract class CreateNetBeansFileStructure
             getLog().error( "Cannot generate config file." );
             throw new MojoExecutionException( e.getMessage(), e );
         }
-        MakeListOfNBM makeTask = (MakeListOfNBM) antProject.createTask( "genlist" );
-        antProject.setNewProperty( "module.name", finalName );
-        antProject.setProperty( "cluster.dir", cluster );
-        FileSet set = makeTask.createFileSet();
-        set.setDir( clusterDir );
-        PatternSet pattern = set.createPatternSet();
-        pattern.setIncludes( "**" );
-        makeTask.setModule( "modules" + File.separator + moduleJarName + ".jar" );
-        makeTask.setOutputfiledir( clusterDir );
+    }
+
+    /**
+     * Copies the module jar into the cluster, with an updated manifest if needed.
+     */
+    private void copyModuleJar( File jarFile, File moduleFile, long jarCrc, Map<String, Long> crcs )
+        throws IOException
+    {
+        Manifest m;
+        InputStream is = new FileInputStream( jarFile );
         try
         {
-            makeTask.execute();
+            m = new JarInputStream( is ).getManifest();
         }
-        catch ( BuildException e )
+        finally
         {
-            getLog().error( "Cannot Generate nbm list" );
-            throw new MojoExecutionException( e.getMessage(), e );
+            is.close();
+        }
+        Attributes a = m.getMainAttributes();
+        String classPath = ( String ) a.remove( new Attributes.Name( "X-Class-Path" ) );
+        if ( classPath == null )
+        {
+            getLog().info( "Copying module JAR to " + moduleFile.getParentFile() );
+            Files.copy( jarFile.toPath(), moduleFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            crcs.put( "modules/" + moduleFile.getName(), jarCrc );
+        }
+        else // MNBMODULE-133
+        {
+            getLog().info( "Copying module JAR to " + moduleFile.getParentFile() + " with manifest updates" );
+            a.putValue( "Class-Path", classPath );
+            a.remove( new Attributes.Name( "Maven-Class-Path" ) );
+            copyWithManifest( jarFile, moduleFile, m );
         }
+    }
 
+    /**
+     * Writes the update_tracking file of the module. Checksums of the files copied by this goal
+     * were computed along the way, only the other files of the cluster are read.
+     */
+    private void writeUpdateTracking( ExamineManifest manifest, Map<String, Long> crcs, ClusterState state )
+        throws IOException, MojoExecutionException
+    {
+        UpdateTracking tracking =
+            new UpdateTracking( manifest.getModuleWithRelease(), manifest.getSpecVersion(), getBuildDate().getTime() );
+        ChecksumCache checksums = getChecksumCache();
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( clusterDir );
+        scanner.setExcludes( new String[] { "update_tracking/**" } );
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        for ( String path : scanner.getIncludedFiles() )
+        {
+            String name = path.replace( File.separatorChar, '/' );
+            if ( UpdateTracking.isExternal( name ) )
+            {
+                tracking.addExternal( name, new File( clusterDir, path ) );
+                continue;
+            }
+            Long crc = crcs.get( name );
+            if ( crc == null )
+            {
+                crc = state.getCrc32( name );
+            }
+            if ( crc == null )
+            {
+                crc = checksums.getCrc32( new File( clusterDir, path ) );
+            }
+            crcs.put( name, crc );
+            tracking.addFile( name, crc );
+        }
+        tracking.write( clusterDir );
+    }
+
+    /**
+     * Copies the module jar with a new manifest. The other entries are copied as they are compressed
+     * in the original jar, only jars the raw copy cannot handle are inflated and deflated again entry by entry.
+     */
+    private void copyWithManifest( File jarFile, File moduleFile, Manifest manifest )
+        throws IOException
+    {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        manifest.write( content );
+        try
+        {
+            ZipCentralDirectory zip = ZipCentralDirectory.open( jarFile );
+            try
+            {
+                ZipCentralDirectory.Entry entry = zip.findEntry( JarFile.MANIFEST_NAME, true );
+                if ( entry != null )
+                {
+                    zip.copyReplacing( moduleFile, entry, content.toByteArray() );
+                    return;
+                }
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        catch ( ZipException ex )
+        {
+            getLog().debug( "Cannot copy " + jarFile + " without recompressing it: " + ex.getMessage() );
+        }
+        InputStream is = new FileInputStream( jarFile );
+        try
+        {
+            JarInputStream jis = new JarInputStream( is );
+            OutputStream os = new FileOutputStream( moduleFile );
+            try
+            {
+                JarOutputStream jos = new JarOutputStream( os, manifest );
+                JarEntry entry;
+                while ( ( entry = jis.getNextJarEntry() ) != null )
+                {
+                    JarEntry entry2 = new JarEntry( entry );
+                    jos.putNextEntry( entry2 );
+                    IOUtil.copy( jis, jos );
+                    jos.closeEntry();
+                }
+                jos.finish();
+                jos.close();
+            }
+            finally
+            {
+                os.close();
+            }
+        }
+        finally
+        {
+            is.close();
+        }
     }
 
     private void copyDeprecatedNbmResources()
@@ -541,53 +701,6 @@ public abstract class CreateNetBeansFileStructure
         }
     }
 
-    // repeated invokation of the javahelp indexer (possibly via multiple classloaders)
-    // is causing trouble, residue from previous invokations seems to cause errors
-    // this is a nasty workaround for the problem.
-    // alternatively we could try invoking the indexer from a separate jvm i guess,
-    // ut that's more work.
-    private void clearStaticFieldsInJavaHelpIndexer() // MNBMODULE-51 hack
-    {
-        try
-        {
-            Class clazz = Class.forName( "com.sun.java.help.search.Indexer" );
-            Field fld = clazz.getDeclaredField( "kitRegistry" );
-            fld.setAccessible( true );
-            Hashtable hash = (Hashtable) fld.get( null );
-            hash.clear();
-
-            clazz = Class.forName( "com.sun.java.help.search.HTMLIndexerKit" );
-            fld = clazz.getDeclaredField( "defaultParser" );
-            fld.setAccessible( true );
-            fld.set( null, null);
-
-            fld = clazz.getDeclaredField( "defaultCallback" );
-            fld.setAccessible( true );
-            fld.set( null, null);
-
-        }
-        catch ( IllegalArgumentException ex )
-        {
-            Logger.getLogger( CreateNetBeansFileStructure.class.getName() ).log( Level.SEVERE, null, ex );
-        }
-        catch ( IllegalAccessException ex )
-        {
-            Logger.getLogger( CreateNetBeansFileStructure.class.getName() ).log( Level.SEVERE, null, ex );
-        }
-        catch ( NoSuchFieldException ex )
-        {
-            Logger.getLogger( CreateNetBeansFileStructure.class.getName() ).log( Level.SEVERE, null, ex );
-        }
-        catch ( SecurityException ex )
-        {
-            Logger.getLogger( CreateNetBeansFileStructure.class.getName() ).log( Level.SEVERE, null, ex );
-        }
-        catch ( ClassNotFoundException ex )
-        {
-            Logger.getLogger( CreateNetBeansFileStructure.class.getName() ).log( Level.SEVERE, null, ex );
-        }
-    }
-
     private void copyNbmResources()
         throws MojoExecutionException
     {
@@ -628,12 +741,50 @@ public abstract class CreateNetBeansFileStructure
         return false;
     }
 
-    static void writeExternal( PrintWriter w, Artifact artifact )
+    /**
+     * Fingerprint of the nbm resources and the resources of the module descriptor.
+     * @return the fingerprint, or null if resources are filtered, the filtered content depends on
+     *         too many properties of the build to tell whether it changed
+     */
+    private String resourceInputs()
+    {
+        Fingerprint fp = new Fingerprint().add( "resources/1" );
+        if ( nbmResources != null )
+        {
+            if ( isFilteringEnabled( nbmResources ) )
+            {
+                return null;
+            }
+            for ( Resource res : nbmResources )
+            {
+                fp.add( res.getDirectory() ).add( res.getTargetPath() );
+                fp.add( String.valueOf( res.getIncludes() ) ).add( String.valueOf( res.getExcludes() ) );
+                if ( res.getDirectory() != null )
+                {
+                    File dir = new File( res.getDirectory() );
+                    fp.addTree( dir.isAbsolute() ? dir : new File( project.getBasedir(), res.getDirectory() ),
+                                new String[] { "**" }, null );
+                }
+            }
+        }
+        for ( NbmResource res : module.getNbmResources() )
+        {
+            fp.add( res.getBaseDirectory() ).add( res.getRelativeClusterPath() );
+            fp.add( String.valueOf( res.getIncludes() ) ).add( String.valueOf( res.getExcludes() ) );
+            if ( res.getBaseDirectory() != null )
+            {
+                fp.addTree( new File( project.getBasedir(), res.getBaseDirectory() ), new String[] { "**" }, null );
+            }
+        }
+        return fp.finish();
+    }
+
+    static void writeExternal( PrintWriter w, Artifact artifact, ChecksumCache checksums )
         throws IOException
     {
         w.write( "CRC:" );
         File file = artifact.getFile();
-        w.write( Long.toString( CreateClusterAppMojo.crcForFile( file ).getValue() ) );
+        w.write( Long.toString( checksums.getCrc32( file ) ) );
         w.write( "\nSIZE:" );
         w.write( Long.toString( file.length() ) );
         w.write( "\nURL:m2:/" );
@@ -17,6 +17,7 @@
 package org.codehaus.mojo.nbm;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -40,7 +41,6 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
-import org.apache.tools.ant.taskdefs.Copy;
 import org.apache.tools.ant.types.FileSet;
 import org.codehaus.plexus.PlexusConstants;
 import org.codehaus.plexus.PlexusContainer;
@@ -179,6 +179,7 @@ public class CreateUpdateSiteMojo
             }
         }
 
+        FilePlacement placement = getFilePlacement();
         if ( "nbm-application".equals( project.getPackaging() ) )
         {
             @SuppressWarnings( "unchecked" )
@@ -197,25 +198,21 @@ public class CreateUpdateSiteMojo
 
                 if ( art.getType().equals( "nbm-file" ) )
                 {
-                    Copy copyTask = (Copy) antProject.createTask( "copy" );
-                    copyTask.setOverwrite( true );
-                    copyTask.setFile( art.getFile() );
+                    File f;
                     if ( !isRepository )
                     {
-                        copyTask.setFlatten( true );
-                        copyTask.setTodir( nbmBuildDirFile );
+                        f = new File( nbmBuildDirFile, art.getFile().getName() );
                     }
                     else
                     {
                         String path = distRepository.pathOf( art );
-                        File f = new File( nbmBuildDirFile, path.replace( '/', File.separatorChar ) );
-                        copyTask.setTofile( f );
+                        f = new File( nbmBuildDirFile, path.replace( '/', File.separatorChar ) );
                     }
                     try
                     {
-                        copyTask.execute();
+                        placement.place( art.getFile(), f );
                     }
-                    catch ( BuildException ex )
+                    catch ( IOException ex )
                     {
                         throw new MojoExecutionException( "Cannot merge nbm files into autoupdate site", ex );
                     }
@@ -240,51 +237,36 @@ public class CreateUpdateSiteMojo
                 File moduleDir = proj.getFile().getParentFile();
                 if ( moduleDir != null && moduleDir.exists() )
                 {
-                    Copy copyTask = (Copy) antProject.createTask( "copy" );
-                    if ( !isRepository )
+                    File target = new File( proj.getBuild().getDirectory() );
+                    File[] fls = target.listFiles();
+                    if ( fls == null )
                     {
-                        FileSet fs = new FileSet();
-                        File projOutputDirectory = new File( proj.getBuild().getDirectory() );
-                        fs.setDir( projOutputDirectory );
-                        fs.createInclude().setName( "*.nbm" );
-                        copyTask.addFileset( fs );
-                        copyTask.setOverwrite( true );
-                        copyTask.setFlatten( true );
-                        copyTask.setTodir( nbmBuildDirFile );
+                        continue;
                     }
-                    else
+                    try
                     {
-                        File target = new File( proj.getBuild().getDirectory() );
-                        boolean has = false;
-                        File[] fls = target.listFiles();
-                        if ( fls != null )
+                        for ( File fl : fls )
                         {
-                            for ( File fl : fls )
+                            if ( fl.isFile() && fl.getName().endsWith( ".nbm" ) )
                             {
-                                if ( fl.getName().endsWith( ".nbm" ) )
+                                if ( !isRepository )
                                 {
-                                    copyTask.setFile( fl );
-                                    has = true;
+                                    placement.place( fl, new File( nbmBuildDirFile, fl.getName() ) );
+                                }
+                                else
+                                {
+                                    Artifact art =
+                                        artifactFactory.createArtifact( proj.getGroupId(), proj.getArtifactId(),
+                                                                        proj.getVersion(), null, "nbm-file" );
+                                    String path = distRepository.pathOf( art );
+                                    File f = new File( nbmBuildDirFile, path.replace( '/', File.separatorChar ) );
+                                    placement.place( fl, f );
                                     break;
                                 }
                             }
                         }
-                        if ( !has )
-                        {
-                            continue;
-                        }
-                        Artifact art =
-                            artifactFactory.createArtifact( proj.getGroupId(), proj.getArtifactId(), proj.getVersion(),
-                                                            null, "nbm-file" );
-                        String path = distRepository.pathOf( art );
-                        File f = new File( nbmBuildDirFile, path.replace( '/', File.separatorChar ) );
-                        copyTask.setTofile( f );
-                    }
-                    try
-                    {
-                        copyTask.execute();
                     }
-                    catch ( BuildException ex )
+                    catch ( IOException ex )
                     {
                         throw new MojoExecutionException( "Cannot merge nbm files into autoupdate site", ex );
                     }
@@ -297,6 +279,7 @@ public class CreateUpdateSiteMojo
                     "This goal only makes sense on reactor projects or project with 'nbm-application' packaging." );
 
         }
+        getLog().debug( placement.toString() );
         MakeUpdateDesc descTask = (MakeUpdateDesc) antProject.createTask( "updatedist" );
         File xmlFile = new File( nbmBuildDirFile, fileName );
         descTask.setDesc( xmlFile );
@@ -28,10 +28,12 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.jar.Attributes;
-import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -48,6 +50,7 @@ import org.apache.tools.ant.types.Parameter;
 import org.apache.tools.ant.types.selectors.AndSelector;
 import org.apache.tools.ant.types.selectors.FilenameSelector;
 import org.apache.tools.ant.types.selectors.OrSelector;
+import org.codehaus.mojo.nbm.utils.ExamineManifestBatch;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 import org.codehaus.plexus.util.DirectoryScanner;
@@ -653,6 +656,7 @@ public class CreateWebstartAppMojo
         throws IOException
     {
         StringBuilder buff = new StringBuilder();
+        List<File> jars = new ArrayList<File>();
         for ( String nm : files.getDirectoryScanner( antProject ).getIncludedFiles() )
         {
             File jar = new File( files.getDir( antProject ), nm );
@@ -661,9 +665,19 @@ public class CreateWebstartAppMojo
             {
                 throw new IOException( "Cannot read file: " + jar );
             }
-
-            JarFile theJar = new JarFile( jar );
-            Attributes attr = theJar.getManifest().getMainAttributes();
+            jars.add( jar );
+        }
+        ExamineManifestBatch batch = new ExamineManifestBatch( getLog() );
+        batch.setManifestCache( getManifestCache() );
+        List<Manifest> manifests = batch.readManifests( jars );
+        for ( int i = 0; i < jars.size(); i++ )
+        {
+            File jar = jars.get( i );
+            if ( manifests.get( i ) == null )
+            {
+                throw new IOException( "Not a NetBeans Module: " + jar );
+            }
+            Attributes attr = manifests.get( i ).getMainAttributes();
             String codenamebase = attr.getValue( "OpenIDE-Module" );
             if ( codenamebase == null )
             {
@@ -690,7 +704,6 @@ public class CreateWebstartAppMojo
             String dashcnb = codenamebase.replace( '.', '-' );
 
             buff.append( "    <extension name='" ).append( codenamebase ).append( "' href='" ).append( masterPrefix ).append( dashcnb ).append( ".jnlp' />\n" );
-            theJar.close();
         }
         return buff.toString();
 
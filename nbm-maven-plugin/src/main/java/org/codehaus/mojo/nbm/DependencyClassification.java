@@ -0,0 +1,397 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
+import org.codehaus.mojo.nbm.model.Dependency;
+import org.codehaus.mojo.nbm.model.NetBeansModule;
+import org.codehaus.mojo.nbm.utils.ExamineManifest;
+
+/**
+ * The dependencies of a module project sorted into libraries on the module's Class-Path,
+ * NetBeans module and OSGi bundle dependencies, and the libraries owned by each of those.
+ * Computed with a single walk of the dependency tree and one pass over the compile artifacts,
+ * then shared with the later goals working on the same project through the project context.
+ */
+final class DependencyClassification
+{
+
+    /**
+     * Project context key of the classification.
+     */
+    private static final String CONTEXT_KEY = "nbm-maven-plugin.dependencyClassification";
+
+    private static final String LIB_ID = "!@#$%^&ROOT";
+
+    private final List<Artifact> libraries = new ArrayList<Artifact>();
+
+    private final List<AbstractNbmMojo.ModuleWrapper> modules = new ArrayList<AbstractNbmMojo.ModuleWrapper>();
+
+    private final Map<String, List<Artifact>> declaredModules = new HashMap<String, List<Artifact>>();
+
+    private final Map<String, List<Artifact>> transitiveModules = new HashMap<String, List<Artifact>>();
+
+    private final Map<Artifact, ExamineManifest> examinerCache;
+
+    private DependencyClassification( Map<Artifact, ExamineManifest> examinerCache )
+    {
+        this.examinerCache = examinerCache;
+    }
+
+    /**
+     * Classifies the dependencies of a module project.
+     * @param treeRoot dependency tree of the project
+     * @param module module descriptor, null if there is none
+     * @param customDependencies module dependencies configured on the plugin, can be null
+     * @param runtimeArtifacts runtime artifacts of the project
+     * @param compileArtifacts compile artifacts of the project
+     * @param examinerCache cache of manifests of the project's artifacts, filled as needed
+     * @param manifestRegistry manifests shared with other modules of the build, can be null
+     * @param log mojo logger
+     * @param useOsgiDependencies whether OSGi bundles are dependencies rather than libraries
+     * @return the classification
+     * @throws MojoExecutionException when an artifact cannot be examined
+     */
+    static DependencyClassification classify( DependencyNode treeRoot, NetBeansModule module,
+                                              Dependency[] customDependencies, List<Artifact> runtimeArtifacts,
+                                              List<Artifact> compileArtifacts,
+                                              Map<Artifact, ExamineManifest> examinerCache,
+                                              ManifestRegistry manifestRegistry, Log log,
+                                              boolean useOsgiDependencies )
+        throws MojoExecutionException
+    {
+        DependencyClassification result = new DependencyClassification( examinerCache );
+        TreeVisitor visitor = new TreeVisitor( result, module, runtimeArtifacts, manifestRegistry, log,
+            treeRoot, useOsgiDependencies );
+        treeRoot.accept( visitor );
+        if ( visitor.throwable != null )
+        {
+            throw visitor.throwable;
+        }
+        result.classifyCompileArtifacts( module, customDependencies, compileArtifacts, manifestRegistry, log,
+            useOsgiDependencies );
+        return result;
+    }
+
+    /**
+     * Remembers the classification of a project for the other goals of the build, in the project context.
+     * @param project the classified project
+     * @param classification its classification
+     */
+    static void register( MavenProject project, DependencyClassification classification )
+    {
+        project.setContextValue( CONTEXT_KEY, classification );
+    }
+
+    /**
+     * The classification computed by the manifest goal for a project earlier in the build.
+     * @param project the module project
+     * @return the classification or null if the project was not classified in this build
+     */
+    static DependencyClassification forProject( MavenProject project )
+    {
+        Object classification = project.getContextValue( CONTEXT_KEY );
+        return classification instanceof DependencyClassification ? (DependencyClassification) classification : null;
+    }
+
+    /**
+     * @return libraries to put on the module's Class-Path, in dependency tree order
+     */
+    List<Artifact> getLibraries()
+    {
+        return libraries;
+    }
+
+    /**
+     * @return NetBeans module and OSGi bundle dependencies among the compile artifacts, direct and transitive
+     */
+    List<AbstractNbmMojo.ModuleWrapper> getModules()
+    {
+        return modules;
+    }
+
+    /**
+     * Modules and bundles declared in the project's pom.
+     * @return the module artifact followed by the libraries it owns, keyed by the dependencyConflictId
+     */
+    Map<String, List<Artifact>> getDeclaredModules()
+    {
+        return declaredModules;
+    }
+
+    /**
+     * Modules and bundles picked up transitively.
+     * @return the module artifact followed by the libraries it owns, keyed by the dependencyConflictId
+     */
+    Map<String, List<Artifact>> getTransitiveModules()
+    {
+        return transitiveModules;
+    }
+
+    /**
+     * @return cache of manifests of the classified artifacts
+     */
+    Map<Artifact, ExamineManifest> getExaminerCache()
+    {
+        return examinerCache;
+    }
+
+    private void classifyCompileArtifacts( NetBeansModule module, Dependency[] customDependencies,
+                                           List<Artifact> artifacts, ManifestRegistry manifestRegistry, Log log,
+                                           boolean useOsgiDependencies )
+        throws MojoExecutionException
+    {
+        Map<String, Dependency> deps = new LinkedHashMap<String, Dependency>();
+        if ( customDependencies != null )
+        {
+            for ( Dependency d : customDependencies )
+            {
+                if ( !deps.containsKey( d.getId() ) )
+                {
+                    deps.put( d.getId(), d );
+                }
+            }
+        }
+        if ( module != null && !module.getDependencies().isEmpty() )
+        {
+            log.warn( "dependencies in module descriptor are deprecated, use the plugin's parameter moduleDependencies" );
+            //module deps override the config (as is the case with other configurations)
+            for ( Dependency d : module.getDependencies() )
+            {
+                deps.put( d.getId(), d );
+            }
+        }
+        Set<Artifact> libraryArtifacts = new HashSet<Artifact>( libraries );
+        for ( Artifact artifact : artifacts )
+        {
+            if ( libraryArtifacts.contains( artifact ) )
+            {
+                continue;
+            }
+            ExamineManifest depExaminator =
+                AbstractNbmMojo.examineArtifact( artifact, examinerCache, manifestRegistry, log );
+            String id = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            Dependency declared = deps.get( id );
+            Dependency dep = AbstractNbmMojo.resolveNetBeansDependency( artifact, declared, depExaminator, log );
+            if ( dep != null )
+            {
+                AbstractNbmMojo.ModuleWrapper wr = new AbstractNbmMojo.ModuleWrapper();
+                wr.dependency = dep;
+                wr.artifact = artifact;
+                wr.transitive = false;
+                //only direct deps matter to us..
+                if ( depExaminator.isNetBeansModule() && artifact.getDependencyTrail().size() > 2 )
+                {
+                    log.debug( artifact.getId()
+                        + " omitted as NetBeans module dependency, not a direct one. Declare it in the pom for inclusion." );
+                    wr.transitive = true;
+                }
+                modules.add( wr );
+            }
+            else if ( useOsgiDependencies && depExaminator.isOsgiBundle() )
+            {
+                AbstractNbmMojo.ModuleWrapper wr = new AbstractNbmMojo.ModuleWrapper();
+                wr.osgi = true;
+                wr.dependency = declared;
+                boolean print = false;
+                if ( wr.dependency == null )
+                {
+                    Dependency depe = new Dependency();
+                    depe.setId( id );
+                    depe.setType( "spec" );
+                    wr.dependency = depe;
+                    print = true;
+                }
+                wr.artifact = artifact;
+                wr.transitive = false;
+                //only direct deps matter to us..
+                if ( artifact.getDependencyTrail().size() > 2 )
+                {
+                    log.debug( artifact.getId()
+                        + " omitted as NetBeans module OSGi dependency, not a direct one. Declare it in the pom for inclusion." );
+                    wr.transitive = true;
+                }
+                else if ( print )
+                {
+                    log.info( "Adding OSGi bundle dependency - " + id );
+                }
+                modules.add( wr );
+            }
+        }
+    }
+
+    /**
+     * Collects the libraries and the module owned libraries in one walk.
+     * Libraries are the runtime dependencies reachable from the root through libraries only,
+     * modules and bundles are collected anywhere in the tree, with the libraries below them (MNBMODULE-95).
+     */
+    private static final class TreeVisitor
+        implements DependencyNodeVisitor
+    {
+
+        private final DependencyClassification result;
+
+        private final List<String> explicitLibs = new ArrayList<String>();
+
+        private final Map<String, Artifact> artifacts = new HashMap<String, Artifact>();
+
+        private final ManifestRegistry manifestRegistry;
+
+        private final Log log;
+
+        private final DependencyNode root;
+
+        private final boolean useOsgiDependencies;
+
+        /**
+         * Whether the children of each node on the current path can still be libraries.
+         */
+        private final Stack<Boolean> libraryPath = new Stack<Boolean>();
+
+        private final Stack<String> currentModule = new Stack<String>();
+
+        private MojoExecutionException throwable;
+
+        TreeVisitor( DependencyClassification result, NetBeansModule module, List<Artifact> runtimeArtifacts,
+                     ManifestRegistry manifestRegistry, Log log, DependencyNode root, boolean useOsgiDependencies )
+        {
+            this.result = result;
+            if ( module != null && module.getLibraries() != null )
+            {
+                explicitLibs.addAll( module.getLibraries() );
+            }
+            for ( Artifact a : runtimeArtifacts )
+            {
+                artifacts.put( a.getDependencyConflictId(), a );
+            }
+            this.manifestRegistry = manifestRegistry;
+            this.log = log;
+            this.root = root;
+            this.useOsgiDependencies = useOsgiDependencies;
+        }
+
+        public boolean visit( DependencyNode node )
+        {
+            if ( throwable != null )
+            {
+                libraryPath.push( Boolean.FALSE );
+                return false;
+            }
+            if ( root == node )
+            {
+                libraryPath.push( Boolean.TRUE );
+                return true;
+            }
+            boolean underLibraries = libraryPath.peek();
+            libraryPath.push( Boolean.FALSE );
+            Artifact artifact = artifacts.get( node.getArtifact().getDependencyConflictId() );
+            if ( artifact == null )
+            {
+                //ignore non-runtime stuff..
+                return false;
+            }
+            // somehow the transitive artifacts in the tree are not always resolved, so the runtime one is used
+            try
+            {
+                ExamineManifest depExaminator =
+                    AbstractNbmMojo.examineArtifact( artifact, result.examinerCache, manifestRegistry, log );
+                if ( underLibraries
+                    && AbstractNbmMojo.matchesLibrary( artifact, explicitLibs, depExaminator, log, useOsgiDependencies ) )
+                {
+                    if ( depExaminator.isNetBeansModule() )
+                    {
+                        log.warn(
+                            "You are using a NetBeans Module as a Library (classpath extension): " + artifact.getId() );
+                    }
+                    result.libraries.add( artifact );
+                    libraryPath.pop();
+                    libraryPath.push( Boolean.TRUE );
+                }
+                if ( depExaminator.isNetBeansModule() || ( useOsgiDependencies && depExaminator.isOsgiBundle() ) )
+                {
+                    currentModule.push( artifact.getDependencyConflictId() );
+                    List<Artifact> arts = new ArrayList<Artifact>();
+                    arts.add( artifact );
+                    ( currentModule.size() == 1 ? result.declaredModules : result.transitiveModules ).put(
+                        currentModule.peek(), arts );
+                }
+                else if ( currentModule.isEmpty() )
+                {
+                    //MNBMODULE-95 we check the non-module dependencies to see if they
+                    // depend on modules/bundles. these bundles are transitive, so
+                    // we add the root module as the first currentModule to keep
+                    //any bundle/module underneath it as transitive
+                    currentModule.push( LIB_ID + artifact.getDependencyConflictId() );
+                }
+                else if ( !currentModule.peek().startsWith( LIB_ID )
+                    && AbstractNbmMojo.matchesLibrary( artifact, Collections.<String>emptyList(), depExaminator, log,
+                                                       useOsgiDependencies ) )
+                {
+                    //MNBMODULE-95 we are only interested in the module owned libraries
+                    ( currentModule.size() == 1 ? result.declaredModules : result.transitiveModules ).get(
+                        currentModule.peek() ).add( artifact );
+                }
+            }
+            catch ( MojoExecutionException mojoExecutionException )
+            {
+                throwable = mojoExecutionException;
+                return false;
+            }
+            return true;
+        }
+
+        public boolean endVisit( DependencyNode node )
+        {
+            libraryPath.pop();
+            if ( throwable != null )
+            {
+                return false;
+            }
+            if ( node == root )
+            {
+                if ( result.libraries.size() > 0 )
+                {
+                    log.info( "Adding on module's Class-Path:" );
+                    for ( Artifact inc : result.libraries )
+                    {
+                        log.info( "    " + inc.getId() );
+                    }
+                }
+            }
+            else if ( !currentModule.empty()
+                && ( currentModule.peek().equals( node.getArtifact().getDependencyConflictId() )
+                    || currentModule.peek().equals( LIB_ID + node.getArtifact().getDependencyConflictId() ) ) )
+            {
+                currentModule.pop();
+            }
+            return true;
+        }
+    }
+}
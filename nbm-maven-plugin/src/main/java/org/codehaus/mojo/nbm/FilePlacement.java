@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Places files taken from the local repository or other modules of the build into cluster, application
+ * and update site directories, by copying or by linking them.
+ * Whenever a link cannot be created, typically because source and target are on different file systems,
+ * the file is copied instead. Targets are always replaced, never written in place,
+ * so a previously linked target does not modify its source.
+ */
+final class FilePlacement
+{
+
+    static final String COPY = "copy";
+
+    static final String HARDLINK = "hardlink";
+
+    static final String REFLINK = "reflink";
+
+    static final String SYMLINK = "symlink";
+
+    private final String strategy;
+
+    private final Log log;
+
+    /**
+     * Pairs of source and target file stores where <code>cp</code> cannot clone files.
+     */
+    private final ConcurrentMap<String, Boolean> noReflink = new ConcurrentHashMap<String, Boolean>();
+
+    private final AtomicInteger linked = new AtomicInteger();
+
+    private final AtomicInteger copied = new AtomicInteger();
+
+    /**
+     * @param strategy one of <code>copy</code>, <code>hardlink</code>, <code>reflink</code> or <code>symlink</code>
+     * @param log mojo logger
+     * @throws MojoExecutionException for an unknown strategy
+     */
+    FilePlacement( String strategy, Log log )
+        throws MojoExecutionException
+    {
+        String s = strategy == null || strategy.trim().isEmpty() ? COPY : strategy.trim().toLowerCase( Locale.ENGLISH );
+        if ( !Arrays.asList( COPY, HARDLINK, REFLINK, SYMLINK ).contains( s ) )
+        {
+            throw new MojoExecutionException( "Unknown file placement '" + strategy
+                + "', allowed values are copy, hardlink, reflink and symlink" );
+        }
+        this.strategy = s;
+        this.log = log;
+    }
+
+    /**
+     * Places a file, creating the target's parent directories.
+     * @param source existing file
+     * @param target file to create or replace
+     * @throws IOException when the file cannot be copied
+     */
+    void place( File source, File target )
+        throws IOException
+    {
+        Path from = source.toPath().toAbsolutePath();
+        Path to = target.toPath().toAbsolutePath();
+        Files.createDirectories( to.getParent() );
+        if ( !COPY.equals( strategy ) )
+        {
+            if ( isPlaced( from, to ) )
+            {
+                linked.incrementAndGet();
+                return;
+            }
+            Files.deleteIfExists( to );
+            if ( link( from, to ) )
+            {
+                linked.incrementAndGet();
+                return;
+            }
+        }
+        Files.copy( from, to, StandardCopyOption.REPLACE_EXISTING );
+        copied.incrementAndGet();
+    }
+
+    /**
+     * Whether the target is still the link created by a previous build.
+     */
+    private boolean isPlaced( Path from, Path to )
+        throws IOException
+    {
+        if ( !Files.exists( to, LinkOption.NOFOLLOW_LINKS ) )
+        {
+            return false;
+        }
+        if ( SYMLINK.equals( strategy ) )
+        {
+            return Files.isSymbolicLink( to ) && from.equals( Files.readSymbolicLink( to ) );
+        }
+        // a clone cannot be told from a copy
+        return HARDLINK.equals( strategy ) && !Files.isSymbolicLink( to ) && Files.isSameFile( from, to );
+    }
+
+    private boolean link( Path from, Path to )
+        throws IOException
+    {
+        try
+        {
+            if ( HARDLINK.equals( strategy ) )
+            {
+                Files.createLink( to, from );
+                return true;
+            }
+            if ( SYMLINK.equals( strategy ) )
+            {
+                Files.createSymbolicLink( to, from );
+                return true;
+            }
+            return reflink( from, to );
+        }
+        catch ( IOException | UnsupportedOperationException ex )
+        {
+            log.debug( "Cannot " + strategy + " " + from + " to " + to + ", copying it: " + ex );
+            return false;
+        }
+    }
+
+    /**
+     * Clones the file with the system <code>cp</code> command, there is no Java API for it.
+     */
+    private boolean reflink( Path from, Path to )
+        throws IOException
+    {
+        String os = System.getProperty( "os.name" ).toLowerCase( Locale.ENGLISH );
+        List<String> command;
+        if ( os.contains( "linux" ) )
+        {
+            command = Arrays.asList( "cp", "--reflink=always", from.toString(), to.toString() );
+        }
+        else if ( os.contains( "mac" ) )
+        {
+            command = Arrays.asList( "cp", "-c", from.toString(), to.toString() );
+        }
+        else
+        {
+            return false;
+        }
+        String stores = Files.getFileStore( from ) + "->" + Files.getFileStore( to.getParent() );
+        if ( noReflink.containsKey( stores ) )
+        {
+            return false;
+        }
+        Process process = new ProcessBuilder( command ).redirectErrorStream( true ).start();
+        try
+        {
+            process.getOutputStream().close();
+            String output = IOUtil.toString( process.getInputStream() );
+            if ( process.waitFor() == 0 )
+            {
+                return true;
+            }
+            log.debug( "Cannot clone files from " + stores + ", copying them: " + output.trim() );
+            noReflink.put( stores, Boolean.TRUE );
+            Files.deleteIfExists( to );
+            return false;
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while cloning " + from );
+        }
+        finally
+        {
+            process.destroy();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "File placement " + strategy + ": " + linked.get() + " files linked, " + copied.get() + " copied";
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import org.codehaus.mojo.nbm.utils.Digests;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * SHA-256 digest over the inputs of a goal, used to skip work when nothing changed since the last build.
+ * Files are usually recorded by size and timestamp only, {@link #addContent(File)} hashes the content.
+ */
+final class Fingerprint
+{
+
+    private final MessageDigest digest;
+
+    Fingerprint()
+    {
+        digest = Digests.create( "SHA-256" );
+    }
+
+    /**
+     * @param value any value, can be null
+     * @return this
+     */
+    Fingerprint add( String value )
+    {
+        try
+        {
+            digest.update( ( value == null ? "\u0000" : value ).getBytes( "UTF-8" ) );
+        }
+        catch ( UnsupportedEncodingException ex )
+        {
+            throw new IllegalStateException( ex );
+        }
+        digest.update( (byte) '\n' );
+        return this;
+    }
+
+    Fingerprint add( long value )
+    {
+        return add( Long.toString( value ) );
+    }
+
+    Fingerprint add( boolean value )
+    {
+        return add( Boolean.toString( value ) );
+    }
+
+    /**
+     * Records path, size and timestamp of a file, a folder or a missing file.
+     * @param file file, can be null
+     * @return this
+     */
+    Fingerprint addFile( File file )
+    {
+        if ( file == null )
+        {
+            return add( (String) null );
+        }
+        add( file.getAbsolutePath() );
+        if ( file.isFile() )
+        {
+            add( file.length() ).add( file.lastModified() );
+        }
+        else
+        {
+            add( file.isDirectory() ? "dir" : "missing" );
+        }
+        return this;
+    }
+
+    /**
+     * Records path and content of a file.
+     * @param file file, can be missing or null
+     * @return this
+     * @throws IOException when the file cannot be read
+     */
+    Fingerprint addContent( File file )
+        throws IOException
+    {
+        if ( file == null )
+        {
+            return add( (String) null );
+        }
+        add( file.getAbsolutePath() );
+        if ( !file.isFile() )
+        {
+            return add( "missing" );
+        }
+        return add( hash( file ) );
+    }
+
+    /**
+     * Records relative path, size and timestamp of all matching files in a folder, in a stable order.
+     * @param dir folder, can be missing
+     * @param includes ant style patterns
+     * @param excludes ant style patterns, can be null
+     * @return this
+     */
+    Fingerprint addTree( File dir, String[] includes, String[] excludes )
+    {
+        add( dir.getAbsolutePath() );
+        if ( !dir.isDirectory() )
+        {
+            return add( "missing" );
+        }
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( dir );
+        scanner.setIncludes( includes );
+        scanner.setExcludes( excludes );
+        scanner.scan();
+        String[] files = scanner.getIncludedFiles();
+        Arrays.sort( files );
+        for ( String path : files )
+        {
+            File file = new File( dir, path );
+            add( path.replace( File.separatorChar, '/' ) ).add( file.length() ).add( file.lastModified() );
+        }
+        return this;
+    }
+
+    /**
+     * Completes the digest, the instance cannot be used afterwards.
+     * @return hex encoded digest
+     */
+    String finish()
+    {
+        return Digests.toHex( digest.digest() );
+    }
+
+    /**
+     * @param file file to hash
+     * @return hex encoded SHA-256 of the file content
+     * @throws IOException when the file cannot be read
+     */
+    static String hash( File file )
+        throws IOException
+    {
+        MessageDigest md = Digests.create( "SHA-256" );
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                md.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return Digests.toHex( md.digest() );
+    }
+
+    /**
+     * @param bytes data to hash
+     * @return hex encoded SHA-256 of the data
+     */
+    static String hash( byte[] bytes )
+    {
+        return Digests.toHex( Digests.create( "SHA-256" ).digest( bytes ) );
+    }
+
+    /**
+     * @param file file written by {@link #store(File, String)}
+     * @return stored value, or null if missing or unreadable
+     */
+    static String load( File file )
+    {
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+        try
+        {
+            return FileUtils.fileRead( file, "UTF-8" );
+        }
+        catch ( IOException ex )
+        {
+            return null;
+        }
+    }
+
+    static void store( File file, String value )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file, "UTF-8", value );
+    }
+}
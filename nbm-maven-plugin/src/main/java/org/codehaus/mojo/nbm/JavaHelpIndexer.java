@@ -0,0 +1,257 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Runs the JavaHelp search indexer in a class loader of its own for every help set.
+ * The indexer keeps state in static fields, which broke repeated runs in the same JVM (MNBMODULE-51)
+ * and made concurrent runs from a parallel reactor build unsafe. With one class loader per run,
+ * modules index their help sets independently of each other.
+ */
+final class JavaHelpIndexer
+{
+
+    static final String INDEXER = "com.sun.java.help.search.Indexer";
+
+    /**
+     * Name of the database folder, also the file name of its schema file, written last by the indexer.
+     */
+    static final String SCHEMA = "SCHEMA";
+
+    static final String SEARCH_DB = "JavaHelpSearch";
+
+    /**
+     * Class path of each indexer class, keyed by class name.
+     */
+    private static final Map<String, URL[]> CLASS_PATHS = new HashMap<String, URL[]>();
+
+    private final String indexer;
+
+    JavaHelpIndexer()
+    {
+        this( INDEXER );
+    }
+
+    /**
+     * @param indexer class with a main method taking the arguments of the JavaHelp indexer
+     */
+    JavaHelpIndexer( String indexer )
+    {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Content hash of the JavaHelp sources, the index and the docs jar only depend on it.
+     * @param sourceDir JavaHelp sources
+     * @param moduleJarName name of the module jar, the help sets are copied to a folder named after it
+     * @return hex encoded fingerprint
+     * @throws IOException when a file cannot be read
+     */
+    static String fingerprint( File sourceDir, String moduleJarName )
+        throws IOException
+    {
+        Fingerprint fp = new Fingerprint().add( "javahelp/1" ).add( moduleJarName );
+        for ( String path : sources( sourceDir ) )
+        {
+            fp.addContent( new File( sourceDir, path ) );
+        }
+        return fp.finish();
+    }
+
+    /**
+     * @return sorted paths of the source files, without version control files like the former Ant copy task
+     */
+    private static String[] sources( File sourceDir )
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( sourceDir );
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        String[] files = scanner.getIncludedFiles();
+        Arrays.sort( files );
+        return files;
+    }
+
+    /**
+     * Copies the JavaHelp sources and indexes the help set in the copy, unless the copy
+     * was made from the same sources by an earlier build.
+     * @param sourceDir JavaHelp sources
+     * @param targetDir copy of the sources, is replaced
+     * @param helpSetDir folder of the help set in the copy, gets the search database
+     * @param fingerprintFile records the sources of the copy
+     * @param fingerprint fingerprint of the sources, see {@link #fingerprint(File, String)}
+     * @return true if the copy was made again, false if it was up to date
+     * @throws IOException when copying or indexing fails
+     */
+    boolean update( File sourceDir, File targetDir, File helpSetDir, File fingerprintFile, String fingerprint )
+        throws IOException
+    {
+        File db = new File( helpSetDir, SEARCH_DB );
+        if ( fingerprint.equals( Fingerprint.load( fingerprintFile ) ) && new File( db, SCHEMA ).isFile() )
+        {
+            return false;
+        }
+        fingerprintFile.delete();
+        FileUtils.deleteDirectory( targetDir );
+        for ( String path : sources( sourceDir ) )
+        {
+            FileUtils.copyFile( new File( sourceDir, path ), new File( targetDir, path ) );
+        }
+        db.mkdirs();
+        index( helpSetDir, db, SEARCH_DB + "/**" );
+        Fingerprint.store( fingerprintFile, fingerprint );
+        return true;
+    }
+
+    /**
+     * Indexes all html files of a help set.
+     * @param baseDir folder of the help set, paths in the database are relative to it
+     * @param db database folder, is replaced
+     * @param excludes ant style patterns of files not to index
+     * @throws IOException when the indexer cannot be found or fails
+     */
+    void index( File baseDir, File db, String... excludes )
+        throws IOException
+    {
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( baseDir );
+        scanner.setIncludes( new String[] { "**/*.html" } );
+        scanner.setExcludes( excludes );
+        scanner.scan();
+
+        FileUtils.deleteDirectory( db );
+        db.mkdirs();
+        File config = File.createTempFile( "jhindexer", ".config" );
+        try
+        {
+            PrintWriter w = new PrintWriter( config, "UTF-8" );
+            try
+            {
+                w.println( "IndexRemove " + baseDir.getAbsolutePath() + File.separator );
+                for ( String path : scanner.getIncludedFiles() )
+                {
+                    w.println( "File " + new File( baseDir, path ).getAbsolutePath() );
+                }
+            }
+            finally
+            {
+                w.close();
+            }
+            run( new String[] { "-c", config.getAbsolutePath(), "-db", db.getAbsolutePath() } );
+        }
+        finally
+        {
+            config.delete();
+        }
+        if ( !new File( db, SCHEMA ).isFile() )
+        {
+            throw new IOException( "The JavaHelp indexer did not create a search database in " + db );
+        }
+    }
+
+    private void run( String[] args )
+        throws IOException
+    {
+        // only the platform classes are shared with the indexer
+        ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        URLClassLoader loader = new URLClassLoader( getClassPath( indexer ), parent );
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader( loader );
+        try
+        {
+            Method main = loader.loadClass( indexer ).getMethod( "main", String[].class );
+            main.invoke( null, new Object[] { args } );
+        }
+        catch ( InvocationTargetException ex )
+        {
+            throw new IOException( "The JavaHelp indexer failed", ex.getCause() );
+        }
+        catch ( ReflectiveOperationException ex )
+        {
+            throw new IOException( "Cannot run the JavaHelp indexer", ex );
+        }
+        finally
+        {
+            thread.setContextClassLoader( original );
+            loader.close();
+        }
+    }
+
+    /**
+     * @return locations of the indexer classes on the class path of this plugin
+     */
+    private static URL[] getClassPath( String indexer )
+        throws IOException
+    {
+        synchronized ( CLASS_PATHS )
+        {
+            URL[] classPath = CLASS_PATHS.get( indexer );
+            if ( classPath == null )
+            {
+                Set<URL> urls = new LinkedHashSet<URL>();
+                ClassLoader plugin = JavaHelpIndexer.class.getClassLoader();
+                // the search engine API is packaged separately in some distributions of JavaHelp
+                for ( String name : new String[] { indexer, "javax.help.search.IndexBuilder" } )
+                {
+                    try
+                    {
+                        CodeSource source = plugin.loadClass( name ).getProtectionDomain().getCodeSource();
+                        if ( source != null && source.getLocation() != null )
+                        {
+                            urls.add( new File( source.getLocation().toURI() ).toURI().toURL() );
+                        }
+                    }
+                    catch ( ClassNotFoundException ex )
+                    {
+                        if ( indexer.equals( name ) )
+                        {
+                            throw new IOException( "The JavaHelp indexer is not on the class path of the plugin", ex );
+                        }
+                    }
+                    catch ( URISyntaxException ex )
+                    {
+                        throw new IOException( ex );
+                    }
+                }
+                if ( urls.isEmpty() )
+                {
+                    throw new IOException( "Cannot locate the classes of the JavaHelp indexer" );
+                }
+                classPath = urls.toArray( new URL[urls.size()] );
+                CLASS_PATHS.put( indexer, classPath );
+            }
+            return classPath;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.ManifestCache;
+
+/**
+ * Examined manifests of dependency jars, shared by all modules of one reactor build.
+ * Each jar is examined at most once, even when several modules ask for it concurrently with {@code -T}.
+ * The returned {@link ExamineManifest} instances are shared and must be treated as read only.
+ * Entries are dropped when the jar's size or timestamp changes, folders are never shared
+ * since reactor modules keep writing their manifests there.
+ */
+public final class ManifestRegistry
+{
+
+    private static final BuildScoped<ConcurrentMap<File, Entry>> SHARED = BuildScoped.concurrentMap();
+
+    private final ConcurrentMap<File, Entry> entries;
+
+    private final ManifestCache manifestCache;
+
+    /**
+     * Registry shared by all mojo executions of the given build.
+     * @param session current session, null gives a private registry
+     * @param manifestCache persistent cache used for jars not examined yet in this build, can be null
+     * @return registry view
+     */
+    public static ManifestRegistry forSession( MavenSession session, ManifestCache manifestCache )
+    {
+        ConcurrentMap<File, Entry> shared = SHARED.get( session );
+        return shared != null ? new ManifestRegistry( shared, manifestCache ) : new ManifestRegistry( manifestCache );
+    }
+
+    /**
+     * Creates a registry not shared with any other execution.
+     * @param manifestCache persistent cache, can be null
+     */
+    public ManifestRegistry( ManifestCache manifestCache )
+    {
+        this( new ConcurrentHashMap<File, Entry>(), manifestCache );
+    }
+
+    private ManifestRegistry( ConcurrentMap<File, Entry> entries, ManifestCache manifestCache )
+    {
+        this.entries = entries;
+        this.manifestCache = manifestCache;
+    }
+
+    public ManifestCache getManifestCache()
+    {
+        return manifestCache;
+    }
+
+    /**
+     * @return number of jars examined so far in this build
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Examines the artifact file, or returns the result of an earlier examination of the same file.
+     * @param file artifact file, jar or folder
+     * @param log logger for a new examination
+     * @return examined manifest
+     * @throws MojoExecutionException when the file cannot be read
+     */
+    public ExamineManifest examine( final File file, final Log log )
+        throws MojoExecutionException
+    {
+        if ( file == null || !file.isFile() )
+        {
+            return doExamine( file, log );
+        }
+        File key = file.getAbsoluteFile();
+        while ( true )
+        {
+            Entry entry = entries.get( key );
+            if ( entry == null )
+            {
+                Entry created = new Entry( key, new Callable<ExamineManifest>()
+                {
+                    public ExamineManifest call()
+                        throws MojoExecutionException
+                    {
+                        return doExamine( file, log );
+                    }
+                } );
+                entry = entries.putIfAbsent( key, created );
+                if ( entry == null )
+                {
+                    entry = created;
+                    entry.task.run();
+                }
+            }
+            else if ( !entry.isCurrent( key ) )
+            {
+                entries.remove( key, entry );
+                continue;
+            }
+            try
+            {
+                return entry.task.get();
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException( "Interrupted while examining " + file, ex );
+            }
+            catch ( ExecutionException ex )
+            {
+                // do not remember failures, the next caller reports them again
+                entries.remove( key, entry );
+                if ( ex.getCause() instanceof MojoExecutionException )
+                {
+                    throw (MojoExecutionException) ex.getCause();
+                }
+                throw new MojoExecutionException( "Could not examine " + file, ex.getCause() );
+            }
+        }
+    }
+
+    private ExamineManifest doExamine( File file, Log log )
+        throws MojoExecutionException
+    {
+        ExamineManifest examinator = new ExamineManifest( log );
+        examinator.setManifestCache( manifestCache );
+        examinator.setArtifactFile( file );
+        examinator.checkFile();
+        return examinator;
+    }
+
+    private static final class Entry
+    {
+        final long length;
+
+        final long modified;
+
+        final FutureTask<ExamineManifest> task;
+
+        Entry( File file, Callable<ExamineManifest> callable )
+        {
+            this.length = file.length();
+            this.modified = file.lastModified();
+            this.task = new FutureTask<ExamineManifest>( callable );
+        }
+
+        boolean isCurrent( File file )
+        {
+            return length == file.length() && modified == file.lastModified();
+        }
+    }
+}
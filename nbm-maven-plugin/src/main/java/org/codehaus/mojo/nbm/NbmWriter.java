@@ -0,0 +1,918 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.netbeans.nbbuild.MakeNBM.Blurb;
+
+/**
+ * Writes an NBM file from the cluster folder of one module, without the <code>makenbm</code> Ant task.
+ * The cluster content goes to <code>netbeans/</code>, the module description generated from the module manifest
+ * to <code>Info/info.xml</code>. Entries are cut into blocks that are compressed in parallel, each with the end
+ * of the previous block as preset dictionary, and written into the archive in a stable order when done, the blocks
+ * of an entry making up one deflate stream. This keeps all threads busy also on one large native library.
+ * Compression only runs a few blocks ahead of the writer, so neither large entries nor clusters of thousands
+ * of files are held in memory. Entries that are archives themselves are stored instead of being compressed
+ * a second time.
+ * Only NetBeans modules without localized module descriptions are supported, see {@link #isSupported(File)}.
+ */
+final class NbmWriter
+{
+
+    private static final int LOC_SIG = 0x04034b50;
+
+    private static final int CEN_SIG = 0x02014b50;
+
+    private static final int EOCD_SIG = 0x06054b50;
+
+    private static final int UTF8_FLAG = 0x0800;
+
+    /**
+     * Entries are read, checksummed and compressed in blocks of this size, so that all threads work
+     * on a large entry like a native library.
+     */
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * Size of the deflate window, each block is compressed with that much of the end of the previous block
+     * as preset dictionary, so splitting costs hardly any compression.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final String[] ARCHIVES = { ".jar", ".zip", ".nbm", ".gz", ".war", ".ear", ".7z", ".xz", ".bz2" };
+
+    /**
+     * Manifest attributes copied to <code>info.xml</code>, the same ones <code>makenbm</code> copies.
+     */
+    private static final Pattern INFO_ATTRIBUTES = Pattern.compile(
+        "OpenIDE-Module(|-(Name|(Specification|Implementation)-Version|(Module|Package|Java|IDE)-Dependencies"
+            + "|(Short|Long)-Description|Display-Category|Provides|Requires|Recommends|Needs|Fragment-Host))"
+            + "|AutoUpdate-(Show-In-Client|Essential-Module)" );
+
+    private static final List<String> LOCALIZED_ATTRIBUTES = Arrays.asList(
+        "OpenIDE-Module-Name", "OpenIDE-Module-Display-Category", "OpenIDE-Module-Short-Description",
+        "OpenIDE-Module-Long-Description" );
+
+    private final File clusterDir;
+
+    private final File moduleJar;
+
+    private String distribution;
+
+    private String homepage;
+
+    private String moduleAuthor;
+
+    private String releaseDate;
+
+    private String targetCluster;
+
+    private boolean needsRestart;
+
+    private String licenseName;
+
+    private String licenseText;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private boolean storeArchives = true;
+
+    private long time = -1;
+
+    /**
+     * @param clusterDir cluster folder of the module
+     * @param moduleJar module jar in the cluster folder
+     */
+    NbmWriter( File clusterDir, File moduleJar )
+    {
+        this.clusterDir = clusterDir;
+        this.moduleJar = moduleJar;
+    }
+
+    /**
+     * Checks whether this writer creates the same module description as the <code>makenbm</code> Ant task.
+     * OSGi bundles and modules with localized jars are left to the Ant task.
+     * @param moduleJar module jar in the cluster folder
+     * @return true if supported
+     * @throws IOException when the module jar cannot be read
+     */
+    static boolean isSupported( File moduleJar )
+        throws IOException
+    {
+        if ( new File( moduleJar.getParentFile(), "locale" ).isDirectory() )
+        {
+            return false;
+        }
+        JarFile jar = new JarFile( moduleJar );
+        try
+        {
+            return jar.getManifest() != null
+                && jar.getManifest().getMainAttributes().getValue( "OpenIDE-Module" ) != null;
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    void setDistribution( String distribution )
+    {
+        this.distribution = distribution;
+    }
+
+    void setHomepage( String homepage )
+    {
+        this.homepage = homepage;
+    }
+
+    void setModuleAuthor( String moduleAuthor )
+    {
+        this.moduleAuthor = moduleAuthor;
+    }
+
+    void setReleaseDate( String releaseDate )
+    {
+        this.releaseDate = releaseDate;
+    }
+
+    void setTargetCluster( String targetCluster )
+    {
+        this.targetCluster = targetCluster;
+    }
+
+    void setNeedsRestart( boolean needsRestart )
+    {
+        this.needsRestart = needsRestart;
+    }
+
+    /**
+     * @param name name of the license, users agree to a license of the same name only once
+     * @param text license text
+     */
+    void setLicense( String name, String text )
+    {
+        this.licenseName = name;
+        this.licenseText = text;
+    }
+
+    /**
+     * Takes name and text from a license of the <code>makenbm</code> task, so that both writers
+     * read license files and name licenses the same way.
+     * @param license license, with text
+     * @throws IOException when the text cannot be read
+     */
+    void setLicense( Blurb license )
+        throws IOException
+    {
+        try
+        {
+            String text = license.getTextNode( DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument() )
+                .getData();
+            setLicense( license.getName(), text );
+        }
+        catch ( ParserConfigurationException ex )
+        {
+            throw new IOException( ex );
+        }
+    }
+
+    /**
+     * @param level deflate level from 0 to 9, or -1 for the default
+     */
+    void setLevel( int level )
+    {
+        if ( level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION )
+        {
+            throw new IllegalArgumentException( "Invalid compression level " + level );
+        }
+        this.level = level;
+    }
+
+    /**
+     * @param threads number of blocks compressed at the same time, 0 for the number of processors
+     */
+    void setThreads( int threads )
+    {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param storeArchives whether jars and other compressed archives are stored without compressing them again
+     */
+    void setStoreArchives( boolean storeArchives )
+    {
+        this.storeArchives = storeArchives;
+    }
+
+    /**
+     * @param time time of all entries, or -1 to use the timestamps of the files
+     */
+    void setTime( long time )
+    {
+        this.time = time;
+    }
+
+    /**
+     * Writes the NBM file.
+     * @param nbmFile target file
+     * @throws ZipException when the NBM would need zip64 extensions
+     * @throws IOException when a file cannot be read or the NBM written
+     */
+    void write( File nbmFile )
+        throws IOException
+    {
+        long now = time >= 0 ? time : System.currentTimeMillis();
+        // sorted by name, folders right before their content
+        Map<String, Object> contents = new TreeMap<String, Object>();
+        contents.put( "Info/info.xml", createInfoXml().getBytes( "UTF-8" ) );
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( clusterDir );
+        scanner.setExcludes( new String[] { "update_tracking/**" } );
+        scanner.scan();
+        for ( String path : scanner.getIncludedFiles() )
+        {
+            contents.put( "netbeans/" + path.replace( File.separatorChar, '/' ), new File( clusterDir, path ) );
+        }
+        for ( String name : new ArrayList<String>( contents.keySet() ) )
+        {
+            for ( int slash = name.indexOf( '/' ); slash > 0; slash = name.indexOf( '/', slash + 1 ) )
+            {
+                contents.put( name.substring( 0, slash + 1 ), null );
+            }
+        }
+        List<String> names = new ArrayList<String>();
+        names.add( "META-INF/" );
+        names.add( JarFile.MANIFEST_NAME );
+        names.addAll( contents.keySet() );
+        contents.put( JarFile.MANIFEST_NAME, "Manifest-Version: 1.0\r\n\r\n".getBytes( "UTF-8" ) );
+        if ( names.size() >= 0xFFFF )
+        {
+            throw new ZipException( "Too many entries for an NBM without zip64: " + names.size() );
+        }
+
+        List<Entry> entries = new ArrayList<Entry>();
+        List<Block> blocks = new ArrayList<Block>();
+        for ( String name : names )
+        {
+            Object content = contents.get( name );
+            long entryTime = time >= 0 || !( content instanceof File ) ? now : ( (File) content ).lastModified();
+            Entry entry = new Entry( name, content, dosTime( entryTime ) );
+            entries.add( entry );
+            if ( content == null )
+            {
+                continue;
+            }
+            entry.size = content instanceof File ? ( (File) content ).length() : ( (byte[]) content ).length;
+            if ( entry.size > 0xFFFFFFFEL )
+            {
+                throw new ZipException( "Entry too large without zip64: " + name );
+            }
+            entry.deflate = level != Deflater.NO_COMPRESSION && !( storeArchives && isArchive( name ) );
+            long offset = 0;
+            do
+            {
+                int length = (int) Math.min( BLOCK_SIZE, entry.size - offset );
+                blocks.add( new Block( entry, offset, length, offset + length == entry.size ) );
+                entry.blocks++;
+                offset += length;
+            }
+            while ( offset < entry.size );
+        }
+        ExecutorService pool = Executors.newFixedThreadPool( Math.max( 1, threads ) );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( nbmFile );
+            try
+            {
+                writeArchive( out.getChannel(), entries, blocks, pool );
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+            try
+            {
+                pool.awaitTermination( 1, TimeUnit.MINUTES );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes the entries in order. Compression runs at most twice as many blocks as threads ahead of the writer,
+     * so that few compressed blocks wait in memory, however many and however large the entries are.
+     * The compressed blocks of an entry form one deflate stream, the local header is written
+     * once all blocks of the entry are done and the checksum and sizes are known.
+     */
+    private void writeArchive( FileChannel channel, List<Entry> entries, List<Block> blocks, ExecutorService pool )
+        throws IOException
+    {
+        ByteArrayOutputStream central = new ByteArrayOutputStream();
+        Queue<Future<Block>> results = new ArrayDeque<Future<Block>>();
+        Iterator<Block> pending = blocks.iterator();
+        int window = 2 * Math.max( 1, threads );
+        long offset = 0;
+        for ( Entry entry : entries )
+        {
+            long dataStart = offset + 30 + entry.name.length;
+            channel.position( dataStart );
+            long crc = 0;
+            long compressedSize = 0;
+            for ( int i = 0; i < entry.blocks; i++ )
+            {
+                while ( results.size() < window && pending.hasNext() )
+                {
+                    results.add( pool.submit( pending.next() ) );
+                }
+                Block block = get( results.remove() );
+                crc = combineCrc( crc, block.crc, block.length );
+                if ( block.deflated != null )
+                {
+                    write( ByteBuffer.wrap( block.deflated ), channel );
+                    compressedSize += block.deflated.length;
+                }
+            }
+            entry.crc = crc;
+            if ( entry.deflate && compressedSize < entry.size )
+            {
+                entry.method = ZipEntry.DEFLATED;
+                entry.compressedSize = compressedSize;
+            }
+            else
+            {
+                // stored, also when compressing did not pay off
+                channel.truncate( dataStart );
+                entry.method = ZipEntry.STORED;
+                entry.compressedSize = entry.size;
+                entry.transferStored( channel );
+            }
+            if ( dataStart + entry.compressedSize > 0xFFFFFFFEL )
+            {
+                throw new ZipException( "NBM file too large without zip64" );
+            }
+            ByteBuffer local = header( 30, entry );
+            local.putInt( LOC_SIG );
+            putCommon( local, entry );
+            local.put( entry.name );
+            local.flip();
+            while ( local.hasRemaining() )
+            {
+                channel.write( local, offset + local.position() );
+            }
+
+            ByteBuffer cen = header( 46, entry );
+            cen.putInt( CEN_SIG ).putShort( (short) 20 );
+            putCommon( cen, entry );
+            cen.putShort( (short) 0 ).putShort( (short) 0 ).putShort( (short) 0 );
+            cen.putInt( entry.isDirectory() ? 0x10 : 0 ).putInt( (int) offset );
+            cen.put( entry.name );
+            central.write( cen.array(), 0, cen.position() );
+
+            offset = dataStart + entry.compressedSize;
+        }
+        channel.position( offset );
+        ByteBuffer eocd = ByteBuffer.allocate( 22 ).order( ByteOrder.LITTLE_ENDIAN );
+        eocd.putInt( EOCD_SIG ).putShort( (short) 0 ).putShort( (short) 0 );
+        eocd.putShort( (short) entries.size() ).putShort( (short) entries.size() );
+        eocd.putInt( central.size() ).putInt( (int) offset ).putShort( (short) 0 );
+        eocd.flip();
+        write( ByteBuffer.wrap( central.toByteArray() ), channel );
+        write( eocd, channel );
+    }
+
+    private static Block get( Future<Block> result )
+        throws IOException
+    {
+        try
+        {
+            return result.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while writing the NBM file" );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof IOException )
+            {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException( ex.getCause() );
+        }
+    }
+
+    /**
+     * CRC-32 of two concatenated pieces from the CRC-32 of each, like <code>crc32_combine</code> of zlib.
+     * @param crc1 checksum of the first piece
+     * @param crc2 checksum of the second piece
+     * @param length2 length of the second piece
+     * @return checksum of both
+     */
+    static long combineCrc( long crc1, long crc2, long length2 )
+    {
+        if ( length2 <= 0 )
+        {
+            return crc1;
+        }
+        // operators for one and two zero bits, squared to shift crc1 by one byte, then by powers of two
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for ( int n = 1; n < 32; n++ )
+        {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare( even, odd );
+        gf2MatrixSquare( odd, even );
+        long crc = crc1;
+        long length = length2;
+        do
+        {
+            gf2MatrixSquare( even, odd );
+            if ( ( length & 1 ) != 0 )
+            {
+                crc = gf2MatrixTimes( even, crc );
+            }
+            length >>= 1;
+            if ( length == 0 )
+            {
+                break;
+            }
+            gf2MatrixSquare( odd, even );
+            if ( ( length & 1 ) != 0 )
+            {
+                crc = gf2MatrixTimes( odd, crc );
+            }
+            length >>= 1;
+        }
+        while ( length != 0 );
+        return crc ^ crc2;
+    }
+
+    private static long gf2MatrixTimes( long[] matrix, long vector )
+    {
+        long sum = 0;
+        long vec = vector;
+        for ( int i = 0; vec != 0; i++, vec >>>= 1 )
+        {
+            if ( ( vec & 1 ) != 0 )
+            {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare( long[] square, long[] matrix )
+    {
+        for ( int n = 0; n < 32; n++ )
+        {
+            square[n] = gf2MatrixTimes( matrix, matrix[n] );
+        }
+    }
+
+    private static ByteBuffer header( int size, Entry entry )
+    {
+        return ByteBuffer.allocate( size + entry.name.length ).order( ByteOrder.LITTLE_ENDIAN );
+    }
+
+    /**
+     * Fields shared by local and central headers, from the version needed to extract to the extra field length.
+     */
+    private static void putCommon( ByteBuffer buffer, Entry entry )
+    {
+        buffer.putShort( (short) ( entry.method == ZipEntry.DEFLATED ? 20 : 10 ) );
+        buffer.putShort( (short) ( entry.utf8 ? UTF8_FLAG : 0 ) ).putShort( (short) entry.method );
+        buffer.putInt( (int) entry.dosTime );
+        buffer.putInt( (int) entry.crc ).putInt( (int) entry.compressedSize ).putInt( (int) entry.size );
+        buffer.putShort( (short) entry.name.length ).putShort( (short) 0 );
+    }
+
+    private static void write( ByteBuffer buffer, FileChannel channel )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+
+    /**
+     * Module description of the NBM, <code>Info/info.xml</code>.
+     * @return the document
+     * @throws IOException when the module jar cannot be read
+     */
+    String createInfoXml()
+        throws IOException
+    {
+        Map<String, String> manifest = new TreeMap<String, String>();
+        JarFile jar = new JarFile( moduleJar );
+        try
+        {
+            if ( jar.getManifest() == null )
+            {
+                throw new IOException( "No manifest in " + moduleJar );
+            }
+            Attributes attributes = jar.getManifest().getMainAttributes();
+            for ( Object key : attributes.keySet() )
+            {
+                String name = key.toString();
+                if ( INFO_ATTRIBUTES.matcher( name ).matches() )
+                {
+                    manifest.put( name, attributes.getValue( name ) );
+                }
+            }
+            String bundle = attributes.getValue( "OpenIDE-Module-Localizing-Bundle" );
+            ZipEntry bundleEntry = bundle == null ? null : jar.getEntry( bundle );
+            if ( bundleEntry != null )
+            {
+                Properties props = new Properties();
+                InputStream in = jar.getInputStream( bundleEntry );
+                try
+                {
+                    props.load( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+                for ( String name : LOCALIZED_ATTRIBUTES )
+                {
+                    if ( props.getProperty( name ) != null )
+                    {
+                        manifest.put( name, props.getProperty( name ) );
+                    }
+                }
+            }
+        }
+        finally
+        {
+            jar.close();
+        }
+        String codeName = manifest.get( "OpenIDE-Module" );
+        if ( codeName == null )
+        {
+            throw new IOException( moduleJar + " is not a NetBeans module" );
+        }
+
+        Map<String, String> module = new TreeMap<String, String>();
+        module.put( "codenamebase", NetBeansManifestUpdateMojo.stripVersionFromCodebaseName( codeName ) );
+        module.put( "homepage", homepage );
+        module.put( "distribution", distribution );
+        module.put( "license", licenseText != null ? licenseName : null );
+        module.put( "downloadsize", "0" );
+        module.put( "needsrestart", Boolean.toString( needsRestart ) );
+        module.put( "moduleauthor", moduleAuthor );
+        module.put( "releasedate", releaseDate );
+        module.put( "targetcluster", targetCluster );
+
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        // the oldest version of the DTD that covers the content, as chosen by makenbm
+        String dtd = "2.3";
+        if ( manifest.containsKey( "AutoUpdate-Show-In-Client" ) || manifest.containsKey( "AutoUpdate-Essential-Module" )
+            || manifest.containsKey( "OpenIDE-Module-Recommends" ) || manifest.containsKey( "OpenIDE-Module-Needs" ) )
+        {
+            dtd = "2.5";
+        }
+        else if ( targetCluster != null && targetCluster.length() > 0 )
+        {
+            dtd = "2.4";
+        }
+        sb.append( "<!DOCTYPE module PUBLIC \"-//NetBeans//DTD Autoupdate Module Info " ).append( dtd )
+            .append( "//EN\" \"http://www.netbeans.org/dtds/autoupdate-info-" ).append( dtd.replace( '.', '_' ) )
+            .append( ".dtd\">\n" );
+        sb.append( "<module" );
+        appendAttributes( sb, module );
+        sb.append( ">\n    <manifest" );
+        appendAttributes( sb, manifest );
+        sb.append( "/>\n" );
+        if ( licenseText != null )
+        {
+            sb.append( "    <license name=\"" ).append( escape( licenseName, true ) ).append( "\">" )
+                .append( escape( licenseText, false ) ).append( "</license>\n" );
+        }
+        sb.append( "</module>\n" );
+        return sb.toString();
+    }
+
+    private static void appendAttributes( StringBuilder sb, Map<String, String> attributes )
+    {
+        for ( Map.Entry<String, String> attribute : attributes.entrySet() )
+        {
+            if ( attribute.getValue() != null )
+            {
+                sb.append( ' ' ).append( attribute.getKey() ).append( "=\"" )
+                    .append( escape( attribute.getValue(), true ) ).append( '"' );
+            }
+        }
+    }
+
+    private static String escape( String value, boolean attribute )
+    {
+        StringBuilder sb = new StringBuilder( value.length() );
+        for ( char c : value.toCharArray() )
+        {
+            switch ( c )
+            {
+                case '&':
+                    sb.append( "&amp;" );
+                    break;
+                case '<':
+                    sb.append( "&lt;" );
+                    break;
+                case '>':
+                    sb.append( "&gt;" );
+                    break;
+                case '"':
+                    sb.append( attribute ? "&quot;" : "\"" );
+                    break;
+                case '\n':
+                case '\r':
+                case '\t':
+                    // kept as is by attribute value normalization only when written as references
+                    sb.append( attribute ? "&#" + (int) c + ";" : String.valueOf( c ) );
+                    break;
+                default:
+                    sb.append( c );
+            }
+        }
+        return sb.toString();
+    }
+
+    static boolean isArchive( String name )
+    {
+        String lower = name.toLowerCase( Locale.ENGLISH );
+        for ( String suffix : ARCHIVES )
+        {
+            if ( lower.endsWith( suffix ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * MS-DOS date and time of an entry. The fields are those of the time in UTC, not in the default time zone,
+     * so that the same <code>outputTimestamp</code> gives the same NBM on every machine.
+     * @param time milliseconds since the epoch
+     * @return DOS date in the upper, DOS time in the lower 16 bits
+     */
+    static long dosTime( long time )
+    {
+        Calendar c = Calendar.getInstance( TimeZone.getTimeZone( "UTC" ), Locale.ENGLISH );
+        c.setTimeInMillis( time );
+        int year = c.get( Calendar.YEAR );
+        if ( year < 1980 )
+        {
+            return ( 1 << 21 ) | ( 1 << 16 );
+        }
+        return ( (long) ( year - 1980 ) << 25 ) | ( ( c.get( Calendar.MONTH ) + 1 ) << 21 )
+            | ( c.get( Calendar.DAY_OF_MONTH ) << 16 ) | ( c.get( Calendar.HOUR_OF_DAY ) << 11 )
+            | ( c.get( Calendar.MINUTE ) << 5 ) | ( c.get( Calendar.SECOND ) >> 1 );
+    }
+
+    /**
+     * Reads one block of an entry, computes its checksum and compresses it.
+     * Blocks other than the last end with a sync flush, so the blocks of an entry concatenated
+     * form one raw deflate stream, as done by pigz.
+     */
+    private final class Block
+        implements Callable<Block>
+    {
+        private final Entry entry;
+
+        private final long offset;
+
+        final int length;
+
+        private final boolean last;
+
+        long crc;
+
+        /**
+         * Null if the entry is stored.
+         */
+        byte[] deflated;
+
+        Block( Entry entry, long offset, int length, boolean last )
+        {
+            this.entry = entry;
+            this.offset = offset;
+            this.length = length;
+            this.last = last;
+        }
+
+        public Block call()
+            throws IOException
+        {
+            int dictionary = entry.deflate ? (int) Math.min( DICTIONARY_SIZE, offset ) : 0;
+            byte[] data;
+            int start;
+            if ( entry.content instanceof byte[] )
+            {
+                data = (byte[]) entry.content;
+                start = (int) offset;
+            }
+            else
+            {
+                data = new byte[dictionary + length];
+                start = dictionary;
+                RandomAccessFile in = new RandomAccessFile( (File) entry.content, "r" );
+                try
+                {
+                    in.seek( offset - dictionary );
+                    in.readFully( data );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update( data, start, length );
+            crc = checksum.getValue();
+            if ( entry.deflate )
+            {
+                deflated = deflate( data, start, dictionary );
+            }
+            return this;
+        }
+
+        private byte[] deflate( byte[] data, int start, int dictionary )
+        {
+            Deflater deflater = new Deflater( level, true );
+            try
+            {
+                if ( dictionary > 0 )
+                {
+                    deflater.setDictionary( data, start - dictionary, dictionary );
+                }
+                deflater.setInput( data, start, length );
+                ByteArrayOutputStream out = new ByteArrayOutputStream( length / 2 + 64 );
+                byte[] buffer = new byte[16 * 1024];
+                if ( last )
+                {
+                    deflater.finish();
+                    while ( !deflater.finished() )
+                    {
+                        out.write( buffer, 0, deflater.deflate( buffer ) );
+                    }
+                }
+                else
+                {
+                    int n;
+                    do
+                    {
+                        n = deflater.deflate( buffer, 0, buffer.length, Deflater.SYNC_FLUSH );
+                        out.write( buffer, 0, n );
+                    }
+                    while ( n == buffer.length );
+                }
+                return out.toByteArray();
+            }
+            finally
+            {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * An entry of the archive.
+     */
+    private static final class Entry
+    {
+        final byte[] name;
+
+        final boolean utf8;
+
+        final long dosTime;
+
+        /**
+         * File, bytes or null for a folder.
+         */
+        final Object content;
+
+        boolean deflate;
+
+        int blocks;
+
+        int method = ZipEntry.STORED;
+
+        long crc;
+
+        long size;
+
+        long compressedSize;
+
+        Entry( String name, Object content, long dosTime )
+            throws IOException
+        {
+            this.name = name.getBytes( "UTF-8" );
+            this.utf8 = this.name.length != name.length();
+            this.content = content;
+            this.dosTime = dosTime;
+        }
+
+        boolean isDirectory()
+        {
+            return name.length > 0 && name[name.length - 1] == '/';
+        }
+
+        void transferStored( FileChannel channel )
+            throws IOException
+        {
+            if ( content instanceof byte[] )
+            {
+                write( ByteBuffer.wrap( (byte[]) content ), channel );
+            }
+            else if ( content instanceof File )
+            {
+                FileInputStream in = new FileInputStream( (File) content );
+                try
+                {
+                    FileChannel from = in.getChannel();
+                    long position = 0;
+                    while ( position < size )
+                    {
+                        long n = from.transferTo( position, size - position, channel );
+                        if ( n <= 0 )
+                        {
+                            throw new IOException( "Unexpected end of " + content );
+                        }
+                        position += n;
+                    }
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+    }
+}
@@ -16,26 +16,23 @@
  */
 package org.codehaus.mojo.nbm;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.net.URL;
 import java.text.BreakIterator;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TimeZone;
-import java.util.regex.Pattern;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
@@ -43,6 +40,7 @@ import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactCollector;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -51,8 +49,6 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.codehaus.mojo.nbm.model.Dependency;
 import org.codehaus.mojo.nbm.model.NetBeansModule;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.shared.dependency.analyzer.DefaultClassAnalyzer;
-import org.apache.maven.shared.dependency.analyzer.asm.ASMDependencyAnalyzer;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
 import org.apache.tools.ant.taskdefs.Manifest;
@@ -80,6 +76,12 @@ import org.codehaus.plexus.util.IOUtil;
    </plugin>
  * }
  * </pre>
+ * <p>
+ * The goal records a fingerprint of its inputs in <code>target/nbm-verify/manifest.inputs</code>.
+ * When neither the plugin version, the source manifest, the configuration, the resolved dependencies
+ * nor the compiled classes changed since the last build, the manifest is left untouched and the runtime verification is skipped.
+ * An unchanged manifest content is never rewritten.
+ * </p>
  *
  * @author <a href="mailto:mkleint@codehaus.org">Milos Kleint</a>
  */
@@ -149,6 +151,23 @@ public class NetBeansManifestUpdateMojo
      */
     @Parameter(property="maven.nbm.verify", defaultValue="fail")
     private String verifyRuntime;
+
+    /**
+     * Leave the runtime verification to the <code>verify</code> goal executed later in the same build,
+     * which checks all modules of the reactor together, for example
+     * <code>mvn package nbm:verify -Dmaven.nbm.deferVerification=true</code>.
+     * The <code>verifyRuntime</code> parameter still decides whether problems fail the build.
+     *
+     * @since 4.2
+     */
+    @Parameter(property="maven.nbm.deferVerification", defaultValue="false")
+    private boolean deferVerification;
+
+    /**
+     * This plugin, a manifest generated by another version of it is not up to date.
+     */
+    @Parameter(defaultValue="${plugin}", readonly=true)
+    private PluginDescriptor plugin;
     
     private static final String FAIL = "fail";
     private static final String WARN = "warn";
@@ -328,6 +347,23 @@ public class NetBeansManifestUpdateMojo
             //deprecated, but if actually defined, will use it.
             specialManifest = nbmManifest;
         }
+        File inputsFile = new File( project.getBuild().getDirectory(), "nbm-verify/manifest.inputs" );
+        String inputs;
+        try
+        {
+            inputs = manifestInputs( specialManifest, mtype, moduleName );
+            if ( isManifestUpToDate( inputsFile, inputs ) )
+            {
+                // the nbm goal copies the libraries classified here
+                classifyDependencies( module );
+                getLog().info( "NBM Plugin manifest is up to date" );
+                return;
+            }
+        }
+        catch ( IOException ex )
+        {
+            throw new MojoExecutionException( "Error while checking manifest inputs", ex );
+        }
         ExamineManifest examinator = new ExamineManifest( getLog() );
         if ( specialManifest != null && specialManifest.exists() )
         {
@@ -369,7 +405,7 @@ public class NetBeansManifestUpdateMojo
         {
             manifest = new Manifest();
         }
-        Date date = new Date();
+        Date date = getBuildDate();
         String specVersion = AdaptNbVersion.adaptVersion( project.getVersion(),
             AdaptNbVersion.TYPE_SPECIFICATION, date );
         String implVersion = AdaptNbVersion.adaptVersion( project.getVersion(),
@@ -444,13 +480,10 @@ public class NetBeansManifestUpdateMojo
         }
         getLog().debug( "module =" + module );
         
-            DependencyNode treeroot = createDependencyTree( project, dependencyGraphBuilder, "compile" );
-            Map<Artifact, ExamineManifest> examinerCache = new HashMap<Artifact, ExamineManifest>();
-            @SuppressWarnings( "unchecked" )
-            List<Artifact> libArtifacts = getLibraryArtifacts( treeroot, module, project.getRuntimeArtifacts(),
-                examinerCache, getLog(), useOSGiDependencies );
-            List<ModuleWrapper> moduleArtifacts = getModuleDependencyArtifacts( treeroot, module, moduleDependencies, project, examinerCache,
-                libArtifacts, getLog(), useOSGiDependencies );
+            DependencyClassification classification = classifyDependencies( module );
+            Map<Artifact, ExamineManifest> examinerCache = classification.getExaminerCache();
+            List<Artifact> libArtifacts = classification.getLibraries();
+            List<ModuleWrapper> moduleArtifacts = classification.getModules();
             StringBuilder classPath = new StringBuilder();
             StringBuilder mavenClassPath = new StringBuilder();
             String dependencies = "";
@@ -527,16 +560,13 @@ public class NetBeansManifestUpdateMojo
                     depSeparator = ", ";
                 }
             }
+            boolean verified = true;
+            RuntimeVerifier.Module verification = null;
             if ( !verifyRuntime.equalsIgnoreCase( SKIP ) )
             {
-                try
-                {
-                    checkModuleClassPath( treeroot, libArtifacts, examinerCache, moduleArtifacts, projectCNB );
-                }
-                catch ( IOException ex )
-                {
-                    throw new MojoExecutionException( "Error while checking runtime dependencies", ex );
-                }
+                verification = new RuntimeVerifier.Module( project, classification,
+                    projectCNB, verifyRuntime.equalsIgnoreCase( FAIL ), useOSGiDependencies );
+                verified = verifyRuntimeDependencies( verification );
             }
 
             if ( nbmJavahelpSource.exists() )
@@ -567,27 +597,169 @@ public class NetBeansManifestUpdateMojo
 //                getLog().warn(
 //                        "Some libraries could not be found in the dependency chain: " + list );
 //            }
-        PrintWriter writer = null;
         try
         {
-            if ( !targetManifestFile.exists() )
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            PrintWriter writer = new PrintWriter( new OutputStreamWriter( content, "UTF-8" ) ); //TODO really UTF-8??
+            manifest.write( writer );
+            writer.close();
+            String contentHash = Fingerprint.hash( content.toByteArray() );
+            if ( targetManifestFile.isFile() && contentHash.equals( Fingerprint.hash( targetManifestFile ) ) )
+            {
+                // keep the timestamp, so that jar packaging does not consider the module changed
+                getLog().debug( "Manifest content unchanged, not rewriting " + targetManifestFile );
+            }
+            else
             {
                 targetManifestFile.getParentFile().mkdirs();
-                targetManifestFile.createNewFile();
+                OutputStream out = new FileOutputStream( targetManifestFile );
+                try
+                {
+                    content.writeTo( out );
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                }
             }
-            writer = new PrintWriter( targetManifestFile, "UTF-8" ); //TODO really UTF-8??
-            manifest.write( writer );
+            recordVerification( verification, verified, inputsFile, inputs + "\n" + contentHash );
         }
         catch ( IOException ex )
         {
             throw new MojoExecutionException( ex.getMessage(), ex );
         }
-        finally
+        logManifestCacheStatistics();
+    }
+
+    /**
+     * Classifies the dependencies of the project and registers the result for the later goals of the build.
+     * @param module module descriptor
+     * @return the classification
+     * @throws MojoExecutionException when the dependencies cannot be resolved or examined
+     */
+    private DependencyClassification classifyDependencies( NetBeansModule module )
+        throws MojoExecutionException
+    {
+        DependencyNode treeroot = createDependencyTree( project, dependencyGraphBuilder, "compile" );
+        @SuppressWarnings( "unchecked" )
+        DependencyClassification classification = DependencyClassification.classify( treeroot, module,
+            moduleDependencies, project.getRuntimeArtifacts(), project.getCompileArtifacts(),
+            new HashMap<Artifact, ExamineManifest>(), getManifestRegistry(), getLog(), useOSGiDependencies );
+        DependencyClassification.register( project, classification );
+        return classification;
+    }
+
+    /**
+     * Checks the runtime dependencies of the module right away, or leaves them to the verify goal
+     * when the verification is deferred.
+     * @param verification inputs of the check
+     * @return true if the module was checked and no problems were reported
+     * @throws MojoExecutionException when the classes cannot be read
+     * @throws MojoFailureException when problems were found and the module fails on them
+     */
+    boolean verifyRuntimeDependencies( RuntimeVerifier.Module verification )
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( deferVerification )
+        {
+            getLog().info( "Runtime verification deferred to the verify goal" );
+            return false;
+        }
+        ClassInventoryCache inventoryCache = getClassInventoryCache();
+        RuntimeVerifier verifier = new RuntimeVerifier( ClassInventory.forSession( session, inventoryCache ) );
+        try
+        {
+            boolean verified = verifier.verify( verification, getLog() );
+            if ( inventoryCache != null )
+            {
+                getLog().debug( inventoryCache.toString() );
+            }
+            return verified;
+        }
+        catch ( IOException ex )
         {
-            IOUtil.close( writer );
+            throw new MojoExecutionException( "Error while checking runtime dependencies", ex );
         }
     }
 
+    /**
+     * Stores the inputs of a module that passed the verification, so that the next build can skip it,
+     * and hands a deferred check to the verify goal, which stores them once the module passed.
+     * @param verification inputs of the check, null if the verification is skipped
+     * @param verified whether the module passed
+     * @param inputsFile up-to-date marker of the goal
+     * @param inputs inputs of the goal
+     * @throws IOException when the marker cannot be written
+     */
+    void recordVerification( RuntimeVerifier.Module verification, boolean verified, File inputsFile, String inputs )
+        throws IOException
+    {
+        if ( verified )
+        {
+            Fingerprint.store( inputsFile, inputs );
+        }
+        else
+        {
+            // reported problems shall be reported again by the next build
+            inputsFile.delete();
+        }
+        if ( verification != null && deferVerification )
+        {
+            verification.inputsFile = inputsFile;
+            verification.inputs = inputs;
+            RuntimeVerifier.defer( session, verification );
+        }
+    }
+
+    /**
+     * Fingerprint of everything the generated manifest and the runtime verification depend on.
+     */
+    private String manifestInputs( File specialManifest, String mtype, String moduleName )
+        throws IOException, MojoExecutionException
+    {
+        Fingerprint fp = new Fingerprint();
+        fp.add( "manifest/1" ).add( plugin != null ? plugin.getVersion() : null );
+        fp.addContent( specialManifest );
+        fp.addContent( descriptor );
+        fp.add( project.getId() ).add( project.getName() ).add( project.getDescription() );
+        fp.add( mtype ).add( moduleName ).add( codeNameBase ).add( verifyRuntime ).add( useOSGiDependencies );
+        fp.add( deferVerification );
+        fp.add( String.valueOf( publicPackages ) );
+        if ( moduleDependencies != null )
+        {
+            for ( Dependency dep : moduleDependencies )
+            {
+                fp.add( dep.getId() ).add( dep.getType() ).add( dep.getExplicitValue() );
+            }
+        }
+        fp.add( nbmJavahelpSource.exists() );
+        fp.add( isReproducible() ? Long.toString( getBuildDate().getTime() ) : null );
+        for ( Artifact a : project.getArtifacts() )
+        {
+            fp.add( a.getId() ).add( a.getScope() ).add( a.isOptional() ).add( String.valueOf( a.getDependencyTrail() ) );
+            File file = a.getFile();
+            if ( file != null && file.isDirectory() )
+            {
+                // reactor module that was not packaged yet
+                fp.addTree( file, new String[] { "**/*.class", "META-INF/MANIFEST.MF" }, null );
+            }
+            else
+            {
+                fp.addFile( file );
+            }
+        }
+        fp.addTree( new File( project.getBuild().getOutputDirectory() ), new String[] { "**/*.class" }, null );
+        return fp.finish();
+    }
+
+    private boolean isManifestUpToDate( File inputsFile, String inputs )
+        throws IOException
+    {
+        String stored = Fingerprint.load( inputsFile );
+        return stored != null && targetManifestFile.isFile()
+            && stored.equals( inputs + "\n" + Fingerprint.hash( targetManifestFile ) );
+    }
+
     //MNBMODULE-137
     static String artifactToClassPathEntry( Artifact a, String codenamebase )
     {
@@ -660,267 +832,4 @@ public class NetBeansManifestUpdateMojo
         return paragraph.substring( 0, breaker.following( 0 ) ).trim();
     }
 
-//----------------------------------------------------------------------------------
-// classpat checking related.
-//----------------------------------------------------------------------------------
-    private void checkModuleClassPath( DependencyNode treeroot,
-        List<Artifact> libArtifacts,
-        Map<Artifact, ExamineManifest> examinerCache, List<ModuleWrapper> moduleArtifacts, String projectCodeNameBase )
-        throws IOException, MojoExecutionException, MojoFailureException
-    {
-        Set<String> deps = buildProjectDependencyClasses( project, libArtifacts );
-        deps.retainAll( allProjectClasses( project ) );
-
-        Set<String> own = projectModuleOwnClasses( project, libArtifacts );
-        deps.removeAll( own );
-        CollectModuleLibrariesNodeVisitor visitor = new CollectModuleLibrariesNodeVisitor(
-            project.getRuntimeArtifacts(), examinerCache, getLog(), treeroot, useOSGiDependencies );
-        treeroot.accept( visitor );
-        Map<String, List<Artifact>> modules = visitor.getDeclaredArtifacts();
-        Map<Artifact, Set<String>> moduleAllClasses = new HashMap<Artifact, Set<String>>();
-
-        for ( ModuleWrapper wr : moduleArtifacts )
-        {
-            if ( modules.containsKey( wr.artifact.getDependencyConflictId() ) )
-            {
-                ExamineManifest man = examinerCache.get( wr.artifact );
-                List<Artifact> arts = modules.get( wr.artifact.getDependencyConflictId() );
-                Set<String>[] classes = visibleModuleClasses( arts, man, wr.dependency, projectCodeNameBase, false );
-                deps.removeAll( classes[0] );
-                moduleAllClasses.put( wr.artifact, classes[1] );
-            }
-        }
-
-        //now we have the classes that are not in public packages of declared modules,
-        //but are being used
-        if ( !deps.isEmpty() )
-        {
-            Map<String, List<Artifact>> transmodules = visitor.getTransitiveArtifacts();
-            for ( ModuleWrapper wr : moduleArtifacts )
-            {
-                if ( transmodules.containsKey( wr.artifact.getDependencyConflictId() ) )
-                {
-                    ExamineManifest man = examinerCache.get( wr.artifact );
-                    List<Artifact> arts = transmodules.get( wr.artifact.getDependencyConflictId() );
-                    Set<String>[] classes = visibleModuleClasses( arts, man, wr.dependency, projectCodeNameBase, true );
-                    classes[0].retainAll( deps );
-                    if ( classes[0].size() > 0 )
-                    {
-                        String module = wr.osgi ? "OSGi bundle" : "module";
-                        getLog().error(
-                            "Project uses classes from transitive " + module + " " + wr.artifact.getId() + " which will not be accessible at runtime." );
-                        getLog().info( "    To fix the problem, add this module as direct dependency. For OSGi bundles that are supposed to be wrapped in NetBeans modules, use the useOSGiDependencies=false parameter");
-                        deps.removeAll( classes[0] );
-                    }
-                    classes[1].retainAll( deps );
-                    if ( classes[1].size() > 0 )
-                    {
-                        getLog().info( "Private classes referenced in transitive module: " + Arrays.toString( classes[1].toArray() ) );
-                        getLog().error(
-                            "Project depends on packages not accessible at runtime in transitive module " + wr.artifact.getId() + " which will not be accessible at runtime." );
-                        deps.removeAll( classes[1] );
-                    }
-                }
-            }
-            for ( Map.Entry<Artifact, Set<String>> e : moduleAllClasses.entrySet() )
-            {
-                List<String> strs = new ArrayList<String>( deps );
-                if ( deps.removeAll( e.getValue() ) )
-                {
-                    strs.retainAll( e.getValue() );
-                    getLog().info( "Private classes referenced in module: " + Arrays.toString( strs.toArray() ) );
-                    getLog().error( "Project depends on packages not accessible at runtime in module " + e.getKey().getId() );
-                }
-            }
-            if ( verifyRuntime.equalsIgnoreCase( FAIL ) )
-            {
-                if ( !deps.isEmpty() )
-                {
-                    throw new MojoFailureException( "Uncategorized problems with NetBeans dependency verification (maybe MNBMODULE-102 or wrong maven dependency metadata). Supposedly external classes are used in the project's binaries but the classes are not found on classpath. Class usages: " + deps );
-                }
-                else
-                {
-                    throw new MojoFailureException( "See above for failures in runtime NetBeans dependencies verification." );
-                }
-            }
-        }
-    }
-
-    /**
-     * The current projects's dependencies, includes classes used in teh module itself
-     * and the classpath libraries as well.
-     * @param project
-     * @param libraries
-     * @return
-     * @throws java.io.IOException
-     */
-    private Set<String> buildProjectDependencyClasses( MavenProject project, List<Artifact> libraries )
-        throws IOException
-    {
-        Set<String> dependencyClasses = new HashSet<String>();
-
-        String outputDirectory = project.getBuild().getOutputDirectory();
-        dependencyClasses.addAll( buildDependencyClasses( outputDirectory ) );
-
-        for ( Artifact lib : libraries )
-        {
-            dependencyClasses.addAll( buildDependencyClasses( lib.getFile().getAbsolutePath() ) );
-        }
-        return dependencyClasses;
-    }
-
-    @SuppressWarnings( "unchecked" )
-    private Set<String> projectModuleOwnClasses( MavenProject project, List<Artifact> libraries )
-        throws IOException
-    {
-        Set<String> projectClasses = new HashSet<String>();
-        DefaultClassAnalyzer analyzer = new DefaultClassAnalyzer();
-
-        String outputDirectory = project.getBuild().getOutputDirectory();
-        URL fl = new File( outputDirectory ).toURI().toURL();
-        projectClasses.addAll( analyzer.analyze( fl ) );
-
-        for ( Artifact lib : libraries )
-        {
-            URL url = lib.getFile().toURI().toURL();
-            projectClasses.addAll( analyzer.analyze( url ) );
-        }
-
-        return projectClasses;
-    }
-
-    /**
-     * complete list of classes on project runtime classpath (excluding
-     * jdk bit)
-     * @param project
-     * @return
-     * @throws java.io.IOException
-     */
-    @SuppressWarnings( "unchecked" )
-    private Set<String> allProjectClasses( MavenProject project )
-        throws IOException
-    {
-        Set<String> projectClasses = new HashSet<String>();
-        DefaultClassAnalyzer analyzer = new DefaultClassAnalyzer();
-
-        String outputDirectory = project.getBuild().getOutputDirectory();
-        URL fl = new File( outputDirectory ).toURI().toURL();
-        projectClasses.addAll( analyzer.analyze( fl ) );
-
-        List<Artifact> libs = project.getRuntimeArtifacts();
-
-        for ( Artifact lib : libs )
-        {
-            URL url = lib.getFile().toURI().toURL();
-            projectClasses.addAll( analyzer.analyze( url ) );
-        }
-
-        return projectClasses;
-    }
-
-    private Set<String>[] visibleModuleClasses( List<Artifact> moduleLibraries,
-        ExamineManifest manifest, Dependency dep, String projectCodeNameBase,
-        boolean transitive)
-        throws IOException, MojoFailureException
-    {
-        Set<String> moduleClasses = new HashSet<String>();
-        Set<String> visibleModuleClasses = new HashSet<String>();
-        DefaultClassAnalyzer analyzer = new DefaultClassAnalyzer();
-        String type = dep.getType();
-        if ( dep.getExplicitValue() != null )
-        {
-            if ( dep.getExplicitValue().contains( "=" ) )
-            {
-                type = "impl";
-            }
-        }
-        if ( type == null || "loose".equals( type ) )
-        {
-            type = "spec";
-        }
-
-        for ( Artifact lib : moduleLibraries )
-        {
-            URL url = lib.getFile().toURI().toURL();
-            moduleClasses.addAll( analyzer.analyze( url ) );
-        }
-
-        if ( "spec".equals( type ) )
-        {
-            String cnb = stripVersionFromCodebaseName( projectCodeNameBase );
-            if ( !transitive && manifest.hasFriendPackages() && !manifest.getFriends().contains( cnb ) )
-            {
-                String message = "Module has friend dependency on " + manifest.getModule() + " but is not listed as a friend.";
-                if ( verifyRuntime.equalsIgnoreCase( FAIL ) )
-                {
-                    throw new MojoFailureException( message );
-                }
-                else
-                {
-                    getLog().warn( message );
-                }
-            }
-            List<Pattern> compiled = createCompiledPatternList( manifest.getPackages() );
-            if ( useOSGiDependencies && manifest.isOsgiBundle() )
-            {
-                // TODO how to extract the public packages in osgi bundles easily..
-                compiled = Collections.singletonList( Pattern.compile( "(.+)" ) );
-            }
-            for ( String clazz : moduleClasses )
-            {
-                for ( Pattern patt : compiled )
-                {
-                    if ( patt.matcher( clazz ).matches() ) 
-                    {
-                        visibleModuleClasses.add( clazz );
-                        break;
-                    }
-                }
-            }
-
-        }
-        else if ( "impl".equals( type ) )
-        {
-            visibleModuleClasses.addAll( moduleClasses );
-        }
-        else
-        {
-            //HUH?
-            throw new MojoFailureException( "Wrong type of module dependency " + type );
-        }
-
-        return new Set[]
-            {
-                visibleModuleClasses,
-                moduleClasses
-            };
-    }
-
-    static List<Pattern> createCompiledPatternList( List<String> packages )
-    {
-        List<Pattern> toRet = new ArrayList<Pattern>();
-        for ( String token : packages )
-        {
-            if ( token.endsWith( ".**" ) )
-            {
-                String patt = "^" + Pattern.quote( token.substring( 0, token.length() - 2 ) ) + "(.+)";
-                toRet.add( 0, Pattern.compile( patt ) );
-            }
-            else
-            {
-                String patt = "^" + Pattern.quote( token.substring( 0, token.length() - 1 ) ) + "([^\\.]+)";
-                toRet.add( Pattern.compile( patt ) );
-            }
-        }
-        return toRet;
-    }
-
-    @SuppressWarnings( "unchecked" )
-    private Set<String> buildDependencyClasses( String path )
-        throws IOException
-    {
-        URL url = new File( path ).toURI().toURL();
-        ASMDependencyAnalyzer dependencyAnalyzer = new ASMDependencyAnalyzer();
-        return dependencyAnalyzer.analyze( url );
-    }
 }
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.nbm.model.Dependency;
+import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.mojo.nbm.utils.PackageMatcher;
+
+/**
+ * Runtime verification of a module, checks that the classes used by the module and its libraries
+ * are either part of the module or in accessible packages of the modules it declares a dependency on.
+ * One verifier can check any number of modules, also concurrently, sharing its class inventory.
+ * The manifest goal either verifies its module right away or defers the check
+ * to the {@link VerifyMojo verify} goal of the same build.
+ */
+final class RuntimeVerifier
+{
+
+    /**
+     * Modules registered by the manifest goal for the verify goal, in the order they were registered.
+     */
+    private static final BuildScoped<List<Module>> DEFERRED = new BuildScoped<List<Module>>()
+    {
+        @Override
+        protected List<Module> create()
+        {
+            return Collections.synchronizedList( new ArrayList<Module>() );
+        }
+    };
+
+    private final ClassInventory inventory;
+
+    private final ClassUniverse universe;
+
+    /**
+     * @param inventory classes of jars and folders
+     */
+    RuntimeVerifier( ClassInventory inventory )
+    {
+        this.inventory = inventory;
+        this.universe = inventory.getUniverse();
+    }
+
+    /**
+     * Remembers a module to be checked later by the verify goal.
+     * @param session current session
+     * @param module module to check
+     */
+    static void defer( MavenSession session, Module module )
+    {
+        DEFERRED.get( session ).add( module );
+    }
+
+    /**
+     * Removes the deferred checks of the build.
+     * @param session current session
+     * @return deferred modules in the order they were registered
+     */
+    static List<Module> takeDeferred( MavenSession session )
+    {
+        List<Module> modules = DEFERRED.remove( session );
+        if ( modules == null )
+        {
+            return new ArrayList<Module>();
+        }
+        synchronized ( modules )
+        {
+            return new ArrayList<Module>( modules );
+        }
+    }
+
+    /**
+     * Checks the classpath of one module.
+     * @param module module to check
+     * @param log where to report problems
+     * @return true if no problems were reported
+     * @throws IOException when classes cannot be read
+     * @throws MojoExecutionException when dependency manifests cannot be examined
+     * @throws MojoFailureException when problems were found and the module fails on them
+     */
+    boolean verify( Module module, Log log )
+        throws IOException, MojoExecutionException, MojoFailureException
+    {
+        return new Check( module, log ).run();
+    }
+
+    /**
+     * Inputs of the runtime verification of one module, as computed by the manifest goal.
+     */
+    static final class Module
+    {
+        final MavenProject project;
+
+        final DependencyClassification dependencies;
+
+        final String codeNameBase;
+
+        final boolean failOnError;
+
+        final boolean useOSGiDependencies;
+
+        /**
+         * Up-to-date marker of the manifest goal, written by a deferred check that reported no problems.
+         */
+        File inputsFile;
+
+        String inputs;
+
+        Module( MavenProject project, DependencyClassification dependencies, String codeNameBase,
+                boolean failOnError, boolean useOSGiDependencies )
+        {
+            this.project = project;
+            this.dependencies = dependencies;
+            this.codeNameBase = codeNameBase;
+            this.failOnError = failOnError;
+            this.useOSGiDependencies = useOSGiDependencies;
+        }
+    }
+
+    private final class Check
+    {
+        private final Module module;
+
+        private final Log log;
+
+        /**
+         * Set when the check only warned about a friend dependency.
+         */
+        private boolean friendWarnings;
+
+        Check( Module module, Log log )
+        {
+            this.module = module;
+            this.log = log;
+        }
+
+        boolean run()
+            throws IOException, MojoExecutionException, MojoFailureException
+        {
+            MavenProject project = module.project;
+            ClassDependencyCache cache =
+                new ClassDependencyCache( new File( project.getBuild().getDirectory(), "nbm-verify/classes.cache" ) );
+            ClassInventory.Classes outputClasses =
+                cache.analyze( new File( project.getBuild().getOutputDirectory() ), universe );
+            log.debug( "Runtime verification analyzed " + cache.getAnalyzed() + " changed class files, reused "
+                + cache.getReused() );
+            DependencyClassification dependencies = module.dependencies;
+            BitSet deps = buildProjectDependencyClasses( outputClasses, dependencies.getLibraries() );
+            deps.and( allProjectClasses( outputClasses ) );
+
+            BitSet own = projectModuleOwnClasses( outputClasses, dependencies.getLibraries() );
+            deps.andNot( own );
+            Map<String, List<Artifact>> modules = dependencies.getDeclaredModules();
+            Map<Artifact, BitSet> moduleAllClasses = new HashMap<Artifact, BitSet>();
+
+            for ( AbstractNbmMojo.ModuleWrapper wr : dependencies.getModules() )
+            {
+                List<Artifact> arts = modules.get( wr.artifact.getDependencyConflictId() );
+                if ( arts != null )
+                {
+                    ExamineManifest man = dependencies.getExaminerCache().get( wr.artifact );
+                    BitSet[] classes = visibleModuleClasses( arts, man, wr.dependency, false );
+                    deps.andNot( classes[0] );
+                    moduleAllClasses.put( wr.artifact, classes[1] );
+                }
+            }
+
+            //now we have the classes that are not in public packages of declared modules,
+            //but are being used
+            if ( !deps.isEmpty() )
+            {
+                Map<String, List<Artifact>> transmodules = dependencies.getTransitiveModules();
+                for ( AbstractNbmMojo.ModuleWrapper wr : dependencies.getModules() )
+                {
+                    List<Artifact> arts = transmodules.get( wr.artifact.getDependencyConflictId() );
+                    if ( arts != null )
+                    {
+                        ExamineManifest man = dependencies.getExaminerCache().get( wr.artifact );
+                        BitSet[] classes = visibleModuleClasses( arts, man, wr.dependency, true );
+                        classes[0].and( deps );
+                        if ( !classes[0].isEmpty() )
+                        {
+                            String kind = wr.osgi ? "OSGi bundle" : "module";
+                            log.error(
+                                "Project uses classes from transitive " + kind + " " + wr.artifact.getId() + " which will not be accessible at runtime." );
+                            log.info( "    To fix the problem, add this module as direct dependency. For OSGi bundles that are supposed to be wrapped in NetBeans modules, use the useOSGiDependencies=false parameter");
+                            deps.andNot( classes[0] );
+                        }
+                        classes[1].and( deps );
+                        if ( !classes[1].isEmpty() )
+                        {
+                            log.info( "Private classes referenced in transitive module: " + universe.names( classes[1] ) );
+                            log.error(
+                                "Project depends on packages not accessible at runtime in transitive module " + wr.artifact.getId() + " which will not be accessible at runtime." );
+                            deps.andNot( classes[1] );
+                        }
+                    }
+                }
+                for ( Map.Entry<Artifact, BitSet> e : moduleAllClasses.entrySet() )
+                {
+                    BitSet used = (BitSet) deps.clone();
+                    used.and( e.getValue() );
+                    if ( !used.isEmpty() )
+                    {
+                        deps.andNot( used );
+                        log.info( "Private classes referenced in module: " + universe.names( used ) );
+                        log.error( "Project depends on packages not accessible at runtime in module " + e.getKey().getId() );
+                    }
+                }
+                if ( module.failOnError )
+                {
+                    if ( !deps.isEmpty() )
+                    {
+                        throw new MojoFailureException( "Uncategorized problems with NetBeans dependency verification (maybe MNBMODULE-102 or wrong maven dependency metadata). Supposedly external classes are used in the project's binaries but the classes are not found on classpath. Class usages: " + universe.names( deps ) );
+                    }
+                    else
+                    {
+                        throw new MojoFailureException( "See above for failures in runtime NetBeans dependencies verification." );
+                    }
+                }
+                return false;
+            }
+            return !friendWarnings;
+        }
+
+        /**
+         * The current projects's dependencies, includes classes used in teh module itself
+         * and the classpath libraries as well.
+         */
+        private BitSet buildProjectDependencyClasses( ClassInventory.Classes outputClasses, List<Artifact> libraries )
+            throws IOException
+        {
+            BitSet dependencyClasses = new BitSet();
+
+            dependencyClasses.or( outputClasses.referenced );
+
+            for ( Artifact lib : libraries )
+            {
+                dependencyClasses.or( inventory.getClasses( lib.getFile() ).referenced );
+            }
+            return dependencyClasses;
+        }
+
+        private BitSet projectModuleOwnClasses( ClassInventory.Classes outputClasses, List<Artifact> libraries )
+            throws IOException
+        {
+            BitSet projectClasses = new BitSet();
+
+            projectClasses.or( outputClasses.defined );
+
+            for ( Artifact lib : libraries )
+            {
+                projectClasses.or( inventory.getDefinedClasses( lib.getFile() ) );
+            }
+
+            return projectClasses;
+        }
+
+        /**
+         * complete list of classes on project runtime classpath (excluding
+         * jdk bit)
+         */
+        private BitSet allProjectClasses( ClassInventory.Classes outputClasses )
+            throws IOException
+        {
+            BitSet projectClasses = new BitSet();
+
+            projectClasses.or( outputClasses.defined );
+
+            List<Artifact> libs = module.project.getRuntimeArtifacts();
+
+            for ( Artifact lib : libs )
+            {
+                projectClasses.or( inventory.getDefinedClasses( lib.getFile() ) );
+            }
+
+            return projectClasses;
+        }
+
+        private BitSet[] visibleModuleClasses( List<Artifact> moduleLibraries,
+            ExamineManifest manifest, Dependency dep, boolean transitive )
+            throws IOException, MojoFailureException
+        {
+            BitSet moduleClasses = new BitSet();
+            BitSet visibleModuleClasses = new BitSet();
+            String type = dep.getType();
+            if ( dep.getExplicitValue() != null )
+            {
+                if ( dep.getExplicitValue().contains( "=" ) )
+                {
+                    type = "impl";
+                }
+            }
+            if ( type == null || "loose".equals( type ) )
+            {
+                type = "spec";
+            }
+
+            for ( Artifact lib : moduleLibraries )
+            {
+                moduleClasses.or( inventory.getDefinedClasses( lib.getFile() ) );
+            }
+
+            if ( "spec".equals( type ) )
+            {
+                String cnb = NetBeansManifestUpdateMojo.stripVersionFromCodebaseName( module.codeNameBase );
+                if ( !transitive && manifest.hasFriendPackages() && !manifest.getFriends().contains( cnb ) )
+                {
+                    String message = "Module has friend dependency on " + manifest.getModule() + " but is not listed as a friend.";
+                    if ( module.failOnError )
+                    {
+                        throw new MojoFailureException( message );
+                    }
+                    else
+                    {
+                        log.warn( message );
+                        friendWarnings = true;
+                    }
+                }
+                PackageMatcher matcher = PackageMatcher.forPublicPackages( manifest.getPackages() );
+                if ( module.useOSGiDependencies && manifest.isOsgiBundle() )
+                {
+                    // TODO how to extract the public packages in osgi bundles easily..
+                    matcher = PackageMatcher.all();
+                }
+                // match each package once, names are not looked up per class
+                BitSet checked = new BitSet();
+                BitSet visiblePackages = new BitSet();
+                for ( int i = moduleClasses.nextSetBit( 0 ); i >= 0; i = moduleClasses.nextSetBit( i + 1 ) )
+                {
+                    int pkg = universe.packageOf( i );
+                    if ( !checked.get( pkg ) )
+                    {
+                        checked.set( pkg );
+                        if ( matcher.matchesPackage( universe.packageName( pkg ) ) )
+                        {
+                            visiblePackages.set( pkg );
+                        }
+                    }
+                    if ( visiblePackages.get( pkg ) )
+                    {
+                        visibleModuleClasses.set( i );
+                    }
+                }
+
+            }
+            else if ( "impl".equals( type ) )
+            {
+                visibleModuleClasses.or( moduleClasses );
+            }
+            else
+            {
+                //HUH?
+                throw new MojoFailureException( "Wrong type of module dependency " + type );
+            }
+
+            return new BitSet[]
+                {
+                    visibleModuleClasses,
+                    moduleClasses
+                };
+        }
+    }
+}
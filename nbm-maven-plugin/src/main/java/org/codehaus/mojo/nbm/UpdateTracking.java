@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.TreeMap;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The <code>update_tracking</code> file of one module in a cluster, listing the module's files and their CRC-32.
+ * Written directly from checksums computed while the files were copied or extracted,
+ * instead of reading the whole cluster back like the <code>genlist</code> Ant task does.
+ * Files are listed in path order, so the same module always gives the same file.
+ */
+final class UpdateTracking
+{
+
+    private static final String EXTERNAL = ".external";
+
+    private final String codeName;
+
+    private final String specVersion;
+
+    private final long installTime;
+
+    private final Map<String, Long> files = new TreeMap<String, Long>();
+
+    /**
+     * @param codeName code name of the module, can include the major release version
+     * @param specVersion specification version of the module
+     * @param installTime install time recorded in the file
+     */
+    UpdateTracking( String codeName, String specVersion, long installTime )
+    {
+        this.codeName = codeName;
+        this.specVersion = specVersion;
+        this.installTime = installTime;
+    }
+
+    /**
+     * @param path path of the file in the cluster, separated by <code>/</code>
+     * @param crc CRC-32 of the file content
+     * @return this
+     */
+    UpdateTracking addFile( String path, long crc )
+    {
+        files.put( path, crc );
+        return this;
+    }
+
+    /**
+     * Records a <code>.external</code> file like <code>genlist</code> does, as the file it will be replaced with,
+     * with the checksum declared in it.
+     * @param path path of the <code>.external</code> file in the cluster, separated by <code>/</code>
+     * @param external the file
+     * @return this
+     * @throws IOException when the file cannot be read or declares no checksum
+     */
+    UpdateTracking addExternal( String path, File external )
+        throws IOException
+    {
+        BufferedReader r = new BufferedReader( new InputStreamReader( new FileInputStream( external ), "UTF-8" ) );
+        try
+        {
+            String line;
+            while ( ( line = r.readLine() ) != null )
+            {
+                if ( line.startsWith( "CRC:" ) )
+                {
+                    return addFile( stripExternal( path ), Long.parseLong( line.substring( 4 ).trim() ) );
+                }
+            }
+        }
+        catch ( NumberFormatException ex )
+        {
+            throw new IOException( "Invalid CRC in " + external, ex );
+        }
+        finally
+        {
+            IOUtil.close( r );
+        }
+        throw new IOException( "No CRC in " + external );
+    }
+
+    static boolean isExternal( String path )
+    {
+        return path.endsWith( EXTERNAL );
+    }
+
+    static String stripExternal( String path )
+    {
+        return path.substring( 0, path.length() - EXTERNAL.length() );
+    }
+
+    /**
+     * Writes <code>update_tracking/<i>code-name-base</i>.xml</code>, an existing file with the same content
+     * is left untouched.
+     * @param clusterDir cluster folder
+     * @return the file
+     * @throws IOException when the file cannot be written
+     */
+    File write( File clusterDir )
+        throws IOException
+    {
+        String cnb = NetBeansManifestUpdateMojo.stripVersionFromCodebaseName( codeName );
+        File file = new File( new File( clusterDir, "update_tracking" ), cnb.replace( '.', '-' ) + ".xml" );
+        String xml = toXml();
+        if ( !file.isFile() || !xml.equals( FileUtils.fileRead( file, "UTF-8" ) ) )
+        {
+            file.getParentFile().mkdirs();
+            FileUtils.fileWrite( file, "UTF-8", xml );
+        }
+        return file;
+    }
+
+    String toXml()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        sb.append( "<module codename=\"" ).append( escape( codeName ) ).append( "\">\n" );
+        sb.append( "    <module_version install_time=\"" ).append( installTime )
+            .append( "\" last=\"true\" origin=\"installer\" specification_version=\"" )
+            .append( escape( specVersion ) ).append( "\">\n" );
+        for ( Map.Entry<String, Long> file : files.entrySet() )
+        {
+            sb.append( "        <file crc=\"" ).append( file.getValue() ).append( "\" name=\"" )
+                .append( escape( file.getKey() ) ).append( "\"/>\n" );
+        }
+        sb.append( "    </module_version>\n" );
+        sb.append( "</module>" );
+        return sb.toString();
+    }
+
+    private static String escape( String value )
+    {
+        if ( value == null )
+        {
+            return "";
+        }
+        return value.replace( "&", "&amp;" ).replace( "<", "&lt;" ).replace( "\"", "&quot;" );
+    }
+}
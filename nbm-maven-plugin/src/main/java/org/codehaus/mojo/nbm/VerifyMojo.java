@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Runtime verification of all modules of the reactor in one go.
+ * The <code>manifest</code> goal of each module, run with <code>deferVerification</code>, only records what to check,
+ * this goal then checks all recorded modules in parallel against one shared index of classes,
+ * so jars used by several modules are read and converted once.
+ * The reported problems are the same as those of the <code>manifest</code> goal, grouped per module.
+ * Run it after the modules were built in the same Maven invocation, for example
+ * <code>mvn package nbm:verify -Dmaven.nbm.deferVerification=true</code>.
+ *
+ * @since 4.2
+ */
+@Mojo(name="verify", aggregator=true, threadSafe = true)
+public class VerifyMojo
+    extends AbstractNbmMojo
+{
+
+    /**
+     * Number of modules verified concurrently, zero or less means one per available processor.
+     */
+    @Parameter(property="maven.nbm.verify.threads", defaultValue="0")
+    private int threads;
+
+    /**
+     * If the executed project is a reactor project, this will contains the full list of projects in the reactor.
+     */
+    @Parameter(required=true, readonly=true, property="reactorProjects")
+    private List<MavenProject> reactorProjects;
+
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        List<RuntimeVerifier.Module> modules = RuntimeVerifier.takeDeferred( session );
+        if ( modules.isEmpty() )
+        {
+            getLog().info( "No deferred runtime verification in this build, run the manifest goal with "
+                + "-Dmaven.nbm.deferVerification=true before this goal." );
+            return;
+        }
+        sortByReactorOrder( modules );
+        ClassInventoryCache inventoryCache = getClassInventoryCache();
+        final RuntimeVerifier verifier = new RuntimeVerifier( ClassInventory.forSession( session, inventoryCache ) );
+        int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( count, modules.size() ) );
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        List<BufferedLog> logs = new ArrayList<BufferedLog>();
+        try
+        {
+            for ( final RuntimeVerifier.Module module : modules )
+            {
+                final BufferedLog log = new BufferedLog( getLog() );
+                logs.add( log );
+                results.add( executor.submit( new Callable<Boolean>()
+                {
+                    public Boolean call()
+                        throws Exception
+                    {
+                        return verifier.verify( module, log );
+                    }
+                } ) );
+            }
+            List<String> failed = new ArrayList<String>();
+            for ( int i = 0; i < modules.size(); i++ )
+            {
+                RuntimeVerifier.Module module = modules.get( i );
+                getLog().info( "Runtime verification of " + module.project.getId() );
+                boolean verified;
+                try
+                {
+                    verified = results.get( i ).get();
+                }
+                catch ( ExecutionException ex )
+                {
+                    verified = false;
+                    Throwable cause = ex.getCause();
+                    if ( cause instanceof MojoFailureException )
+                    {
+                        logs.get( i ).error( cause.getMessage() );
+                        failed.add( module.project.getId() );
+                    }
+                    else
+                    {
+                        logs.get( i ).replay();
+                        throw new MojoExecutionException( "Error while checking runtime dependencies of "
+                            + module.project.getId(), cause );
+                    }
+                }
+                logs.get( i ).replay();
+                if ( verified && module.inputsFile != null )
+                {
+                    Fingerprint.store( module.inputsFile, module.inputs );
+                }
+            }
+            if ( inventoryCache != null )
+            {
+                getLog().debug( inventoryCache.toString() );
+            }
+            if ( !failed.isEmpty() )
+            {
+                throw new MojoFailureException( "Runtime NetBeans dependencies verification failed for " + failed
+                    + ", see above." );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Runtime verification interrupted", ex );
+        }
+        catch ( IOException ex )
+        {
+            throw new MojoExecutionException( ex.getMessage(), ex );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Modules of a parallel build are recorded in completion order, report them in reactor order.
+     */
+    private void sortByReactorOrder( List<RuntimeVerifier.Module> modules )
+    {
+        final List<String> order = new ArrayList<String>();
+        if ( reactorProjects != null )
+        {
+            for ( MavenProject p : reactorProjects )
+            {
+                order.add( p.getId() );
+            }
+        }
+        Collections.sort( modules, new Comparator<RuntimeVerifier.Module>()
+        {
+            public int compare( RuntimeVerifier.Module m1, RuntimeVerifier.Module m2 )
+            {
+                return order.indexOf( m1.project.getId() ) - order.indexOf( m2.project.getId() );
+            }
+        } );
+    }
+}
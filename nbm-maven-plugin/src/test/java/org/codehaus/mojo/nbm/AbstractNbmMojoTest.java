@@ -28,6 +28,7 @@ import junit.framework.TestCase;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
@@ -141,7 +142,7 @@ public class AbstractNbmMojoTest extends TestCase {
 
     /**
      * Module is not a library
-     * @throws java.lang.Exception if AbstractNbmMojo.getLibraryArtifacts fail
+     * @throws java.lang.Exception if DependencyClassification.classify fails
      */
     public void testGetLibraryArtifacts1() throws Exception {
         System.out.println("getLibraryArtifacts1");
@@ -150,13 +151,13 @@ public class AbstractNbmMojoTest extends TestCase {
         DependencyNode module = createNode(treeRoot, "gr1", "ar1", "1.0", "jar", "compile", true, runtimes, examinerCache);
         treeRoot.setChildren( Collections.singletonList( module ));
         NetBeansModule mdl = new NetBeansModule();
-        List<Artifact> result = AbstractNbmMojo.getLibraryArtifacts(treeRoot, mdl, runtimes, examinerCache, log, false);
+        List<Artifact> result = DependencyClassification.classify(treeRoot, mdl, null, runtimes, runtimes, examinerCache, null, log, false).getLibraries();
         assertEquals(0, result.size());
     }
 
     /**
      * direct dependency is a library
-     * @throws java.lang.Exception if AbstractNbmMojo.getLibraryArtifacts fail
+     * @throws java.lang.Exception if DependencyClassification.classify fails
      */
     public void testGetLibraryArtifact2() throws Exception {
         System.out.println("getLibraryArtifacts2");
@@ -165,14 +166,14 @@ public class AbstractNbmMojoTest extends TestCase {
         DependencyNode library = createNode(treeRoot, "gr1", "ar1", "1.0", "jar", "compile", false, runtimes, examinerCache);
         treeRoot.setChildren( Collections.singletonList( library ));
         NetBeansModule mdl = new NetBeansModule();
-        List<Artifact> result = AbstractNbmMojo.getLibraryArtifacts(treeRoot, mdl, runtimes, examinerCache, log, false);
+        List<Artifact> result = DependencyClassification.classify(treeRoot, mdl, null, runtimes, runtimes, examinerCache, null, log, false).getLibraries();
         assertEquals(1, result.size());
     }
 
     
     /**
      * transitive dependency gets included as well.
-     * @throws java.lang.Exception if AbstractNbmMojo.getLibraryArtifacts fail
+     * @throws java.lang.Exception if DependencyClassification.classify fails
      */
     public void testGetLibraryArtifact3() throws Exception {
         System.out.println("getLibraryArtifacts3");
@@ -184,13 +185,13 @@ public class AbstractNbmMojoTest extends TestCase {
         ((DefaultDependencyNode)library).setChildren( Collections.singletonList( translibrary ) );
         
         NetBeansModule mdl = new NetBeansModule();
-        List<Artifact> result = AbstractNbmMojo.getLibraryArtifacts(treeRoot, mdl, runtimes, examinerCache, log, false);
+        List<Artifact> result = DependencyClassification.classify(treeRoot, mdl, null, runtimes, runtimes, examinerCache, null, log, false).getLibraries();
         assertEquals(2, result.size());
     }
 
     /**
      * transitive dependency of a module doesn't get included as library
-     * @throws java.lang.Exception if AbstractNbmMojo.getLibraryArtifacts fail
+     * @throws java.lang.Exception if DependencyClassification.classify fails
      */
     public void testGetLibraryArtifact4() throws Exception {
         System.out.println("getLibraryArtifacts4");
@@ -201,14 +202,14 @@ public class AbstractNbmMojoTest extends TestCase {
         DependencyNode translibrary = createNode(module, "gr2", "ar2", "1.0", "jar", "runtime", false, runtimes, examinerCache);
         ((DefaultDependencyNode)module).setChildren( Collections.singletonList( translibrary ) );
         NetBeansModule mdl = new NetBeansModule();
-        List<Artifact> result = AbstractNbmMojo.getLibraryArtifacts(treeRoot, mdl, runtimes, examinerCache, log, false);
+        List<Artifact> result = DependencyClassification.classify(treeRoot, mdl, null, runtimes, runtimes, examinerCache, null, log, false).getLibraries();
         assertEquals(0, result.size());
     }
 
     /**
      * transitive dependency of a library is a duplicate of a transitive dependency of a module
      * -&gt;doesn't get included.
-     * @throws java.lang.Exception if AbstractNbmMojo.getLibraryArtifacts fail
+     * @throws java.lang.Exception if DependencyClassification.classify fails
      */
     public void testGetLibraryArtifact5() throws Exception {
         System.out.println("getLibraryArtifacts5");
@@ -225,12 +226,57 @@ public class AbstractNbmMojoTest extends TestCase {
 
 
         NetBeansModule mdl = new NetBeansModule();
-        List<Artifact> result = AbstractNbmMojo.getLibraryArtifacts(treeRoot, mdl, runtimes, examinerCache, log, false);
+        List<Artifact> result = DependencyClassification.classify(treeRoot, mdl, null, runtimes, runtimes, examinerCache, null, log, false).getLibraries();
         assertEquals(2, result.size());
         assertEquals(result.get(0).getId(), library.getArtifact().getId());
         assertEquals(result.get(1).getId(), translibrary2.getArtifact().getId());
     }
 
+    /**
+     * libraries owned by modules and modules below libraries are collected in the same walk
+     * @throws java.lang.Exception if DependencyClassification.classify fails
+     */
+    public void testClassifyModules() throws Exception {
+        System.out.println("classifyModules");
+        Map<Artifact, ExamineManifest> examinerCache = new HashMap<Artifact, ExamineManifest>();
+        List<Artifact> runtimes = new ArrayList<Artifact>();
+        DependencyNode module = createNode(treeRoot, "gr1", "ar1", "1.0", "jar", "compile", true, runtimes, examinerCache);
+        DependencyNode translibrary = createNode(module, "gr2", "ar2", "1.0", "jar", "runtime", false, runtimes, examinerCache);
+        ((DefaultDependencyNode)module).setChildren( Collections.singletonList( translibrary ) );
+
+        DependencyNode library = createNode(treeRoot, "gr3", "ar3", "1.0", "jar", "compile", false, runtimes, examinerCache);
+        DependencyNode transmodule = createNode(library, "gr4", "ar4", "1.0", "jar", "runtime", true, runtimes, examinerCache);
+        ((DefaultDependencyNode)library).setChildren( Collections.singletonList( transmodule ) );
+        treeRoot.setChildren( Arrays.asList( new DependencyNode[] { module, library}));
+
+        DependencyClassification result = DependencyClassification.classify(treeRoot, new NetBeansModule(), null, runtimes, runtimes, examinerCache, null, log, false);
+        assertEquals(1, result.getLibraries().size());
+        assertEquals(library.getArtifact().getId(), result.getLibraries().get(0).getId());
+        List<Artifact> owned = result.getDeclaredModules().get(module.getArtifact().getDependencyConflictId());
+        assertEquals(2, owned.size());
+        assertEquals(translibrary.getArtifact().getId(), owned.get(1).getId());
+        assertEquals(1, result.getDeclaredModules().size());
+        assertTrue(result.getTransitiveModules().containsKey(transmodule.getArtifact().getDependencyConflictId()));
+        assertEquals(2, result.getModules().size());
+        assertEquals(module.getArtifact(), result.getModules().get(0).artifact);
+        assertEquals(transmodule.getArtifact(), result.getModules().get(1).artifact);
+    }
+
+    public void testParseOutputTimestamp() throws Exception {
+        assertNull(AbstractNbmMojo.parseOutputTimestamp(null));
+        assertNull(AbstractNbmMojo.parseOutputTimestamp("a"));
+        assertEquals(1767225600000L, AbstractNbmMojo.parseOutputTimestamp("1767225600").getTime());
+        assertEquals(1767225600000L, AbstractNbmMojo.parseOutputTimestamp("2026-01-01T00:00:00Z").getTime());
+        assertEquals(1767225600000L, AbstractNbmMojo.parseOutputTimestamp("2026-01-01T01:00:00+01:00").getTime());
+        assertEquals(1767225600500L, AbstractNbmMojo.parseOutputTimestamp("2026-01-01T00:00:00.500Z").getTime());
+        try {
+            AbstractNbmMojo.parseOutputTimestamp("yesterday");
+            fail();
+        } catch (MojoExecutionException ex) {
+            // expected
+        }
+    }
+
     private DefaultDependencyNode createNode(DependencyNode parent, String gr, String art, String ver, String pack, String scope, boolean isModule, List<Artifact> runtimes, Map<Artifact, ExamineManifest> cache) {
         Artifact a = createArtifact(gr, art, ver, pack, scope);
         DefaultDependencyNode nd = new DefaultDependencyNode(parent, a, ver, scope, ver);
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class BufferedLogTest
+    extends TestCase
+{
+
+    public BufferedLogTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testReplayInOrder()
+    {
+        final List<String> lines = new ArrayList<String>();
+        SystemStreamLog target = new SystemStreamLog()
+        {
+            @Override
+            public boolean isDebugEnabled()
+            {
+                return false;
+            }
+
+            @Override
+            public void info( CharSequence content )
+            {
+                lines.add( "info " + content );
+            }
+
+            @Override
+            public void warn( CharSequence content )
+            {
+                lines.add( "warn " + content );
+            }
+
+            @Override
+            public void error( CharSequence content )
+            {
+                lines.add( "error " + content );
+            }
+        };
+        BufferedLog log = new BufferedLog( target );
+        log.error( "first" );
+        log.debug( "hidden" );
+        log.info( "second" );
+        log.warn( "third" );
+        assertTrue( lines.isEmpty() );
+        log.replay();
+        assertEquals( "[error first, info second, warn third]", lines.toString() );
+        log.replay();
+        assertEquals( 3, lines.size() );
+    }
+
+    public void testReplayThrowable()
+    {
+        final List<String> lines = new ArrayList<String>();
+        SystemStreamLog target = new SystemStreamLog()
+        {
+            @Override
+            public void warn( Throwable error )
+            {
+                lines.add( "warn " + error.getMessage() );
+            }
+
+            @Override
+            public void error( CharSequence content, Throwable error )
+            {
+                lines.add( "error " + content + ": " + error.getMessage() );
+            }
+        };
+        BufferedLog log = new BufferedLog( target );
+        log.warn( new IllegalStateException( "first" ) );
+        log.error( "second", new IllegalStateException( "cause" ) );
+        log.replay();
+        assertEquals( "[warn first, error second: cause]", lines.toString() );
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.util.zip.CRC32;
+import org.codehaus.plexus.util.FileUtils;
+
+public class ChecksumCacheTest
+    extends TempDirTestCase
+{
+
+    public ChecksumCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testCrc32()
+        throws Exception
+    {
+        byte[] content = new byte[200000];
+        for ( int i = 0; i < content.length; i++ )
+        {
+            content[i] = (byte) ( i * 31 );
+        }
+        File file = new File( dir, "big.bin" );
+        FileUtils.fileWrite( file.getAbsolutePath(), "ISO-8859-1", new String( content, "ISO-8859-1" ) );
+        CRC32 crc = new CRC32();
+        crc.update( content );
+        assertEquals( crc.getValue(), ChecksumCache.crc32( file ) );
+        File empty = new File( dir, "empty.bin" );
+        empty.createNewFile();
+        assertEquals( 0L, ChecksumCache.crc32( empty ) );
+    }
+
+    public void testRepositoryEntriesPersist()
+        throws Exception
+    {
+        File repository = new File( dir, "repository" );
+        File cacheDir = new File( dir, "cache" );
+        File jar = new File( repository, "g/a/1.0/a-1.0.jar" );
+        jar.getParentFile().mkdirs();
+        FileUtils.fileWrite( jar.getAbsolutePath(), "UTF-8", "first" );
+        File other = new File( dir, "target/a.jar" );
+        other.getParentFile().mkdirs();
+        FileUtils.fileWrite( other.getAbsolutePath(), "UTF-8", "first" );
+
+        ChecksumCache cache = new ChecksumCache( cacheDir, repository );
+        long crc = cache.getCrc32( jar );
+        assertEquals( ChecksumCache.crc32( jar ), crc );
+        assertEquals( crc, cache.getCrc32( jar ) );
+        assertEquals( crc, cache.getCrc32( other ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 2, cache.getMisses() );
+        assertTrue( new File( cacheDir, "g/a/1.0/a-1.0.jar.properties" ).isFile() );
+
+        ChecksumCache next = new ChecksumCache( cacheDir, repository );
+        assertEquals( crc, next.getCrc32( jar ) );
+        assertEquals( 1, next.getHits() );
+        next.getCrc32( other );
+        assertEquals( 1, next.getMisses() );
+
+        FileUtils.fileWrite( jar.getAbsolutePath(), "UTF-8", "second!" );
+        assertEquals( ChecksumCache.crc32( jar ), next.getCrc32( jar ) );
+        assertEquals( 2, next.getMisses() );
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+public class ClassDependencyCacheTest
+    extends TempDirTestCase
+{
+
+    public ClassDependencyCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testOnlyChangedClassesAreAnalyzed()
+        throws Exception
+    {
+        File classes = new File( dir, "classes" );
+        copyClass( ClassDependencyCacheTest.class, classes );
+        File cacheFile = new File( dir, "verify/classes.cache" );
+        ClassUniverse universe = new ClassUniverse();
+
+        ClassDependencyCache cache = new ClassDependencyCache( cacheFile );
+        ClassInventory.Classes result = cache.analyze( classes, universe );
+        assertEquals( 1, cache.getAnalyzed() );
+        assertTrue( universe.names( result.defined ).contains( ClassDependencyCacheTest.class.getName() ) );
+        assertTrue( universe.names( result.referenced ).contains( TestCase.class.getName() ) );
+        assertTrue( cacheFile.isFile() );
+
+        copyClass( ClassDependencyCache.class, classes );
+        cache = new ClassDependencyCache( cacheFile );
+        result = cache.analyze( classes, universe );
+        assertEquals( 1, cache.getAnalyzed() );
+        assertEquals( 1, cache.getReused() );
+        assertTrue( universe.names( result.defined ).contains( ClassDependencyCache.class.getName() ) );
+        assertTrue( universe.names( result.referenced ).contains( TestCase.class.getName() ) );
+
+        // the statistics describe one run
+        ClassInventory.Classes again = cache.analyze( classes, universe );
+        assertEquals( 0, cache.getAnalyzed() );
+        assertEquals( 2, cache.getReused() );
+        assertEquals( result.defined, again.defined );
+        assertEquals( result.referenced, again.referenced );
+    }
+
+    private static void copyClass( Class<?> clazz, File classes )
+        throws Exception
+    {
+        String path = clazz.getName().replace( '.', '/' ) + ".class";
+        FileUtils.copyURLToFile( clazz.getClassLoader().getResource( path ), new File( classes, path ) );
+    }
+}
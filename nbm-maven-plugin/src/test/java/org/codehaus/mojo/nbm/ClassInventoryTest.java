@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.BitSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import junit.framework.TestCase;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+public class ClassInventoryTest
+    extends TempDirTestCase
+{
+
+    public ClassInventoryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testJarIsScannedOnce()
+        throws Exception
+    {
+        File jar = createJar( new File( dir, "lib.jar" ) );
+
+        ClassInventory inventory = new ClassInventory( null );
+        ClassInventory.Classes classes = inventory.getClasses( jar );
+        assertTrue( contains( inventory, classes.defined, ClassInventoryTest.class ) );
+        assertTrue( contains( inventory, classes.referenced, TestCase.class ) );
+        assertSame( classes.defined, inventory.getDefinedClasses( jar ) );
+        assertSame( classes, inventory.getClasses( jar ) );
+        assertEquals( 1, inventory.getScanned() );
+    }
+
+    public void testReferencesAreCollectedOnDemand()
+        throws Exception
+    {
+        String path = ClassInventoryTest.class.getName().replace( '.', '/' ) + ".class";
+        FileUtils.copyURLToFile( ClassInventoryTest.class.getClassLoader().getResource( path ),
+                                 new File( dir, path ) );
+
+        ClassInventory inventory = new ClassInventory( null );
+        assertTrue( contains( inventory, inventory.getDefinedClasses( dir ), ClassInventoryTest.class ) );
+        assertEquals( 1, inventory.getScanned() );
+        assertTrue( contains( inventory, inventory.getClasses( dir ).referenced, TestCase.class ) );
+        assertEquals( 2, inventory.getScanned() );
+        inventory.getDefinedClasses( dir );
+        assertEquals( 2, inventory.getScanned() );
+    }
+
+    public void testRepositoryJarsAreCachedAcrossBuilds()
+        throws Exception
+    {
+        File repository = new File( dir, "repository" );
+        File jar = createJar( new File( repository, "org/example/lib/1.0/lib-1.0.jar" ) );
+        File other = createJar( new File( dir, "target/other.jar" ) );
+        File cacheDir = new File( dir, "cache" );
+
+        ClassInventoryCache cache = new ClassInventoryCache( cacheDir, repository );
+        ClassInventory inventory = new ClassInventory( cache );
+        ClassInventory.Classes classes = inventory.getClasses( jar );
+        inventory.getClasses( other );
+        assertEquals( 2, inventory.getScanned() );
+        assertEquals( 1, cache.getMisses() );
+
+        // next build
+        cache = new ClassInventoryCache( cacheDir, repository );
+        inventory = new ClassInventory( cache );
+        ClassInventory.Classes cached = inventory.getClasses( jar );
+        inventory.getClasses( other );
+        assertEquals( 1, inventory.getScanned() );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cached.defined.cardinality() );
+        assertTrue( contains( inventory, cached.defined, ClassInventoryTest.class ) );
+        assertEquals( classes.referenced.cardinality(), cached.referenced.cardinality() );
+        assertTrue( contains( inventory, cached.referenced, TestCase.class ) );
+    }
+
+    public void testSessionSharesJarsAndIds()
+        throws Exception
+    {
+        File jar = createJar( new File( dir, "lib.jar" ) );
+        MavenSession session = new MavenSession( null, null, new DefaultMavenExecutionRequest(),
+                                                 new DefaultMavenExecutionResult() );
+        ClassInventory first = ClassInventory.forSession( session, null );
+        ClassInventory second = ClassInventory.forSession( session, null );
+        assertSame( first.getUniverse(), second.getUniverse() );
+        assertSame( first.getClasses( jar ), second.getClasses( jar ) );
+        assertEquals( 0, second.getScanned() );
+    }
+
+    private static boolean contains( ClassInventory inventory, BitSet classes, Class<?> clazz )
+    {
+        return inventory.getUniverse().names( classes ).contains( clazz.getName() );
+    }
+
+    private static File createJar( File jar )
+        throws Exception
+    {
+        jar.getParentFile().mkdirs();
+        String path = ClassInventoryTest.class.getName().replace( '.', '/' ) + ".class";
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+        try
+        {
+            out.putNextEntry( new JarEntry( path ) );
+            IOUtil.copy( ClassInventoryTest.class.getClassLoader().getResourceAsStream( path ), out );
+        }
+        finally
+        {
+            out.close();
+        }
+        return jar;
+    }
+}
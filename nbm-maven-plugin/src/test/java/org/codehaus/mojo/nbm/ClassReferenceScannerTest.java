@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.IOUtil;
+
+public class ClassReferenceScannerTest
+    extends TestCase
+{
+
+    public ClassReferenceScannerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testReferences()
+        throws Exception
+    {
+        Set<String> names = scan( Sample.class );
+        assertTrue( names.contains( Sample.class.getName() ) );
+        // super class and its type argument
+        assertTrue( names.contains( "java.util.ArrayList" ) );
+        assertTrue( names.contains( "java.net.URI" ) );
+        // interface
+        assertTrue( names.contains( "java.lang.Comparable" ) );
+        // field descriptor and signature
+        assertTrue( names.contains( "java.util.Map" ) );
+        assertTrue( names.contains( "java.util.regex.Pattern" ) );
+        // bound of a type parameter
+        assertTrue( names.contains( "java.lang.CharSequence" ) );
+        // method descriptor, array element and throws clause
+        assertTrue( names.contains( "java.io.File" ) );
+        assertTrue( names.contains( "java.text.ParseException" ) );
+        // annotation and its class valued element
+        assertTrue( names.contains( Marker.class.getName() ) );
+        assertTrue( names.contains( "java.math.BigDecimal" ) );
+        // code only
+        assertTrue( names.contains( "java.util.zip.CRC32" ) );
+        assertTrue( names.contains( "java.util.Locale" ) );
+        // string constants and primitives are not references
+        assertFalse( names.contains( "java.util.Calendar" ) );
+        assertFalse( names.contains( "int" ) );
+    }
+
+    public void testInvalidClassFile()
+        throws Exception
+    {
+        try
+        {
+            ClassReferenceScanner.scan( ByteBuffer.wrap( new byte[] { 1, 2, 3, 4, 5 } ), new HashSet<String>() );
+            fail();
+        }
+        catch ( IOException ex )
+        {
+            // expected
+        }
+        byte[] content = read( Sample.class );
+        try
+        {
+            ClassReferenceScanner.scan( ByteBuffer.wrap( content, 0, content.length / 2 ), new HashSet<String>() );
+            fail();
+        }
+        catch ( IOException ex )
+        {
+            // expected
+        }
+    }
+
+    private static Set<String> scan( Class<?> clazz )
+        throws IOException
+    {
+        byte[] content = read( clazz );
+        ByteBuffer buf = ByteBuffer.allocateDirect( content.length + 3 );
+        buf.put( new byte[3] ).put( content ).position( 3 );
+        Set<String> names = new HashSet<String>();
+        ClassReferenceScanner.scan( buf, names );
+        assertEquals( 3, buf.position() );
+        return names;
+    }
+
+    private static byte[] read( Class<?> clazz )
+        throws IOException
+    {
+        InputStream in = clazz.getClassLoader().getResourceAsStream( clazz.getName().replace( '.', '/' ) + ".class" );
+        try
+        {
+            return IOUtil.toByteArray( in );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    @Retention( RetentionPolicy.RUNTIME )
+    @interface Marker
+    {
+        Class<?> value();
+    }
+
+    @Marker( java.math.BigDecimal.class )
+    static class Sample<T extends CharSequence>
+        extends ArrayList<java.net.URI>
+        implements Comparable<Sample<T>>
+    {
+        Map<String, java.util.regex.Pattern> patterns;
+
+        int count( java.io.File[] files )
+            throws java.text.ParseException
+        {
+            java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+            crc.update( files.length );
+            return (int) crc.getValue() + "java/util/Calendar".length() + java.util.Locale.getDefault().hashCode();
+        }
+
+        public int compareTo( Sample<T> o )
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+
+public class ClassUniverseTest
+    extends TestCase
+{
+
+    public ClassUniverseTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testSetAlgebra()
+    {
+        ClassUniverse universe = new ClassUniverse();
+        BitSet used = new BitSet();
+        universe.collector( used ).addAll( Arrays.asList( "a.A", "b.B", "c.C" ) );
+        BitSet defined = new BitSet();
+        Collection<String> collector = universe.collector( defined );
+        assertTrue( collector.add( "b.B" ) );
+        assertTrue( collector.add( "d.D" ) );
+        assertFalse( collector.add( "d.D" ) );
+        assertEquals( 2, collector.size() );
+
+        BitSet deps = new BitSet();
+        deps.or( used );
+        deps.andNot( defined );
+        assertEquals( Arrays.asList( "a.A", "c.C" ), universe.names( deps ) );
+        assertEquals( "d.D", universe.name( universe.id( "d.D" ) ) );
+        assertEquals( 4, universe.id( "e.E" ) );
+    }
+
+    public void testPackages()
+    {
+        ClassUniverse universe = new ClassUniverse();
+        int a = universe.packageOf( universe.id( "org.a.A" ) );
+        assertEquals( "org.a", universe.packageName( a ) );
+        assertEquals( a, universe.packageOf( universe.id( "org.a.B$Inner" ) ) );
+        assertFalse( a == universe.packageOf( universe.id( "org.a.b.C" ) ) );
+        assertEquals( "", universe.packageName( universe.packageOf( universe.id( "Default" ) ) ) );
+    }
+
+    public void testConcurrentIds()
+        throws Exception
+    {
+        final ClassUniverse universe = new ClassUniverse();
+        final int count = 4;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( count );
+        try
+        {
+            List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+            for ( int t = 0; t < count; t++ )
+            {
+                results.add( executor.submit( new Callable<int[]>()
+                {
+                    public int[] call()
+                        throws Exception
+                    {
+                        start.await();
+                        int[] ids = new int[5000];
+                        for ( int i = 0; i < ids.length; i++ )
+                        {
+                            ids[i] = universe.id( "p" + ( i % 50 ) + ".C" + i );
+                            assertEquals( "p" + ( i % 50 ) + ".C" + i, universe.name( ids[i] ) );
+                            assertEquals( "p" + ( i % 50 ), universe.packageName( universe.packageOf( ids[i] ) ) );
+                        }
+                        return ids;
+                    }
+                } ) );
+            }
+            start.countDown();
+            int[] first = results.get( 0 ).get();
+            for ( Future<int[]> result : results )
+            {
+                assertTrue( Arrays.equals( first, result.get() ) );
+            }
+            assertEquals( 5000, universe.id( "new.Class" ) );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
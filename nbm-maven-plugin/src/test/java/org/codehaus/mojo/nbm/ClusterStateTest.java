@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.codehaus.plexus.util.FileUtils;
+
+public class ClusterStateTest
+    extends TempDirTestCase
+{
+
+    private File cluster;
+
+    private File stateFile;
+
+    public ClusterStateTest( String testName )
+    {
+        super( testName );
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        cluster = new File( dir, "cluster" );
+        stateFile = new File( dir, "cluster.state" );
+        write( "modules/org-example-mod.jar", "module" );
+        write( "modules/ext/lib.jar", "library" );
+    }
+
+    private File write( String path, String content )
+        throws Exception
+    {
+        File file = new File( cluster, path );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getAbsolutePath(), "UTF-8", content );
+        return file;
+    }
+
+    private void store( ClusterState state )
+        throws Exception
+    {
+        Map<String, Long> crcs = new HashMap<String, Long>();
+        crcs.put( "modules/org-example-mod.jar", 42L );
+        assertTrue( state.store( crcs, new ChecksumCache( null, null ) ) );
+    }
+
+    public void testUpToDate()
+        throws Exception
+    {
+        ClusterState state = ClusterState.load( stateFile, cluster );
+        assertFalse( state.isUpToDate( "jar", "1" ) );
+        assertFalse( state.isUpToDate( "lib:modules/ext/lib.jar", "2" ) );
+        store( state );
+        assertTrue( stateFile.isFile() );
+
+        state = ClusterState.load( stateFile, cluster );
+        assertFalse( stateFile.exists() );
+        assertTrue( state.isUpToDate( "jar", "1" ) );
+        assertFalse( state.isUpToDate( "lib:modules/ext/lib.jar", "3" ) );
+        assertEquals( Long.valueOf( 42L ), state.getCrc32( "modules/org-example-mod.jar" ) );
+        File lib = new File( cluster, "modules/ext/lib.jar" );
+        assertEquals( Long.valueOf( ChecksumCache.crc32( lib ) ), state.getCrc32( "modules/ext/lib.jar" ) );
+        assertNull( state.getCrc32( "modules/missing.jar" ) );
+    }
+
+    public void testModifiedCluster()
+        throws Exception
+    {
+        ClusterState state = ClusterState.load( stateFile, cluster );
+        state.isUpToDate( "jar", "1" );
+        store( state );
+
+        File lib = write( "modules/ext/lib.jar", "changed library" );
+        state = ClusterState.load( stateFile, cluster );
+        assertFalse( state.isUpToDate( "jar", "1" ) );
+        assertNull( state.getCrc32( "modules/ext/lib.jar" ) );
+        store( state );
+
+        write( "modules/extra.jar", "extra" );
+        assertFalse( ClusterState.load( stateFile, cluster ).isUpToDate( "jar", "1" ) );
+        assertTrue( lib.isFile() );
+    }
+
+    public void testRemovedParts()
+        throws Exception
+    {
+        ClusterState state = ClusterState.load( stateFile, cluster );
+        state.isUpToDate( "lib:modules/ext/lib.jar", "1" );
+        state.isUpToDate( "lib:modules/ext/old.jar", "2" );
+        state.isUpToDate( "resources", "3" );
+        store( state );
+
+        state = ClusterState.load( stateFile, cluster );
+        state.isUpToDate( "lib:modules/ext/lib.jar", "1" );
+        assertEquals( Collections.singleton( "lib:modules/ext/old.jar" ), state.getRemovedParts( "lib:" ) );
+    }
+}
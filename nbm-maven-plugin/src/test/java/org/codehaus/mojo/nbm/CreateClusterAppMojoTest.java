@@ -103,7 +103,7 @@ public class CreateClusterAppMojoTest
         em.setPopulateDependencies( true);
         em.checkFile();
         assertEquals( cnb, em.getModule());
-        BundleTuple toRet = new BundleTuple( null, em);
+        BundleTuple toRet = new BundleTuple( null, em.getManifestInfo() );
                 
         return toRet;
     }
@@ -41,7 +41,7 @@ public class CreateNetBeansFileStructureTest
 //        DefaultArtifactRepository central = new DefaultArtifactRepository( "central", "http://repo.maven.apache.org/maven2", new DefaultRepositoryLayout() );
         artifactResolver.resolve( a, Collections.<ArtifactRepository>emptyList(), new DefaultArtifactRepository( "local", new File(localRepository).toURI().toString(), new DefaultRepositoryLayout() ) );
         StringWriter w = new StringWriter();
-        CreateNetBeansFileStructure.writeExternal( new PrintWriter( w ), a );
+        CreateNetBeansFileStructure.writeExternal( new PrintWriter( w ), a, new ChecksumCache( null, null ) );
         assertEquals( "CRC:1355517765\nSIZE:314932\nURL:m2:/junit:junit:4.12:jar\nURL:http://repo.maven.apache.org/maven2/junit/junit/4.12/junit-4.12.jar\n", w.toString() );
     }
 
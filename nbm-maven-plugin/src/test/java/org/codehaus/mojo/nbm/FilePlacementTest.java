@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+public class FilePlacementTest
+    extends TempDirTestCase
+{
+
+    public FilePlacementTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testCopy()
+        throws Exception
+    {
+        File source = new File( dir, "source.jar" );
+        FileUtils.fileWrite( source.getAbsolutePath(), "UTF-8", "content" );
+        File target = new File( dir, "cluster/modules/ext/target.jar" );
+        FilePlacement placement = new FilePlacement( null, new SystemStreamLog() );
+        placement.place( source, target );
+        assertEquals( "content", FileUtils.fileRead( target, "UTF-8" ) );
+        assertFalse( Files.isSameFile( source.toPath(), target.toPath() ) );
+        assertEquals( "File placement copy: 0 files linked, 1 copied", placement.toString() );
+    }
+
+    public void testHardLinkReplacesTarget()
+        throws Exception
+    {
+        File source = new File( dir, "source.jar" );
+        FileUtils.fileWrite( source.getAbsolutePath(), "UTF-8", "content" );
+        File target = new File( dir, "cluster/modules/target.jar" );
+        target.getParentFile().mkdirs();
+        FileUtils.fileWrite( target.getAbsolutePath(), "UTF-8", "stale" );
+        FilePlacement placement = new FilePlacement( "HardLink", new SystemStreamLog() );
+        placement.place( source, target );
+        assertEquals( "content", FileUtils.fileRead( target, "UTF-8" ) );
+        placement.place( source, target );
+        assertEquals( "content", FileUtils.fileRead( source, "UTF-8" ) );
+        assertEquals( "File placement hardlink: 2 files linked, 0 copied", placement.toString() );
+    }
+
+    public void testUnknownStrategy()
+    {
+        try
+        {
+            new FilePlacement( "move", new SystemStreamLog() );
+            fail();
+        }
+        catch ( MojoExecutionException ex )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import org.codehaus.plexus.util.FileUtils;
+
+public class FingerprintTest
+    extends TempDirTestCase
+{
+
+    public FingerprintTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testInputsChange()
+        throws Exception
+    {
+        File source = new File( dir, "manifest.mf" );
+        FileUtils.fileWrite( source, "UTF-8", "Manifest-Version: 1.0\n" );
+        File classes = new File( dir, "classes" );
+        File clazz = new File( classes, "a/A.class" );
+        clazz.getParentFile().mkdirs();
+        FileUtils.fileWrite( clazz, "UTF-8", "x" );
+
+        String first = inputs( source, classes, "fail" );
+        assertEquals( first, inputs( source, classes, "fail" ) );
+        assertFalse( first.equals( inputs( source, classes, "warn" ) ) );
+
+        FileUtils.fileWrite( source, "UTF-8", "Manifest-Version: 1.0\nOpenIDE-Module: a\n" );
+        String second = inputs( source, classes, "fail" );
+        assertFalse( first.equals( second ) );
+
+        FileUtils.fileWrite( new File( classes, "a/B.class" ).getAbsolutePath(), "y" );
+        assertFalse( second.equals( inputs( source, classes, "fail" ) ) );
+
+        File stored = new File( dir, "verify/inputs" );
+        Fingerprint.store( stored, second );
+        assertEquals( second, Fingerprint.load( stored ) );
+        assertNull( Fingerprint.load( new File( dir, "missing" ) ) );
+        assertEquals( Fingerprint.hash( "x".getBytes( "UTF-8" ) ), Fingerprint.hash( clazz ) );
+    }
+
+    private static String inputs( File source, File classes, String verify )
+        throws Exception
+    {
+        return new Fingerprint().addContent( source ).add( verify )
+            .addTree( classes, new String[] { "**/*.class" }, null ).finish();
+    }
+}
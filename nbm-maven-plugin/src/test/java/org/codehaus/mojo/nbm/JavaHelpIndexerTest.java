@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.codehaus.plexus.util.FileUtils;
+
+public class JavaHelpIndexerTest
+    extends TempDirTestCase
+{
+
+    private JavaHelpIndexer indexer;
+
+    private File source;
+
+    private File target;
+
+    private File helpSet;
+
+    private File fingerprintFile;
+
+    public JavaHelpIndexerTest( String testName )
+    {
+        super( testName );
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        indexer = new JavaHelpIndexer( Indexer.class.getName() );
+        source = new File( dir, "javahelp" );
+        target = new File( dir, "target" );
+        helpSet = new File( target, "org/example/mod/docs" );
+        fingerprintFile = new File( dir, "javahelp.fingerprint" );
+        write( "org/example/mod/docs/index.html", "Index" );
+        write( "org/example/mod/docs/topic.html", "Topic" );
+        write( "org/example/mod/docs/mod-hs.xml", "<helpset/>" );
+    }
+
+    private void write( String path, String content )
+        throws Exception
+    {
+        File file = new File( source, path );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file, "UTF-8", content );
+    }
+
+    private File db()
+    {
+        return new File( helpSet, JavaHelpIndexer.SEARCH_DB );
+    }
+
+    private String update()
+        throws Exception
+    {
+        String fingerprint = JavaHelpIndexer.fingerprint( source, "org-example-mod" );
+        return indexer.update( source, target, helpSet, fingerprintFile, fingerprint ) ? "indexed" : "up to date";
+    }
+
+    /**
+     * The indexer keeps static state that breaks a second run in the same class loader (MNBMODULE-51).
+     */
+    public void testIndexTwice()
+        throws Exception
+    {
+        File base = new File( source, "org/example/mod/docs" );
+        File db = new File( dir, "db" );
+        indexer.index( base, db );
+        indexer.index( base, db );
+        assertEquals( "index.html\ntopic.html\n",
+                      FileUtils.fileRead( new File( db, JavaHelpIndexer.SCHEMA ), "UTF-8" ) );
+    }
+
+    public void testConcurrentRuns()
+        throws Exception
+    {
+        final int count = 4;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( count );
+        try
+        {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for ( int i = 0; i < count; i++ )
+            {
+                final File base = new File( dir, "helpset" + i );
+                base.mkdirs();
+                FileUtils.fileWrite( new File( base, "page" + i + ".html" ), "UTF-8", "Page" );
+                results.add( executor.submit( new Callable<String>()
+                {
+                    public String call()
+                        throws Exception
+                    {
+                        start.await();
+                        File db = new File( base, JavaHelpIndexer.SEARCH_DB );
+                        indexer.index( base, db );
+                        return FileUtils.fileRead( new File( db, JavaHelpIndexer.SCHEMA ), "UTF-8" );
+                    }
+                } ) );
+            }
+            start.countDown();
+            for ( int i = 0; i < count; i++ )
+            {
+                assertEquals( "page" + i + ".html\n", results.get( i ).get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testReuseIndex()
+        throws Exception
+    {
+        assertEquals( "indexed", update() );
+        assertTrue( new File( helpSet, "mod-hs.xml" ).isFile() );
+        assertEquals( "index.html\ntopic.html\n",
+                      FileUtils.fileRead( new File( db(), JavaHelpIndexer.SCHEMA ), "UTF-8" ) );
+        assertEquals( "up to date", update() );
+
+        write( "org/example/mod/docs/added.html", "Added" );
+        assertEquals( "indexed", update() );
+        assertEquals( "added.html\nindex.html\ntopic.html\n",
+                      FileUtils.fileRead( new File( db(), JavaHelpIndexer.SCHEMA ), "UTF-8" ) );
+        assertEquals( "up to date", update() );
+
+        File topic = new File( source, "org/example/mod/docs/topic.html" );
+        assertTrue( topic.renameTo( new File( topic.getParentFile(), "renamed.html" ) ) );
+        assertEquals( "indexed", update() );
+        assertFalse( new File( helpSet, "topic.html" ).exists() );
+        assertEquals( "added.html\nindex.html\nrenamed.html\n",
+                      FileUtils.fileRead( new File( db(), JavaHelpIndexer.SCHEMA ), "UTF-8" ) );
+
+        // an index lost since the last build is made again
+        FileUtils.deleteDirectory( db() );
+        assertEquals( "indexed", update() );
+    }
+
+    /**
+     * Stands in for the JavaHelp indexer: accepts its arguments, keeps static state like it
+     * and writes the indexed file names, relative to the removed prefix, as schema file.
+     */
+    public static final class Indexer
+    {
+
+        private static boolean ran;
+
+        public static void main( String[] args )
+            throws Exception
+        {
+            if ( ran )
+            {
+                throw new IllegalStateException( "Indexer ran before in this class loader" );
+            }
+            ran = true;
+            if ( Thread.currentThread().getContextClassLoader() != Indexer.class.getClassLoader() )
+            {
+                throw new IllegalStateException( "Wrong context class loader" );
+            }
+            String config = args[1];
+            File db = new File( args[3] );
+            String remove = null;
+            List<String> files = new ArrayList<String>();
+            BufferedReader r = new BufferedReader( new InputStreamReader( new FileInputStream( config ), "UTF-8" ) );
+            try
+            {
+                String line;
+                while ( ( line = r.readLine() ) != null )
+                {
+                    if ( line.startsWith( "IndexRemove " ) )
+                    {
+                        remove = line.substring( "IndexRemove ".length() );
+                    }
+                    else if ( line.startsWith( "File " ) )
+                    {
+                        files.add( line.substring( "File ".length() ).substring( remove.length() ) );
+                    }
+                }
+            }
+            finally
+            {
+                r.close();
+            }
+            Collections.sort( files );
+            PrintWriter w = new PrintWriter( new FileOutputStream( new File( db, JavaHelpIndexer.SCHEMA ) ) );
+            try
+            {
+                for ( String file : files )
+                {
+                    w.print( file.replace( File.separatorChar, '/' ) + "\n" );
+                }
+            }
+            finally
+            {
+                w.close();
+            }
+        }
+    }
+}
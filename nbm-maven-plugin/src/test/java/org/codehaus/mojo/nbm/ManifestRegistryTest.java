@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.mojo.nbm.utils.ExamineManifest;
+
+public class ManifestRegistryTest
+    extends TestCase
+{
+
+    private final Log log = new SystemStreamLog();
+
+    public ManifestRegistryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testConcurrentExaminationSharesResult()
+        throws Exception
+    {
+        final File jar = createModuleJar( "org.netbeans.api.foo", "1.2" );
+        final ManifestRegistry registry = new ManifestRegistry( null );
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<ExamineManifest>> results = new ArrayList<Future<ExamineManifest>>();
+            for ( int i = 0; i < 16; i++ )
+            {
+                results.add( executor.submit( new Callable<ExamineManifest>()
+                {
+                    public ExamineManifest call()
+                        throws Exception
+                    {
+                        return registry.examine( jar, log );
+                    }
+                } ) );
+            }
+            ExamineManifest first = results.get( 0 ).get();
+            assertTrue( first.isNetBeansModule() );
+            assertEquals( "org.netbeans.api.foo", first.getModule() );
+            for ( Future<ExamineManifest> result : results )
+            {
+                assertSame( first, result.get() );
+            }
+            assertEquals( 1, registry.size() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testChangedJarIsExaminedAgain()
+        throws Exception
+    {
+        File jar = createModuleJar( "org.netbeans.api.foo", "1.2" );
+        ManifestRegistry registry = new ManifestRegistry( null );
+        ExamineManifest first = registry.examine( jar, log );
+        assertSame( first, registry.examine( jar, log ) );
+
+        writeJar( jar, "org.netbeans.api.foo", "1.3" );
+        jar.setLastModified( jar.lastModified() + 10000 );
+        ExamineManifest second = registry.examine( jar, log );
+        assertNotSame( first, second );
+        assertEquals( "1.3", second.getSpecVersion() );
+        assertEquals( "1.2", first.getSpecVersion() );
+    }
+
+    private File createModuleJar( String cnb, String specVersion )
+        throws Exception
+    {
+        File jar = File.createTempFile( "registry", ".jar" );
+        jar.deleteOnExit();
+        writeJar( jar, cnb, specVersion );
+        return jar;
+    }
+
+    private static void writeJar( File jar, String cnb, String specVersion )
+        throws Exception
+    {
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        mf.getMainAttributes().putValue( "OpenIDE-Module", cnb );
+        mf.getMainAttributes().putValue( "OpenIDE-Module-Specification-Version", specVersion );
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ), mf );
+        out.close();
+    }
+}
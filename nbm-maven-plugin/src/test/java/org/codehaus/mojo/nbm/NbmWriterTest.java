@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.apache.tools.ant.Project;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.netbeans.nbbuild.MakeNBM;
+import org.netbeans.nbbuild.MakeNBM.Blurb;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+public class NbmWriterTest
+    extends TempDirTestCase
+{
+
+    private File cluster;
+
+    private File moduleJar;
+
+    public NbmWriterTest( String testName )
+    {
+        super( testName );
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        cluster = new File( dir, "cluster" );
+        moduleJar = new File( cluster, "modules/org-example-mod.jar" );
+        moduleJar.getParentFile().mkdirs();
+        Manifest manifest = new Manifest();
+        Attributes a = manifest.getMainAttributes();
+        a.put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        a.putValue( "OpenIDE-Module", "org.example.mod/1" );
+        a.putValue( "OpenIDE-Module-Specification-Version", "1.2" );
+        a.putValue( "OpenIDE-Module-Localizing-Bundle", "org/example/mod/Bundle.properties" );
+        a.putValue( "OpenIDE-Module-Layer", "org/example/mod/layer.xml" );
+        a.putValue( "AutoUpdate-Show-In-Client", "true" );
+        JarOutputStream jar = new JarOutputStream( new FileOutputStream( moduleJar ), manifest );
+        try
+        {
+            jar.putNextEntry( new ZipEntry( "org/example/mod/Bundle.properties" ) );
+            jar.write( "OpenIDE-Module-Name=Example & Co\nOpenIDE-Module-Long-Description=One\\nTwo\n".getBytes( "ISO-8859-1" ) );
+            jar.closeEntry();
+        }
+        finally
+        {
+            jar.close();
+        }
+        byte[] text = new byte[3 * 1024 * 1024];
+        for ( int i = 0; i < text.length; i++ )
+        {
+            text[i] = (byte) ( 'a' + i % 7 );
+        }
+        File big = new File( cluster, "modules/lib/big.txt" );
+        big.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream( big );
+        try
+        {
+            out.write( text );
+        }
+        finally
+        {
+            out.close();
+        }
+        File config = new File( cluster, "config/Modules/org-example-mod.xml" );
+        config.getParentFile().mkdirs();
+        FileUtils.fileWrite( config, "UTF-8", "<module name=\"org.example.mod\">\n"
+            + "    <param name=\"autoload\">true</param>\n    <param name=\"eager\">false</param>\n</module>\n" );
+        File tracking = new File( cluster, "update_tracking/org-example-mod.xml" );
+        tracking.getParentFile().mkdirs();
+        FileUtils.fileWrite( tracking, "UTF-8", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<module codename=\"org.example.mod/1\">\n"
+            + "    <module_version install_time=\"1\" last=\"true\" origin=\"installer\" specification_version=\"1.2\">\n"
+            + "        <file crc=\"1\" name=\"config/Modules/org-example-mod.xml\"/>\n"
+            + "        <file crc=\"2\" name=\"modules/lib/big.txt\"/>\n"
+            + "        <file crc=\"3\" name=\"modules/org-example-mod.jar\"/>\n"
+            + "    </module_version>\n</module>\n" );
+    }
+
+    public void testInfoXml()
+        throws Exception
+    {
+        NbmWriter writer = new NbmWriter( cluster, moduleJar );
+        writer.setDistribution( "org-example-mod.nbm" );
+        writer.setReleaseDate( "2026/10/17" );
+        writer.setTargetCluster( "extra2" );
+        writer.setLicense( "Example license", "Use it\n& be <happy>" );
+        assertEquals( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE module PUBLIC \"-//NetBeans//DTD Autoupdate Module Info 2.5//EN\" "
+            + "\"http://www.netbeans.org/dtds/autoupdate-info-2_5.dtd\">\n"
+            + "<module codenamebase=\"org.example.mod\" distribution=\"org-example-mod.nbm\""
+            + " downloadsize=\"0\" license=\"Example license\" needsrestart=\"false\" releasedate=\"2026/10/17\""
+            + " targetcluster=\"extra2\">\n"
+            + "    <manifest AutoUpdate-Show-In-Client=\"true\" OpenIDE-Module=\"org.example.mod/1\""
+            + " OpenIDE-Module-Long-Description=\"One&#10;Two\" OpenIDE-Module-Name=\"Example &amp; Co\""
+            + " OpenIDE-Module-Specification-Version=\"1.2\"/>\n"
+            + "    <license name=\"Example license\">Use it\n&amp; be &lt;happy&gt;</license>\n"
+            + "</module>\n", writer.createInfoXml() );
+        assertTrue( NbmWriter.isSupported( moduleJar ) );
+    }
+
+    public void testSameInfoXmlAsMakeNbm()
+        throws Exception
+    {
+        File license = new File( dir, "license.txt" );
+        FileUtils.fileWrite( license, "UTF-8", "Use it\n\n    & be <happy> \u00e0 ${user.name}\n" );
+        assertSameInfoXml( license );
+        assertSameInfoXml( null );
+    }
+
+    /**
+     * Compares the module description with the one of an NBM file written by the <code>makenbm</code> task.
+     * @param license license file, or null for a license given as text
+     */
+    private void assertSameInfoXml( File license )
+        throws Exception
+    {
+        Project project = new Project();
+        project.init();
+        MakeNBM task = new MakeNBM();
+        task.setProject( project );
+        File nbm = new File( dir, "makenbm.nbm" );
+        // the task does not replace an NBM file newer than the module
+        nbm.delete();
+        task.setFile( nbm );
+        task.setProductDir( cluster );
+        task.setModule( "modules/org-example-mod.jar" );
+        task.setNeedsrestart( "true" );
+        task.setModuleauthor( "Joe" );
+        task.setHomepage( "http://example.org/" );
+        task.setDistribution( "org-example-mod.nbm" );
+        task.setTargetcluster( "extra2" );
+        task.setReleasedate( "2026/10/17" );
+        configureLicense( task.createLicense(), license );
+        task.execute();
+        String expected;
+        ZipFile zip = new ZipFile( nbm );
+        try
+        {
+            expected = IOUtil.toString( zip.getInputStream( zip.getEntry( "Info/info.xml" ) ), "UTF-8" );
+        }
+        finally
+        {
+            zip.close();
+        }
+
+        NbmWriter writer = new NbmWriter( cluster, moduleJar );
+        writer.setNeedsRestart( true );
+        writer.setModuleAuthor( "Joe" );
+        writer.setHomepage( "http://example.org/" );
+        writer.setDistribution( "org-example-mod.nbm" );
+        writer.setTargetCluster( "extra2" );
+        writer.setReleaseDate( "2026/10/17" );
+        MakeNBM licenseTask = new MakeNBM();
+        licenseTask.setProject( project );
+        writer.setLicense( configureLicense( licenseTask.createLicense(), license ) );
+        assertEquals( describe( expected ), describe( writer.createInfoXml() ) );
+    }
+
+    private static Blurb configureLicense( Blurb blurb, File license )
+    {
+        if ( license != null )
+        {
+            blurb.setFile( license );
+            blurb.addText( "Example license" );
+        }
+        else
+        {
+            blurb.addText( "License header" );
+            blurb.addText( "    First line\n\n      second line\n    third line" );
+        }
+        return blurb;
+    }
+
+    /**
+     * @return the document type, elements, attributes and text of an xml document in a canonical form
+     */
+    private static String describe( String xml )
+        throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature( "http://apache.org/xml/features/nonvalidating/load-external-dtd", false );
+        Document doc = factory.newDocumentBuilder().parse( new InputSource( new StringReader( xml ) ) );
+        StringBuilder sb = new StringBuilder( doc.getDoctype().getPublicId() );
+        describe( doc.getDocumentElement(), sb );
+        return sb.toString();
+    }
+
+    private static void describe( Element element, StringBuilder sb )
+    {
+        sb.append( "\n<" ).append( element.getTagName() );
+        Map<String, String> attributes = new TreeMap<String, String>();
+        NamedNodeMap map = element.getAttributes();
+        for ( int i = 0; i < map.getLength(); i++ )
+        {
+            attributes.put( map.item( i ).getNodeName(), map.item( i ).getNodeValue() );
+        }
+        sb.append( attributes ).append( '>' );
+        for ( Node child = element.getFirstChild(); child != null; child = child.getNextSibling() )
+        {
+            if ( child instanceof Element )
+            {
+                describe( (Element) child, sb );
+            }
+            else if ( element.getTagName().equals( "license" ) )
+            {
+                sb.append( child.getNodeValue() );
+            }
+        }
+    }
+
+    public void testWrite()
+        throws Exception
+    {
+        NbmWriter writer = new NbmWriter( cluster, moduleJar );
+        writer.setThreads( 3 );
+        writer.setTime( 1000000000000L );
+        File nbm = new File( dir, "org-example-mod.nbm" );
+        writer.write( nbm );
+        ZipFile zip = new ZipFile( nbm );
+        try
+        {
+            List<String> names = new ArrayList<String>();
+            for ( Enumeration<? extends ZipEntry> en = zip.entries(); en.hasMoreElements(); )
+            {
+                names.add( en.nextElement().getName() );
+            }
+            assertEquals( Arrays.asList( "META-INF/", "META-INF/MANIFEST.MF", "Info/", "Info/info.xml", "netbeans/",
+                                         "netbeans/config/", "netbeans/config/Modules/",
+                                         "netbeans/config/Modules/org-example-mod.xml", "netbeans/modules/",
+                                         "netbeans/modules/lib/", "netbeans/modules/lib/big.txt",
+                                         "netbeans/modules/org-example-mod.jar" ), names );
+            ZipEntry big = zip.getEntry( "netbeans/modules/lib/big.txt" );
+            assertEquals( ZipEntry.DEFLATED, big.getMethod() );
+            assertEquals( 3 * 1024 * 1024, big.getSize() );
+            assertTrue( big.getCompressedSize() < big.getSize() / 10 );
+            byte[] content = IOUtil.toByteArray( zip.getInputStream( big ) );
+            assertEquals( 'a' + 12345 % 7, content[12345] );
+            ZipEntry jar = zip.getEntry( "netbeans/modules/org-example-mod.jar" );
+            assertEquals( ZipEntry.STORED, jar.getMethod() );
+            assertTrue( Arrays.equals( FileUtils.fileRead( moduleJar, "ISO-8859-1" ).getBytes( "ISO-8859-1" ),
+                                       IOUtil.toByteArray( zip.getInputStream( jar ) ) ) );
+            assertEquals( writer.createInfoXml(),
+                          IOUtil.toString( zip.getInputStream( zip.getEntry( "Info/info.xml" ) ), "UTF-8" ) );
+            // readers take the UTC fields for local time
+            long local = 1000000000000L - TimeZone.getDefault().getOffset( 1000000000000L );
+            assertEquals( local / 2000, big.getTime() / 2000 );
+        }
+        finally
+        {
+            zip.close();
+        }
+        long first = nbm.length();
+        byte[] bytes = FileUtils.fileRead( nbm, "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+        writer.setThreads( 1 );
+        writer.write( nbm );
+        assertEquals( first, nbm.length() );
+        assertTrue( Arrays.equals( bytes, FileUtils.fileRead( nbm, "ISO-8859-1" ).getBytes( "ISO-8859-1" ) ) );
+    }
+
+    /**
+     * More entries than compressed ahead of the writer.
+     */
+    public void testManyEntries()
+        throws Exception
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            FileUtils.fileWrite( new File( cluster, "modules/lib/file" + i + ".txt" ), "UTF-8", "content " + i );
+        }
+        NbmWriter writer = new NbmWriter( cluster, moduleJar );
+        writer.setThreads( 2 );
+        File nbm = new File( dir, "org-example-mod.nbm" );
+        writer.write( nbm );
+        ZipFile zip = new ZipFile( nbm );
+        try
+        {
+            assertEquals( 112, zip.size() );
+            for ( int i = 0; i < 100; i++ )
+            {
+                assertEquals( "content " + i, IOUtil.toString(
+                    zip.getInputStream( zip.getEntry( "netbeans/modules/lib/file" + i + ".txt" ) ), "UTF-8" ) );
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    /**
+     * An entry of several blocks is one deflate stream with the checksum of the whole content.
+     */
+    public void testBlocks()
+        throws Exception
+    {
+        byte[] text = new byte[5 * NbmWriter.BLOCK_SIZE + 123];
+        Random random = new Random( 42 );
+        for ( int i = 0; i < text.length; i++ )
+        {
+            text[i] = (byte) ( 'a' + random.nextInt( 4 ) );
+        }
+        File lib = new File( cluster, "modules/lib/native.so" );
+        FileOutputStream out = new FileOutputStream( lib );
+        try
+        {
+            out.write( text );
+        }
+        finally
+        {
+            out.close();
+        }
+        NbmWriter writer = new NbmWriter( cluster, moduleJar );
+        writer.setThreads( 4 );
+        File nbm = new File( dir, "org-example-mod.nbm" );
+        writer.write( nbm );
+        // unlike ZipFile the stream checks the checksums and sizes
+        ZipInputStream in = new ZipInputStream( new FileInputStream( nbm ) );
+        try
+        {
+            int count = 0;
+            for ( ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry() )
+            {
+                byte[] content = IOUtil.toByteArray( in );
+                if ( entry.getName().equals( "netbeans/modules/lib/native.so" ) )
+                {
+                    assertTrue( Arrays.equals( text, content ) );
+                    CRC32 crc = new CRC32();
+                    crc.update( text );
+                    assertEquals( crc.getValue(), entry.getCrc() );
+                    assertEquals( ZipEntry.DEFLATED, entry.getMethod() );
+                    assertTrue( entry.getCompressedSize() < text.length / 3 );
+                }
+                count++;
+            }
+            assertEquals( 13, count );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public void testCombineCrc()
+    {
+        byte[] data = new byte[100000];
+        new Random( 7 ).nextBytes( data );
+        CRC32 all = new CRC32();
+        all.update( data );
+        for ( int split : new int[] { 0, 1, 4096, 65536, 99999, 100000 } )
+        {
+            CRC32 first = new CRC32();
+            first.update( data, 0, split );
+            CRC32 second = new CRC32();
+            second.update( data, split, data.length - split );
+            assertEquals( String.valueOf( split ), all.getValue(),
+                          NbmWriter.combineCrc( first.getValue(), second.getValue(), data.length - split ) );
+        }
+    }
+
+    public void testDosTimeIndependentOfTimeZone()
+    {
+        // 2026-01-01T00:30:10Z
+        long time = 1767227410000L;
+        long expected = ( 46L << 25 ) | ( 1 << 21 ) | ( 1 << 16 ) | ( 30 << 5 ) | 5;
+        TimeZone old = TimeZone.getDefault();
+        try
+        {
+            for ( String zone : new String[] { "UTC", "America/Los_Angeles", "Asia/Tokyo" } )
+            {
+                TimeZone.setDefault( TimeZone.getTimeZone( zone ) );
+                assertEquals( zone, expected, NbmWriter.dosTime( time ) );
+            }
+        }
+        finally
+        {
+            TimeZone.setDefault( old );
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
+import org.codehaus.mojo.nbm.model.NetBeansModule;
+import org.codehaus.mojo.nbm.utils.ExamineManifest;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReflectionUtils;
+
+public class RuntimeVerifierTest
+    extends TempDirTestCase
+{
+
+    private MavenSession session;
+
+    private Artifact api;
+
+    private List<String> lines;
+
+    private RecordingLog log;
+
+    public RuntimeVerifierTest( String testName )
+    {
+        super( testName );
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        session = new MavenSession( null, null, new DefaultMavenExecutionRequest(),
+                                    new DefaultMavenExecutionResult() );
+        api = createArtifact( "api", "jar" );
+        api.setFile( createJar( new File( dir, "api-1.0.jar" ), Hidden.class ) );
+        lines = new ArrayList<String>();
+        log = new RecordingLog( lines );
+    }
+
+    public void testTakeDeferredOnce()
+        throws Exception
+    {
+        RuntimeVerifier.Module first = createModule( "first", Plain.class, false );
+        RuntimeVerifier.Module second = createModule( "second", Plain.class, false );
+        RuntimeVerifier.defer( session, first );
+        RuntimeVerifier.defer( session, second );
+        assertEquals( Arrays.asList( first, second ), RuntimeVerifier.takeDeferred( session ) );
+        assertTrue( RuntimeVerifier.takeDeferred( session ).isEmpty() );
+    }
+
+    /**
+     * The verify goal reports the same problems as the manifest goal verifying the module right away.
+     */
+    public void testDeferredCheckReportsSameMessages()
+        throws Exception
+    {
+        RuntimeVerifier.Module module = createModule( "user", User.class, true );
+        NetBeansManifestUpdateMojo manifest = createManifestMojo( false );
+        try
+        {
+            manifest.verifyRuntimeDependencies( module );
+            fail();
+        }
+        catch ( MojoFailureException ex )
+        {
+            log.error( ex.getMessage() );
+        }
+        List<String> immediate = new ArrayList<String>( lines );
+        assertTrue( immediate.toString(), immediate.contains(
+            "error Project depends on packages not accessible at runtime in module " + api.getId() ) );
+        lines.clear();
+
+        manifest = createManifestMojo( true );
+        assertFalse( manifest.verifyRuntimeDependencies( module ) );
+        manifest.recordVerification( module, false, new File( dir, "user.inputs" ), "inputs" );
+        lines.clear();
+        try
+        {
+            createVerifyMojo( module.project ).execute();
+            fail();
+        }
+        catch ( MojoFailureException ex )
+        {
+            // reported at the end
+        }
+        assertEquals( "info Runtime verification of " + module.project.getId(), lines.get( 0 ) );
+        assertEquals( immediate, lines.subList( 1, lines.size() ) );
+    }
+
+    public void testDeferredFlow()
+        throws Exception
+    {
+        RuntimeVerifier.Module user = createModule( "user", User.class, true );
+        RuntimeVerifier.Module plain = createModule( "plain", Plain.class, true );
+        File userInputs = new File( dir, "user.inputs" );
+        File plainInputs = new File( dir, "plain.inputs" );
+        Fingerprint.store( userInputs, "stale" );
+
+        // a parallel build finishes the manifest goal of the later module first
+        NetBeansManifestUpdateMojo manifest = createManifestMojo( true );
+        assertFalse( manifest.verifyRuntimeDependencies( plain ) );
+        manifest.recordVerification( plain, false, plainInputs, "plain inputs" );
+        assertFalse( manifest.verifyRuntimeDependencies( user ) );
+        manifest.recordVerification( user, false, userInputs, "user inputs" );
+        assertEquals( "[info Runtime verification deferred to the verify goal, "
+            + "info Runtime verification deferred to the verify goal]", lines.toString() );
+        assertFalse( userInputs.exists() );
+        assertFalse( plainInputs.exists() );
+        lines.clear();
+
+        try
+        {
+            createVerifyMojo( user.project, plain.project ).execute();
+            fail();
+        }
+        catch ( MojoFailureException ex )
+        {
+            assertEquals( "Runtime NetBeans dependencies verification failed for [" + user.project.getId()
+                + "], see above.", ex.getMessage() );
+        }
+        assertEquals( Arrays.asList(
+            "info Runtime verification of " + user.project.getId(),
+            "info Private classes referenced in module: [" + Hidden.class.getName() + "]",
+            "error Project depends on packages not accessible at runtime in module " + api.getId(),
+            "error See above for failures in runtime NetBeans dependencies verification.",
+            "info Runtime verification of " + plain.project.getId() ), lines );
+        assertFalse( userInputs.exists() );
+        assertEquals( "plain inputs", Fingerprint.load( plainInputs ) );
+
+        // the checks are gone with the build
+        lines.clear();
+        createVerifyMojo( user.project, plain.project ).execute();
+        assertEquals( 1, lines.size() );
+        assertTrue( lines.get( 0 ), lines.get( 0 ).startsWith( "info No deferred runtime verification" ) );
+    }
+
+    private NetBeansManifestUpdateMojo createManifestMojo( boolean deferVerification )
+        throws Exception
+    {
+        NetBeansManifestUpdateMojo mojo = new NetBeansManifestUpdateMojo();
+        mojo.setLog( log );
+        mojo.session = session;
+        ReflectionUtils.setVariableValueInObject( mojo, "deferVerification", deferVerification );
+        return mojo;
+    }
+
+    private VerifyMojo createVerifyMojo( MavenProject... reactorProjects )
+        throws Exception
+    {
+        VerifyMojo mojo = new VerifyMojo();
+        mojo.setLog( log );
+        mojo.session = session;
+        ReflectionUtils.setVariableValueInObject( mojo, "reactorProjects", Arrays.asList( reactorProjects ) );
+        return mojo;
+    }
+
+    /**
+     * A module depending on the api module, with one class in its output folder.
+     */
+    private RuntimeVerifier.Module createModule( String artifactId, Class<?> content, boolean failOnError )
+        throws Exception
+    {
+        MavenProject project = new MavenProject();
+        project.setGroupId( "org.example" );
+        project.setArtifactId( artifactId );
+        project.setVersion( "1.0" );
+        project.setPackaging( "nbm" );
+        File target = new File( dir, artifactId + "/target" );
+        project.getBuild().setDirectory( target.getPath() );
+        project.getBuild().setOutputDirectory( new File( target, "classes" ).getPath() );
+        FileUtils.copyURLToFile( content.getClassLoader().getResource( path( content ) ),
+                                 new File( target, "classes/" + path( content ) ) );
+        project.setArtifacts( Collections.singleton( api ) );
+
+        Map<Artifact, ExamineManifest> examinerCache = new HashMap<Artifact, ExamineManifest>();
+        ExamineManifest manifest = new ExamineManifest( log );
+        manifest.setNetBeansModule( true );
+        examinerCache.put( api, manifest );
+        DefaultDependencyNode root =
+            new DefaultDependencyNode( null, createArtifact( artifactId, "nbm" ), "1.0", "", "1.0" );
+        DefaultDependencyNode node = new DefaultDependencyNode( root, api, "1.0", "compile", "1.0" );
+        node.setChildren( Collections.<DependencyNode>emptyList() );
+        root.setChildren( Collections.<DependencyNode>singletonList( node ) );
+        List<Artifact> runtimes = Collections.singletonList( api );
+        DependencyClassification classification = DependencyClassification.classify( root, new NetBeansModule(),
+            null, runtimes, runtimes, examinerCache, null, log, false );
+        return new RuntimeVerifier.Module( project, classification, "org.example." + artifactId, failOnError,
+                                           false );
+    }
+
+    private static Artifact createArtifact( String artifactId, String type )
+    {
+        DefaultArtifactHandler handler = new DefaultArtifactHandler( type );
+        handler.setAddedToClasspath( true );
+        Artifact a = new DefaultArtifact( "org.example", artifactId, VersionRange.createFromVersion( "1.0" ),
+                                          "compile", type, null, handler );
+        a.setDependencyTrail( Collections.<String>emptyList() );
+        return a;
+    }
+
+    private static String path( Class<?> clazz )
+    {
+        return clazz.getName().replace( '.', '/' ) + ".class";
+    }
+
+    private static File createJar( File jar, Class<?> content )
+        throws Exception
+    {
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+        try
+        {
+            out.putNextEntry( new JarEntry( path( content ) ) );
+            IOUtil.copy( content.getClassLoader().getResourceAsStream( path( content ) ), out );
+        }
+        finally
+        {
+            out.close();
+        }
+        return jar;
+    }
+
+    /**
+     * Class in a package the api module does not make public.
+     */
+    public static final class Hidden
+    {
+    }
+
+    /**
+     * Class using the private class of the api module.
+     */
+    public static final class User
+    {
+        Object use()
+        {
+            return new Hidden();
+        }
+    }
+
+    /**
+     * Class using nothing of the api module.
+     */
+    public static final class Plain
+    {
+    }
+
+    private static final class RecordingLog
+        extends SystemStreamLog
+    {
+        private final List<String> lines;
+
+        RecordingLog( List<String> lines )
+        {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean isDebugEnabled()
+        {
+            return false;
+        }
+
+        @Override
+        public void info( CharSequence content )
+        {
+            lines.add( "info " + content );
+        }
+
+        @Override
+        public void warn( CharSequence content )
+        {
+            lines.add( "warn " + content );
+        }
+
+        @Override
+        public void error( CharSequence content )
+        {
+            lines.add( "error " + content );
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm;
+
+import java.io.File;
+import org.codehaus.plexus.util.FileUtils;
+
+public class UpdateTrackingTest
+    extends TempDirTestCase
+{
+
+    public UpdateTrackingTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testWrite()
+        throws Exception
+    {
+        File external = new File( dir, "modules/ext/junit-4.12.jar.external" );
+        external.getParentFile().mkdirs();
+        FileUtils.fileWrite( external, "UTF-8", "CRC:1355517765\nSIZE:314932\nURL:m2:/junit:junit:4.12:jar\n" );
+        UpdateTracking tracking = new UpdateTracking( "org.example.mod/1", "1.0", 1000L );
+        tracking.addFile( "modules/org-example-mod.jar", 42L );
+        tracking.addFile( "config/Modules/org-example-mod.xml", 7L );
+        tracking.addExternal( "modules/ext/junit-4.12.jar.external", external );
+        File written = tracking.write( dir );
+        assertEquals( new File( dir, "update_tracking/org-example-mod.xml" ), written );
+        assertEquals( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<module codename=\"org.example.mod/1\">\n"
+            + "    <module_version install_time=\"1000\" last=\"true\" origin=\"installer\" specification_version=\"1.0\">\n"
+            + "        <file crc=\"7\" name=\"config/Modules/org-example-mod.xml\"/>\n"
+            + "        <file crc=\"1355517765\" name=\"modules/ext/junit-4.12.jar\"/>\n"
+            + "        <file crc=\"42\" name=\"modules/org-example-mod.jar\"/>\n"
+            + "    </module_version>\n"
+            + "</module>", FileUtils.fileRead( written, "UTF-8" ) );
+    }
+}
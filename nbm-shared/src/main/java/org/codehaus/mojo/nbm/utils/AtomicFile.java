@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Writes cache and state files aside and renames them into place, so that readers, also in parallel builds,
+ * never see a half written file. Writing is best effort: a file that cannot be written is simply missing
+ * or stale, and readers compute its content again.
+ */
+public final class AtomicFile
+{
+
+    /**
+     * Content of a file.
+     */
+    public interface Content
+    {
+        /**
+         * @param out stream to write to, closed by the caller
+         * @throws IOException when writing fails
+         */
+        void writeTo( OutputStream out )
+            throws IOException;
+    }
+
+    private AtomicFile()
+    {
+    }
+
+    /**
+     * Replaces the file, creating its folder when needed.
+     * @param file file to write
+     * @param content content of the file
+     * @return true if the file was replaced
+     */
+    public static boolean write( File file, Content content )
+    {
+        File dir = file.getParentFile();
+        OutputStream out = null;
+        File temp = null;
+        try
+        {
+            dir.mkdirs();
+            temp = File.createTempFile( file.getName(), ".tmp", dir );
+            out = new BufferedOutputStream( new FileOutputStream( temp ) );
+            content.writeTo( out );
+            out.close();
+            out = null;
+            if ( !temp.renameTo( file ) )
+            {
+                // renaming over an existing file fails on Windows
+                file.delete();
+                if ( !temp.renameTo( file ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch ( IOException ex )
+        {
+            return false;
+        }
+        finally
+        {
+            IOUtil.close( out );
+            if ( temp != null && temp.exists() )
+            {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Replaces the file with the properties.
+     * @param file file to write
+     * @param props properties to store
+     * @return true if the file was replaced
+     */
+    public static boolean write( File file, final Properties props )
+    {
+        return write( file, new Content()
+        {
+            public void writeTo( OutputStream out )
+                throws IOException
+            {
+                props.store( out, null );
+            }
+        } );
+    }
+}
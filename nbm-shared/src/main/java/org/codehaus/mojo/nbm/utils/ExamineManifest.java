@@ -16,6 +16,7 @@
  */
 package org.codehaus.mojo.nbm.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -30,6 +31,7 @@ import java.util.StringTokenizer;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import java.util.zip.ZipException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.StringUtils;
@@ -70,6 +72,15 @@ public class ExamineManifest
     //that's the default behaviour without the special manifest entry
     private boolean bundleAutoload = true;
 
+    private ManifestCache manifestCache;
+
+    private volatile ManifestInfo manifestInfo;
+
+    /**
+     * Main attributes whose dependency headers were not decoded yet.
+     */
+    private Attributes rawAttributes;
+
     public ExamineManifest( Log logger )
     {
         this.logger = logger;
@@ -84,30 +95,14 @@ public class ExamineManifest
         Manifest mf = null;
         if ( jarFile != null )
         {
-            JarFile jar = null;
             try
             {
-                jar = new JarFile( jarFile );
-                mf = jar.getManifest();
+                mf = manifestCache != null ? manifestCache.getManifest( jarFile ) : readJarManifest( jarFile );
             }
             catch ( Exception exc )
             {
                 throw new MojoExecutionException( "Could not open " + jarFile + ": " + exc.getMessage(), exc );
             }
-            finally
-            {
-                if ( jar != null )
-                {
-                    try
-                    {
-                        jar.close();
-                    }
-                    catch ( IOException io )
-                    {
-                        throw new MojoExecutionException( io.getMessage(), io );
-                    }
-                }
-            }
         }
         else if ( manifestFile != null )
         {
@@ -159,8 +154,38 @@ public class ExamineManifest
         }
     }
 
+    static Manifest readJarManifest( File file )
+        throws IOException
+    {
+        try
+        {
+            byte[] bytes = ZipCentralDirectory.readManifestBytes( file );
+            return bytes == null ? null : new Manifest( new ByteArrayInputStream( bytes ) );
+        }
+        catch ( ZipException ex )
+        {
+            // unusual archive, let JarFile deal with it
+        }
+        JarFile jar = new JarFile( file );
+        try
+        {
+            return jar.getManifest();
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
     private void resetExamination()
     {
+        manifestInfo = null;
+        rawAttributes = null;
+        dependencyTokens = Collections.<String>emptyList();
+        osgiImports = Collections.<String>emptySet();
+        osgiExports = Collections.<String>emptySet();
+        requires = Collections.<String>emptyList();
+        provides = Collections.<String>emptyList();
         setNetBeansModule( false );
         this.localized = false;
         this.specVersion = null;
@@ -208,49 +233,8 @@ public class ExamineManifest
             }
             if ( populateDependencies )
             {
-                String deps = attrs.getValue( "OpenIDE-Module-Module-Dependencies" );
-                if ( deps != null )
-                {
-                    StringTokenizer tokens = new StringTokenizer( deps, "," );
-                    List<String> depList = new ArrayList<String>();
-                    while ( tokens.hasMoreTokens() )
-                    {
-                        String tok = tokens.nextToken();
-                        //we are just interested in specification and loose dependencies.
-                        int spec = tok.indexOf( '>' );
-                        int impl = tok.indexOf( '=');
-                        if ( spec > 0 )
-                        {
-                            tok = tok.substring( 0, spec );
-                        }
-                        else if ( impl > 0 )
-                        {
-                            tok = tok.substring( 0, impl );
-                        }
-                        int slash = tok.indexOf( '/' );
-                        if ( slash > 0 )
-                        {
-                            tok = tok.substring( 0, slash );
-                        }
-                        depList.add( tok.trim().intern() );
-                    }
-                    this.dependencyTokens = depList;
-                }
-                String req = attrs.getValue( "OpenIDE-Module-Requires" );
-                String prov = attrs.getValue( "OpenIDE-Module-Provides" );
-                String needs = attrs.getValue( "OpenIDE-Module-Needs" );
-                if (prov != null) {
-                    provides = Arrays.asList( StringUtils.stripAll( StringUtils.split( prov, "," ) ));
-                }
-                if (req != null || needs != null) {
-                    requires = new ArrayList<String>();
-                    if (req != null) {
-                        requires.addAll(Arrays.asList( StringUtils.stripAll( StringUtils.split( req, "," ) )));
-                    }
-                    if (needs != null) {
-                        requires.addAll(Arrays.asList( StringUtils.stripAll( StringUtils.split( needs, "," ) )));
-                    }
-                }
+                // decoded on first access, most callers never ask
+                this.rawAttributes = attrs;
             }
 
         }
@@ -273,41 +257,7 @@ public class ExamineManifest
                 this.publicPackages = exp != null;
                 if ( populateDependencies )
                 {
-                    //well, this doesn't appear to cover the major way of declation dependencies in osgi - Import-Package
-                    String deps = attrs.getValue( "Require-Bundle" );
-                    if ( deps != null )
-                    {
-                        List<String> depList = new ArrayList<String>();
-                        // http://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-                        for ( String piece : deps.split( ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)" ) )
-                        {
-                            depList.add( piece.replaceFirst( ";.+", "" ).trim().intern() );
-                        }
-                        this.dependencyTokens = depList;
-                    }
-                    String imps = attrs.getValue( "Import-Package" );
-                    if ( imps != null )
-                    {
-                        Set<String> depList = new HashSet<String>();
-                        // http://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-                        for ( String piece : imps.split( ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)" ) )
-                        {
-                            depList.add( piece.replaceFirst( ";.+", "" ).trim().intern() );
-                        }
-                        this.osgiImports = depList;
-                    }
-                    String exps = attrs.getValue( "Export-Package" );
-                    if ( exps != null )
-                    {
-                        Set<String> depList = new HashSet<String>();
-                        // http://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-                        for ( String piece : exps.split( ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)" ) )
-                        {
-                            depList.add( piece.replaceFirst( ";.+", "" ).trim().intern() );
-                        }
-                        this.osgiExports = depList;
-                    }
-                    
+                    this.rawAttributes = attrs;
                 }
             }
             else
@@ -335,6 +285,100 @@ public class ExamineManifest
 
     }
 
+    /**
+     * Splits the dependency related headers kept by {@link #processManifest}, once.
+     */
+    private synchronized void decodeDependencies()
+    {
+        Attributes attrs = rawAttributes;
+        if ( attrs == null )
+        {
+            return;
+        }
+        rawAttributes = null;
+        if ( isNetBeansModule() )
+        {
+            decodeNetBeansDependencies( attrs );
+        }
+        else
+        {
+            decodeOsgiDependencies( attrs );
+        }
+    }
+
+    private void decodeNetBeansDependencies( Attributes attrs )
+    {
+        String deps = attrs.getValue( "OpenIDE-Module-Module-Dependencies" );
+        if ( deps != null )
+        {
+            StringTokenizer tokens = new StringTokenizer( deps, "," );
+            List<String> depList = new ArrayList<String>();
+            while ( tokens.hasMoreTokens() )
+            {
+                String tok = tokens.nextToken();
+                //we are just interested in specification and loose dependencies.
+                int spec = tok.indexOf( '>' );
+                int impl = tok.indexOf( '=');
+                if ( spec > 0 )
+                {
+                    tok = tok.substring( 0, spec );
+                }
+                else if ( impl > 0 )
+                {
+                    tok = tok.substring( 0, impl );
+                }
+                int slash = tok.indexOf( '/' );
+                if ( slash > 0 )
+                {
+                    tok = tok.substring( 0, slash );
+                }
+                depList.add( tok.trim().intern() );
+            }
+            this.dependencyTokens = depList;
+        }
+        String req = attrs.getValue( "OpenIDE-Module-Requires" );
+        String prov = attrs.getValue( "OpenIDE-Module-Provides" );
+        String needs = attrs.getValue( "OpenIDE-Module-Needs" );
+        if (prov != null) {
+            provides = Arrays.asList( StringUtils.stripAll( StringUtils.split( prov, "," ) ));
+        }
+        if (req != null || needs != null) {
+            requires = new ArrayList<String>();
+            if (req != null) {
+                requires.addAll(Arrays.asList( StringUtils.stripAll( StringUtils.split( req, "," ) )));
+            }
+            if (needs != null) {
+                requires.addAll(Arrays.asList( StringUtils.stripAll( StringUtils.split( needs, "," ) )));
+            }
+        }
+    }
+
+    private void decodeOsgiDependencies( Attributes attrs )
+    {
+        //well, this doesn't appear to cover the major way of declation dependencies in osgi - Import-Package
+        String deps = attrs.getValue( "Require-Bundle" );
+        if ( deps != null )
+        {
+            List<String> depList = new ArrayList<String>();
+            OsgiHeader.parseNames( deps, depList );
+            this.dependencyTokens = depList;
+        }
+        String imps = attrs.getValue( "Import-Package" );
+        if ( imps != null )
+        {
+            Set<String> depList = new HashSet<String>();
+            OsgiHeader.parseNames( imps, depList );
+            this.osgiImports = depList;
+        }
+        String exps = attrs.getValue( "Export-Package" );
+        if ( exps != null )
+        {
+            Set<String> depList = new HashSet<String>();
+            OsgiHeader.parseNames( exps, depList );
+            this.osgiExports = depList;
+        }
+    }
+
     /**
      * The jar file to examine. It is exclusive with manifestFile.
      * @param jarFileLoc jar file
@@ -390,6 +434,7 @@ public class ExamineManifest
     public void setNetBeansModule( boolean netBeansModule )
     {
         this.netBeansModule = netBeansModule;
+        this.manifestInfo = null;
     }
 
     public boolean isLocalized()
@@ -436,6 +481,15 @@ public class ExamineManifest
         return publicPackages;
     }
 
+    /**
+     * Persistent cache to look up jar manifests in before opening the jar file.
+     * @param manifestCache cache or null to always read the jar
+     */
+    public void setManifestCache( ManifestCache manifestCache )
+    {
+        this.manifestCache = manifestCache;
+    }
+
     public void setPopulateDependencies( boolean populateDependencies )
     {
         this.populateDependencies = populateDependencies;
@@ -443,6 +497,7 @@ public class ExamineManifest
 
     public List<String> getDependencyTokens()
     {
+        decodeDependencies();
         return dependencyTokens;
     }
 
@@ -477,21 +532,25 @@ public class ExamineManifest
 
     public Set<String> getOsgiImports()
     {
+        decodeDependencies();
         return osgiImports;
     }
 
     public Set<String> getOsgiExports()
     {
+        decodeDependencies();
         return osgiExports;
     }
     
     public List<String> getNetBeansRequiresTokens()
     {
+        decodeDependencies();
         return requires;
     }
 
     public List<String> getNetBeansProvidesTokens()
     {
+        decodeDependencies();
         return provides;
     }
 
@@ -500,4 +559,19 @@ public class ExamineManifest
         return bundleAutoload;
     }
 
+    /**
+     * Immutable snapshot of the examination result, safe to cache and to share between threads.
+     * @return result of the last {@link #checkFile()}
+     */
+    public ManifestInfo getManifestInfo()
+    {
+        ManifestInfo info = manifestInfo;
+        if ( info == null )
+        {
+            info = new ManifestInfo( this );
+            manifestInfo = info;
+        }
+        return info;
+    }
+
 }
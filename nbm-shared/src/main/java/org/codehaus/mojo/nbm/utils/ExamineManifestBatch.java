@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Manifest;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Examines many jar files at once on a bounded thread pool.
+ * Reading manifests is mostly I/O, so large installations are examined considerably faster than one by one.
+ * Results are always returned in the order of the input files.
+ */
+public class ExamineManifestBatch
+{
+
+    private final Log logger;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private boolean populateDependencies;
+
+    private ManifestCache manifestCache;
+
+    public ExamineManifestBatch( Log logger )
+    {
+        this.logger = logger;
+    }
+
+    /**
+     * @param threads maximum number of jars examined at the same time, 1 examines serially
+     */
+    public void setThreads( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    /**
+     * @see ExamineManifest#setPopulateDependencies(boolean)
+     * @param populateDependencies whether dependency headers are examined too
+     */
+    public void setPopulateDependencies( boolean populateDependencies )
+    {
+        this.populateDependencies = populateDependencies;
+    }
+
+    /**
+     * @see ExamineManifest#setManifestCache(ManifestCache)
+     * @param manifestCache cache or null
+     */
+    public void setManifestCache( ManifestCache manifestCache )
+    {
+        this.manifestCache = manifestCache;
+    }
+
+    /**
+     * Examines all files, jars or folders like {@link ExamineManifest#setArtifactFile(File)} accepts.
+     * @param files files to examine
+     * @return examined manifests, in the order of the files
+     * @throws MojoExecutionException for the first file that cannot be examined
+     */
+    public List<ExamineManifest> examine( Collection<File> files )
+        throws MojoExecutionException
+    {
+        List<Callable<ExamineManifest>> tasks = new ArrayList<Callable<ExamineManifest>>( files.size() );
+        for ( final File file : files )
+        {
+            tasks.add( new Callable<ExamineManifest>()
+            {
+                public ExamineManifest call()
+                    throws MojoExecutionException
+                {
+                    ExamineManifest examinator = new ExamineManifest( logger );
+                    examinator.setPopulateDependencies( populateDependencies );
+                    examinator.setManifestCache( manifestCache );
+                    examinator.setArtifactFile( file );
+                    examinator.checkFile();
+                    return examinator;
+                }
+            } );
+        }
+        try
+        {
+            return run( tasks );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof MojoExecutionException )
+            {
+                throw (MojoExecutionException) ex.getCause();
+            }
+            throw new MojoExecutionException( ex.getCause().getMessage(), ex.getCause() );
+        }
+    }
+
+    /**
+     * Reads the raw manifests of jar files.
+     * @param jars jar files
+     * @return manifests in the order of the files, null items for jars without manifest
+     * @throws IOException for the first jar that cannot be read
+     */
+    public List<Manifest> readManifests( Collection<File> jars )
+        throws IOException
+    {
+        List<Callable<Manifest>> tasks = new ArrayList<Callable<Manifest>>( jars.size() );
+        for ( final File jar : jars )
+        {
+            tasks.add( new Callable<Manifest>()
+            {
+                public Manifest call()
+                    throws IOException
+                {
+                    return manifestCache != null ? manifestCache.getManifest( jar )
+                        : ExamineManifest.readJarManifest( jar );
+                }
+            } );
+        }
+        try
+        {
+            return run( tasks );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof IOException )
+            {
+                throw (IOException) ex.getCause();
+            }
+            IOException io = new IOException( ex.getCause().getMessage() );
+            io.initCause( ex.getCause() );
+            throw io;
+        }
+    }
+
+    private <T> List<T> run( List<Callable<T>> tasks )
+        throws ExecutionException
+    {
+        List<T> results = new ArrayList<T>( tasks.size() );
+        int poolSize = Math.min( threads, tasks.size() );
+        if ( poolSize <= 1 )
+        {
+            for ( Callable<T> task : tasks )
+            {
+                try
+                {
+                    results.add( task.call() );
+                }
+                catch ( Exception ex )
+                {
+                    throw new ExecutionException( ex );
+                }
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool( poolSize, new DaemonThreadFactory() );
+        try
+        {
+            List<Future<T>> futures = new ArrayList<Future<T>>( tasks.size() );
+            for ( Callable<T> task : tasks )
+            {
+                futures.add( executor.submit( task ) );
+            }
+            for ( Future<T> future : futures )
+            {
+                results.add( future.get() );
+            }
+            return results;
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException( ex );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class DaemonThreadFactory
+        implements ThreadFactory
+    {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        public Thread newThread( Runnable r )
+        {
+            Thread t = new Thread( r, "nbm-examine-manifest-" + COUNT.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Persistent cache of the main manifest attributes of jar files, shared between builds.
+ * Each jar gets one small properties file in the cache directory, named after a digest of the jar's path.
+ * An entry is only used when the jar's size and timestamp still match the recorded ones,
+ * otherwise the jar is opened again and the entry is replaced.
+ * Writing the cache is best effort, failures are ignored and the manifest is read from the jar.
+ */
+public final class ManifestCache
+{
+
+    private static final String KEY_PATH = "cache.path";
+
+    private static final String KEY_SIZE = "cache.size";
+
+    private static final String KEY_MODIFIED = "cache.modified";
+
+    private static final String KEY_MANIFEST = "cache.manifest";
+
+    private static final String ATTR_PREFIX = "attr.";
+
+    private final File directory;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param directory folder holding the cache entries, created on demand
+     */
+    public ManifestCache( File directory )
+    {
+        this.directory = directory;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Main attributes of the jar's manifest, either from the cache or from the jar itself.
+     * @param jar jar file
+     * @return the manifest or null if the jar has none
+     * @throws IOException when the jar cannot be read
+     */
+    public Manifest getManifest( File jar )
+        throws IOException
+    {
+        File jarFile = jar.getAbsoluteFile();
+        long size = jarFile.length();
+        long modified = jarFile.lastModified();
+        File entry = entryFile( jarFile );
+        Properties props = load( entry );
+        if ( props != null && jarFile.getPath().equals( props.getProperty( KEY_PATH ) )
+            && String.valueOf( size ).equals( props.getProperty( KEY_SIZE ) )
+            && String.valueOf( modified ).equals( props.getProperty( KEY_MODIFIED ) ) )
+        {
+            hits.incrementAndGet();
+            return toManifest( props );
+        }
+        misses.incrementAndGet();
+        Manifest mf = ExamineManifest.readJarManifest( jarFile );
+        store( entry, jarFile, size, modified, mf );
+        return mf;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups that had to open the jar
+     */
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Manifest cache at " + directory + ": " + getHits() + " hits, " + getMisses() + " misses";
+    }
+
+    private File entryFile( File jar )
+    {
+        String digest = digest( jar.getPath() );
+        return new File( new File( directory, digest.substring( 0, 2 ) ), digest + ".properties" );
+    }
+
+    private static Properties load( File entry )
+    {
+        if ( !entry.isFile() )
+        {
+            return null;
+        }
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( entry );
+            Properties props = new Properties();
+            props.load( in );
+            return props;
+        }
+        catch ( IOException ex )
+        {
+            // corrupted or concurrently replaced entry, treat as a miss
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private static Manifest toManifest( Properties props )
+    {
+        if ( !Boolean.parseBoolean( props.getProperty( KEY_MANIFEST ) ) )
+        {
+            return null;
+        }
+        Manifest mf = new Manifest();
+        Attributes attrs = mf.getMainAttributes();
+        for ( String key : props.stringPropertyNames() )
+        {
+            if ( key.startsWith( ATTR_PREFIX ) )
+            {
+                attrs.putValue( key.substring( ATTR_PREFIX.length() ), props.getProperty( key ) );
+            }
+        }
+        return mf;
+    }
+
+    private static void store( File entry, File jar, long size, long modified, Manifest mf )
+    {
+        Properties props = new Properties();
+        props.setProperty( KEY_PATH, jar.getPath() );
+        props.setProperty( KEY_SIZE, String.valueOf( size ) );
+        props.setProperty( KEY_MODIFIED, String.valueOf( modified ) );
+        props.setProperty( KEY_MANIFEST, String.valueOf( mf != null ) );
+        if ( mf != null )
+        {
+            for ( Map.Entry<Object, Object> attr : mf.getMainAttributes().entrySet() )
+            {
+                props.setProperty( ATTR_PREFIX + attr.getKey().toString(), String.valueOf( attr.getValue() ) );
+            }
+        }
+        AtomicFile.write( entry, props );
+    }
+
+    private static String digest( String value )
+    {
+        try
+        {
+            return Digests.toHex( Digests.create( "SHA-1" ).digest( value.getBytes( "UTF-8" ) ) );
+        }
+        catch ( UnsupportedEncodingException ex )
+        {
+            throw new IllegalStateException( ex );
+        }
+    }
+}
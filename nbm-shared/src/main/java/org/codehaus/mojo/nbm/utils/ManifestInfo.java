@@ -0,0 +1,306 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable result of {@link ExamineManifest#checkFile()}.
+ * The getters mirror the ones of {@link ExamineManifest}, so callers can switch by changing the declared type.
+ * Instances can be cached and shared between threads freely; lists and sets returned are unmodifiable.
+ */
+public final class ManifestInfo
+{
+
+    private static final String[] NONE = new String[0];
+
+    private final boolean netBeansModule;
+
+    private final boolean osgiBundle;
+
+    private final boolean localized;
+
+    private final boolean publicPackages;
+
+    private final boolean friendPackages;
+
+    private final boolean bundleAutoload;
+
+    private final String moduleWithRelease;
+
+    private final String module;
+
+    private final String specVersion;
+
+    private final String implVersion;
+
+    private final String classpath;
+
+    private final String[] packages;
+
+    private final String[] friends;
+
+    private final String[] dependencyTokens;
+
+    private final String[] requires;
+
+    private final String[] provides;
+
+    private final String[] osgiImports;
+
+    private final String[] osgiExports;
+
+    private final int hash;
+
+    ManifestInfo( ExamineManifest ex )
+    {
+        this.netBeansModule = ex.isNetBeansModule();
+        this.osgiBundle = ex.isOsgiBundle();
+        this.localized = ex.isLocalized();
+        this.publicPackages = ex.hasPublicPackages();
+        this.friendPackages = ex.hasFriendPackages();
+        this.bundleAutoload = ex.isBundleAutoload();
+        this.moduleWithRelease = intern( ex.getModuleWithRelease() );
+        this.module = intern( ex.getModule() );
+        this.specVersion = ex.getSpecVersion();
+        this.implVersion = ex.getImplVersion();
+        this.classpath = ex.getClasspath();
+        this.packages = toArray( ex.getPackages() );
+        this.friends = toArray( ex.getFriends() );
+        this.dependencyTokens = toArray( ex.getDependencyTokens() );
+        this.requires = toArray( ex.getNetBeansRequiresTokens() );
+        this.provides = toArray( ex.getNetBeansProvidesTokens() );
+        this.osgiImports = toSortedArray( ex.getOsgiImports() );
+        this.osgiExports = toSortedArray( ex.getOsgiExports() );
+        int h = Arrays.hashCode( new Object[] { moduleWithRelease, specVersion, implVersion, classpath } );
+        h = 31 * h + Arrays.hashCode( new boolean[] { netBeansModule, osgiBundle, localized, publicPackages,
+            friendPackages, bundleAutoload } );
+        h = 31 * h + Arrays.hashCode( packages );
+        h = 31 * h + Arrays.hashCode( friends );
+        h = 31 * h + Arrays.hashCode( dependencyTokens );
+        h = 31 * h + Arrays.hashCode( requires );
+        h = 31 * h + Arrays.hashCode( provides );
+        h = 31 * h + Arrays.hashCode( osgiImports );
+        h = 31 * h + Arrays.hashCode( osgiExports );
+        this.hash = h;
+    }
+
+    public boolean isNetBeansModule()
+    {
+        return netBeansModule;
+    }
+
+    public boolean isOsgiBundle()
+    {
+        return osgiBundle;
+    }
+
+    public boolean isLocalized()
+    {
+        return localized;
+    }
+
+    public String getSpecVersion()
+    {
+        return specVersion;
+    }
+
+    public String getImplVersion()
+    {
+        return implVersion;
+    }
+
+    /**
+     * Code name base of the module only, interned.
+     * @return module code name base
+     */
+    public String getModule()
+    {
+        return module;
+    }
+
+    /**
+     * @return code name base, then optionally slash and major release version
+     */
+    public String getModuleWithRelease()
+    {
+        return moduleWithRelease;
+    }
+
+    public String getClasspath()
+    {
+        return classpath;
+    }
+
+    /**
+     * @return true if there are public packages and no friend declaration
+     */
+    public boolean hasPublicPackages()
+    {
+        return publicPackages;
+    }
+
+    /**
+     * @return true if both public packages and friend list are declared
+     */
+    public boolean hasFriendPackages()
+    {
+        return friendPackages;
+    }
+
+    public List<String> getFriends()
+    {
+        return asList( friends );
+    }
+
+    /**
+     * @return package statements from OpenIDE-Module-Public-Packages
+     */
+    public List<String> getPackages()
+    {
+        return asList( packages );
+    }
+
+    public List<String> getDependencyTokens()
+    {
+        return asList( dependencyTokens );
+    }
+
+    public List<String> getNetBeansRequiresTokens()
+    {
+        return asList( requires );
+    }
+
+    public List<String> getNetBeansProvidesTokens()
+    {
+        return asList( provides );
+    }
+
+    public Set<String> getOsgiImports()
+    {
+        return new SortedArraySet( osgiImports );
+    }
+
+    public Set<String> getOsgiExports()
+    {
+        return new SortedArraySet( osgiExports );
+    }
+
+    public boolean isBundleAutoload()
+    {
+        return bundleAutoload;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( !( obj instanceof ManifestInfo ) )
+        {
+            return false;
+        }
+        ManifestInfo other = (ManifestInfo) obj;
+        return hash == other.hash && netBeansModule == other.netBeansModule && osgiBundle == other.osgiBundle
+            && localized == other.localized && publicPackages == other.publicPackages
+            && friendPackages == other.friendPackages && bundleAutoload == other.bundleAutoload
+            && equal( moduleWithRelease, other.moduleWithRelease ) && equal( specVersion, other.specVersion )
+            && equal( implVersion, other.implVersion ) && equal( classpath, other.classpath )
+            && Arrays.equals( packages, other.packages ) && Arrays.equals( friends, other.friends )
+            && Arrays.equals( dependencyTokens, other.dependencyTokens ) && Arrays.equals( requires, other.requires )
+            && Arrays.equals( provides, other.provides ) && Arrays.equals( osgiImports, other.osgiImports )
+            && Arrays.equals( osgiExports, other.osgiExports );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ManifestInfo[" + moduleWithRelease + " " + specVersion + "]";
+    }
+
+    private static boolean equal( String one, String two )
+    {
+        return one == null ? two == null : one.equals( two );
+    }
+
+    private static String intern( String value )
+    {
+        return value == null ? null : value.intern();
+    }
+
+    private static List<String> asList( String[] values )
+    {
+        return values.length == 0 ? Collections.<String>emptyList()
+            : Collections.unmodifiableList( Arrays.asList( values ) );
+    }
+
+    private static String[] toArray( Collection<String> values )
+    {
+        return values == null || values.isEmpty() ? NONE : values.toArray( new String[values.size()] );
+    }
+
+    private static String[] toSortedArray( Collection<String> values )
+    {
+        return values == null || values.isEmpty() ? NONE : toArray( new TreeSet<String>( values ) );
+    }
+
+    /**
+     * Read only set view of a sorted array without duplicates.
+     */
+    private static final class SortedArraySet
+        extends AbstractSet<String>
+    {
+        private final String[] values;
+
+        SortedArraySet( String[] values )
+        {
+            this.values = values;
+        }
+
+        @Override
+        public boolean contains( Object o )
+        {
+            return o instanceof String && Arrays.binarySearch( values, o ) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            return asList( values ).iterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return values.length;
+        }
+    }
+}
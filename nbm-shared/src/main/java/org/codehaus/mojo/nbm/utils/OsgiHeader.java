@@ -0,0 +1,287 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser of OSGi manifest headers like {@code Export-Package}, {@code Import-Package} or {@code Require-Bundle}.
+ * A header is a comma separated list of clauses, each clause being one or more names followed by
+ * {@code attribute=value} and {@code directive:=value} parameters separated by semicolons.
+ * Quoted values may contain commas and semicolons. The header is read once from left to right.
+ */
+public final class OsgiHeader
+{
+
+    private OsgiHeader()
+    {
+    }
+
+    /**
+     * Names of all clauses of the header, without attributes and directives.
+     * @param header header value, can be null
+     * @param names collection to add the interned names to
+     */
+    public static void parseNames( String header, Collection<String> names )
+    {
+        if ( header != null )
+        {
+            new Parser( header, names, null ).parse();
+        }
+    }
+
+    /**
+     * All clauses of the header including their parameters.
+     * @param header header value, can be null
+     * @return clauses in header order
+     */
+    public static List<Clause> parse( String header )
+    {
+        if ( header == null )
+        {
+            return Collections.emptyList();
+        }
+        List<Clause> clauses = new ArrayList<Clause>();
+        new Parser( header, null, clauses ).parse();
+        return clauses;
+    }
+
+    /**
+     * One clause of a header.
+     */
+    public static final class Clause
+    {
+        private final List<String> names;
+
+        private final Map<String, String> attributes;
+
+        private final Map<String, String> directives;
+
+        Clause( List<String> names, Map<String, String> attributes, Map<String, String> directives )
+        {
+            this.names = Collections.unmodifiableList( names );
+            this.attributes = attributes == null ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap( attributes );
+            this.directives = directives == null ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap( directives );
+        }
+
+        /**
+         * @return package or bundle names sharing the parameters of this clause
+         */
+        public List<String> getNames()
+        {
+            return names;
+        }
+
+        /**
+         * @return {@code name=value} parameters, typed attributes are keyed without the type
+         */
+        public Map<String, String> getAttributes()
+        {
+            return attributes;
+        }
+
+        /**
+         * @return {@code name:=value} parameters
+         */
+        public Map<String, String> getDirectives()
+        {
+            return directives;
+        }
+
+        @Override
+        public String toString()
+        {
+            return names + ";" + attributes + ";" + directives;
+        }
+    }
+
+    private static final class Parser
+    {
+        private final String header;
+
+        private final int length;
+
+        private final Collection<String> names;
+
+        private final List<Clause> clauses;
+
+        private int pos;
+
+        Parser( String header, Collection<String> names, List<Clause> clauses )
+        {
+            this.header = header;
+            this.length = header.length();
+            this.names = names;
+            this.clauses = clauses;
+        }
+
+        void parse()
+        {
+            while ( pos < length )
+            {
+                List<String> clauseNames = clauses != null ? new ArrayList<String>( 1 ) : null;
+                Map<String, String> attributes = null;
+                Map<String, String> directives = null;
+                while ( true )
+                {
+                    int start = pos;
+                    int typeSeparator = -1;
+                    char c = 0;
+                    while ( pos < length )
+                    {
+                        c = header.charAt( pos );
+                        if ( c == ';' || c == ',' || c == '=' )
+                        {
+                            break;
+                        }
+                        if ( c == ':' )
+                        {
+                            if ( pos + 1 < length && header.charAt( pos + 1 ) == '=' )
+                            {
+                                break;
+                            }
+                            typeSeparator = pos;
+                        }
+                        pos++;
+                    }
+                    if ( pos < length && ( c == '=' || c == ':' ) )
+                    {
+                        boolean directive = c == ':';
+                        pos += directive ? 2 : 1;
+                        String key = trim( start, typeSeparator >= 0 && !directive ? typeSeparator : pos - ( directive ? 2 : 1 ) );
+                        String value = readValue( clauses != null );
+                        if ( clauses != null )
+                        {
+                            if ( directive )
+                            {
+                                directives = put( directives, key, value );
+                            }
+                            else
+                            {
+                                attributes = put( attributes, key, value );
+                            }
+                        }
+                    }
+                    else
+                    {
+                        String name = trim( start, pos );
+                        if ( name.length() > 0 )
+                        {
+                            if ( names != null )
+                            {
+                                names.add( name.intern() );
+                            }
+                            else
+                            {
+                                clauseNames.add( name.intern() );
+                            }
+                        }
+                    }
+                    if ( pos < length && header.charAt( pos ) == ';' )
+                    {
+                        pos++;
+                        continue;
+                    }
+                    break;
+                }
+                pos++; // the comma
+                if ( clauseNames != null && !clauseNames.isEmpty() )
+                {
+                    clauses.add( new Clause( clauseNames, attributes, directives ) );
+                }
+            }
+        }
+
+        /**
+         * Reads a parameter value, leaving the position at the following separator.
+         */
+        private String readValue( boolean keep )
+        {
+            while ( pos < length && Character.isWhitespace( header.charAt( pos ) ) )
+            {
+                pos++;
+            }
+            String value = null;
+            if ( pos < length && header.charAt( pos ) == '"' )
+            {
+                pos++;
+                int start = pos;
+                StringBuilder escaped = null;
+                while ( pos < length && header.charAt( pos ) != '"' )
+                {
+                    if ( header.charAt( pos ) == '\\' && pos + 1 < length )
+                    {
+                        if ( keep && escaped == null )
+                        {
+                            escaped = new StringBuilder( header.substring( start, pos ) );
+                        }
+                        pos++;
+                    }
+                    if ( escaped != null )
+                    {
+                        escaped.append( header.charAt( pos ) );
+                    }
+                    pos++;
+                }
+                if ( keep )
+                {
+                    value = escaped != null ? escaped.toString() : header.substring( start, pos );
+                }
+                pos++; // closing quote
+            }
+            int start = pos;
+            while ( pos < length && header.charAt( pos ) != ';' && header.charAt( pos ) != ',' )
+            {
+                pos++;
+            }
+            if ( keep && value == null )
+            {
+                value = trim( start, pos );
+            }
+            return value;
+        }
+
+        private String trim( int start, int end )
+        {
+            while ( start < end && Character.isWhitespace( header.charAt( start ) ) )
+            {
+                start++;
+            }
+            while ( end > start && Character.isWhitespace( header.charAt( end - 1 ) ) )
+            {
+                end--;
+            }
+            return header.substring( start, end );
+        }
+
+        private static Map<String, String> put( Map<String, String> map, String key, String value )
+        {
+            if ( map == null )
+            {
+                map = new LinkedHashMap<String, String>();
+            }
+            map.put( key, value );
+            return map;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Matches class and package names against {@code OpenIDE-Module-Public-Packages} style declarations,
+ * {@code pkg.*} for the package itself and {@code pkg.**} for the package and all its subpackages.
+ * The declarations are kept in a trie of package name segments, so a lookup walks the segments
+ * of the name once regardless of how many packages are declared.
+ */
+public final class PackageMatcher
+{
+
+    private static final PackageMatcher ALL = new PackageMatcher( null );
+
+    private final Node root;
+
+    private PackageMatcher( Node root )
+    {
+        this.root = root;
+    }
+
+    /**
+     * @return matcher accepting every class and package
+     */
+    public static PackageMatcher all()
+    {
+        return ALL;
+    }
+
+    /**
+     * Creates a matcher from declarations like {@link ExamineManifest#getPackages()} returns.
+     * Tokens without a wildcard are taken as {@code pkg.*}.
+     * @param packages {@code pkg.*} and {@code pkg.**} tokens
+     * @return matcher
+     */
+    public static PackageMatcher forPublicPackages( Collection<String> packages )
+    {
+        Node root = new Node();
+        for ( String token : packages )
+        {
+            token = token.trim();
+            boolean subpackages = token.endsWith( ".**" );
+            if ( subpackages )
+            {
+                token = token.substring( 0, token.length() - ".**".length() );
+            }
+            else if ( token.endsWith( ".*" ) )
+            {
+                token = token.substring( 0, token.length() - ".*".length() );
+            }
+            if ( token.length() == 0 )
+            {
+                continue;
+            }
+            Node node = root;
+            int start = 0;
+            while ( start <= token.length() )
+            {
+                int end = token.indexOf( '.', start );
+                if ( end < 0 )
+                {
+                    end = token.length();
+                }
+                node = node.child( token.substring( start, end ) );
+                start = end + 1;
+            }
+            if ( subpackages )
+            {
+                node.subpackages = true;
+            }
+            else
+            {
+                node.exported = true;
+            }
+        }
+        return new PackageMatcher( root );
+    }
+
+    /**
+     * @param className fully qualified class name, nested classes with {@code $}
+     * @return true if the class is in a matching package
+     */
+    public boolean matchesClass( String className )
+    {
+        if ( root == null )
+        {
+            // also classes in the default package
+            return true;
+        }
+        int lastDot = className.lastIndexOf( '.' );
+        return lastDot > 0 && matches( className, lastDot );
+    }
+
+    /**
+     * @param packageName dot separated package name
+     * @return true if the package matches
+     */
+    public boolean matchesPackage( String packageName )
+    {
+        return root == null || packageName.length() > 0 && matches( packageName, packageName.length() );
+    }
+
+    private boolean matches( String name, int length )
+    {
+        Node node = root;
+        int start = 0;
+        while ( start <= length )
+        {
+            int end = name.indexOf( '.', start );
+            if ( end < 0 || end > length )
+            {
+                end = length;
+            }
+            node = node.get( name, start, end );
+            if ( node == null )
+            {
+                return false;
+            }
+            if ( node.subpackages )
+            {
+                return true;
+            }
+            start = end + 1;
+        }
+        return node.exported;
+    }
+
+    private static final class Node
+    {
+        private Map<String, Node> children;
+
+        boolean exported;
+
+        boolean subpackages;
+
+        Node child( String segment )
+        {
+            if ( children == null )
+            {
+                children = new HashMap<String, Node>( 4 );
+            }
+            Node child = children.get( segment );
+            if ( child == null )
+            {
+                child = new Node();
+                children.put( segment, child );
+            }
+            return child;
+        }
+
+        Node get( String name, int start, int end )
+        {
+            return children == null ? null : children.get( name.substring( start, end ) );
+        }
+    }
+}
@@ -0,0 +1,666 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal zip reader working on the central directory only.
+ * Opening it reads the end of central directory record and the central directory itself, nothing else;
+ * entry data is read on request with positional reads from the file channel.
+ * Archives it does not understand (zip64, multi disk, encrypted or unusually compressed entries)
+ * are rejected with a {@link ZipException}, callers are expected to fall back to {@link java.util.zip.ZipFile}.
+ */
+public final class ZipCentralDirectory
+    implements Closeable
+{
+
+    private static final int EOCD_SIG = 0x06054b50;
+
+    private static final int CEN_SIG = 0x02014b50;
+
+    private static final int LOC_SIG = 0x04034b50;
+
+    private static final int EOCD_SIZE = 22;
+
+    private static final int CEN_SIZE = 46;
+
+    private static final int LOC_SIZE = 30;
+
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer central;
+
+    private final int count;
+
+    private final long centralOffset;
+
+    private final byte[] comment;
+
+    private List<Entry> entries;
+
+    private ZipCentralDirectory( File file, RandomAccessFile raf, ByteBuffer central, int count, long centralOffset,
+                                 byte[] comment )
+    {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.central = central;
+        this.count = count;
+        this.centralOffset = centralOffset;
+        this.comment = comment;
+    }
+
+    /**
+     * Opens the archive and reads its central directory.
+     * @param file zip or jar file
+     * @return opened directory, to be closed by the caller
+     * @throws ZipException when the archive is not supported by this reader
+     * @throws IOException when the file cannot be read
+     */
+    public static ZipCentralDirectory open( File file )
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        boolean ok = false;
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if ( length < EOCD_SIZE )
+            {
+                throw new ZipException( "Not a zip file: " + file );
+            }
+            int tailLength = (int) Math.min( length, EOCD_SIZE + MAX_COMMENT );
+            ByteBuffer tail = read( channel, length - tailLength, tailLength );
+            int eocd = -1;
+            for ( int i = tailLength - EOCD_SIZE; i >= 0; i-- )
+            {
+                if ( tail.getInt( i ) == EOCD_SIG && i + EOCD_SIZE + ( tail.getShort( i + 20 ) & 0xFFFF ) == tailLength )
+                {
+                    eocd = i;
+                    break;
+                }
+            }
+            if ( eocd < 0 )
+            {
+                throw new ZipException( "No end of central directory record in " + file );
+            }
+            int disk = tail.getShort( eocd + 4 ) & 0xFFFF;
+            int cenDisk = tail.getShort( eocd + 6 ) & 0xFFFF;
+            int diskCount = tail.getShort( eocd + 8 ) & 0xFFFF;
+            int total = tail.getShort( eocd + 10 ) & 0xFFFF;
+            long cenSize = tail.getInt( eocd + 12 ) & 0xFFFFFFFFL;
+            long cenOffset = tail.getInt( eocd + 16 ) & 0xFFFFFFFFL;
+            if ( disk != 0 || cenDisk != 0 || diskCount != total || total == 0xFFFF || cenSize == 0xFFFFFFFFL
+                || cenOffset == 0xFFFFFFFFL )
+            {
+                throw new ZipException( "Zip64 or multi disk archive " + file );
+            }
+            long cenEnd = length - tailLength + eocd;
+            if ( cenOffset + cenSize != cenEnd )
+            {
+                // data prepended to the archive (self extracting zip) or a broken file
+                throw new ZipException( "Unexpected central directory location in " + file );
+            }
+            ByteBuffer central = read( channel, cenOffset, (int) cenSize );
+            byte[] comment = new byte[tailLength - eocd - EOCD_SIZE];
+            tail.position( eocd + EOCD_SIZE );
+            tail.get( comment );
+            ZipCentralDirectory dir = new ZipCentralDirectory( file, raf, central, total, cenOffset, comment );
+            ok = true;
+            return dir;
+        }
+        finally
+        {
+            if ( !ok )
+            {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the main manifest of a jar file, looking at the central directory and the manifest entry only.
+     * @param file jar file
+     * @return raw manifest bytes or null if the jar has no manifest
+     * @throws ZipException when the archive is not supported by this reader
+     * @throws IOException when the file cannot be read
+     */
+    public static byte[] readManifestBytes( File file )
+        throws IOException
+    {
+        ZipCentralDirectory dir = open( file );
+        try
+        {
+            Entry entry = dir.findEntry( "META-INF/MANIFEST.MF", true );
+            return entry == null ? null : dir.readFully( entry );
+        }
+        finally
+        {
+            dir.close();
+        }
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return number of entries in the archive
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * All entries of the archive, in central directory order.
+     * @return unmodifiable list of entries
+     * @throws ZipException when the central directory is corrupted
+     */
+    public synchronized List<Entry> getEntries()
+        throws ZipException
+    {
+        if ( entries == null )
+        {
+            List<Entry> list = new ArrayList<Entry>( count );
+            int pos = 0;
+            for ( int i = 0; i < count; i++ )
+            {
+                checkHeader( pos );
+                int nameLength = central.getShort( pos + 28 ) & 0xFFFF;
+                list.add( createEntry( pos, nameLength ) );
+                pos = next( pos, nameLength );
+            }
+            entries = Collections.unmodifiableList( list );
+        }
+        return entries;
+    }
+
+    /**
+     * Finds an entry without decoding the names of the other entries.
+     * @param name entry name, ASCII only when ignoring case
+     * @param ignoreCase whether the name comparison ignores ASCII case, like the manifest lookup in JarFile does
+     * @return the entry or null
+     * @throws ZipException when the central directory is corrupted
+     */
+    public Entry findEntry( String name, boolean ignoreCase )
+        throws ZipException
+    {
+        byte[] wanted = name.getBytes( UTF_8 );
+        Entry caseless = null;
+        int pos = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            checkHeader( pos );
+            int nameLength = central.getShort( pos + 28 ) & 0xFFFF;
+            if ( nameLength == wanted.length )
+            {
+                int match = compare( pos + CEN_SIZE, wanted );
+                if ( match == 0 )
+                {
+                    return createEntry( pos, nameLength );
+                }
+                if ( ignoreCase && match == 1 && caseless == null )
+                {
+                    caseless = createEntry( pos, nameLength );
+                }
+            }
+            pos = next( pos, nameLength );
+        }
+        return caseless;
+    }
+
+    /**
+     * Opens the uncompressed data of an entry.
+     * @param entry entry of this archive
+     * @return stream of the entry content
+     * @throws IOException when the entry cannot be read
+     */
+    public InputStream getInputStream( Entry entry )
+        throws IOException
+    {
+        return new ByteArrayInputStream( readFully( entry ) );
+    }
+
+    /**
+     * Reads and inflates the whole entry.
+     * @param entry entry of this archive
+     * @return entry content
+     * @throws IOException when the entry cannot be read or is not stored or deflated
+     */
+    public byte[] readFully( Entry entry )
+        throws IOException
+    {
+        if ( entry.getSize() > Integer.MAX_VALUE )
+        {
+            throw new ZipException( "Entry too large " + entry.getName() );
+        }
+        ByteBuffer raw = readRaw( entry );
+        if ( entry.getMethod() == ZipEntry.STORED )
+        {
+            byte[] data = new byte[raw.remaining()];
+            raw.get( data );
+            return data;
+        }
+        if ( entry.getMethod() != ZipEntry.DEFLATED )
+        {
+            throw new ZipException( "Unsupported compression method " + entry.getMethod() + " of " + entry.getName() );
+        }
+        byte[] compressed = new byte[raw.remaining()];
+        raw.get( compressed );
+        byte[] data = new byte[(int) entry.getSize()];
+        Inflater inflater = new Inflater( true );
+        try
+        {
+            // nowrap inflater may need one extra dummy byte to finish
+            byte[] input = new byte[compressed.length + 1];
+            System.arraycopy( compressed, 0, input, 0, compressed.length );
+            inflater.setInput( input );
+            int n = inflater.inflate( data );
+            if ( n != data.length || ( !inflater.finished() && inflater.inflate( new byte[1] ) != 0 ) )
+            {
+                throw new ZipException( "Invalid entry size of " + entry.getName() );
+            }
+            return data;
+        }
+        catch ( DataFormatException ex )
+        {
+            ZipException zex = new ZipException( "Invalid deflated data of " + entry.getName() );
+            zex.initCause( ex );
+            throw zex;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads the entry data as stored in the archive, without inflating it.
+     * @param entry entry of this archive
+     * @return buffer positioned at the start of the compressed data
+     * @throws IOException when the entry cannot be read
+     */
+    public ByteBuffer readRaw( Entry entry )
+        throws IOException
+    {
+        if ( entry.getCompressedSize() > Integer.MAX_VALUE )
+        {
+            throw new ZipException( "Entry too large " + entry.getName() );
+        }
+        return read( channel, getDataOffset( entry ), (int) entry.getCompressedSize() );
+    }
+
+    /**
+     * Position of the entry data in the file, right after its local header.
+     * @param entry entry of this archive
+     * @return file offset of the compressed data
+     * @throws IOException when the local header cannot be read
+     */
+    public long getDataOffset( Entry entry )
+        throws IOException
+    {
+        ByteBuffer local = read( channel, entry.getLocalHeaderOffset(), LOC_SIZE );
+        if ( local.getInt( 0 ) != LOC_SIG )
+        {
+            throw new ZipException( "Invalid local header of " + entry.getName() );
+        }
+        int nameLength = local.getShort( 26 ) & 0xFFFF;
+        int extraLength = local.getShort( 28 ) & 0xFFFF;
+        return entry.getLocalHeaderOffset() + LOC_SIZE + nameLength + extraLength;
+    }
+
+    /**
+     * Writes a copy of the archive with the content of one entry replaced by deflated new content.
+     * The data of all other entries is copied as stored, without inflating it, so their CRCs and sizes are kept;
+     * the replaced entry keeps its position, name, time and extra fields in the central directory.
+     * @param target file to write, not the file of this archive
+     * @param entry entry of this archive to replace
+     * @param content new uncompressed content of the entry
+     * @throws ZipException when the archive layout is not supported, nothing is written then
+     * @throws IOException when the archive cannot be read or the target written
+     */
+    public void copyReplacing( File target, Entry entry, byte[] content )
+        throws IOException
+    {
+        if ( target.getCanonicalFile().equals( file.getCanonicalFile() ) )
+        {
+            throw new IOException( "Cannot copy " + file + " onto itself" );
+        }
+        long start = entry.getLocalHeaderOffset();
+        long end = centralOffset;
+        int pos = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            checkHeader( pos );
+            long offset = central.getInt( pos + 42 ) & 0xFFFFFFFFL;
+            if ( offset == start && pos != entry.centralPosition )
+            {
+                throw new ZipException( "Entries sharing their data in " + file );
+            }
+            if ( offset > start && offset < end )
+            {
+                end = offset;
+            }
+            pos = next( pos, central.getShort( pos + 28 ) & 0xFFFF );
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update( content );
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream( content.length / 2 + 64 );
+        Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        try
+        {
+            DeflaterOutputStream dos = new DeflaterOutputStream( compressed, deflater );
+            dos.write( content );
+            dos.finish();
+        }
+        finally
+        {
+            deflater.end();
+        }
+        int cen = entry.centralPosition;
+        int nameLength = central.getShort( cen + 28 ) & 0xFFFF;
+        // only the UTF-8 name flag still applies, the new data has no descriptor and default compression
+        int flags = entry.getFlags() & 0x0800;
+        ByteBuffer local = ByteBuffer.allocate( LOC_SIZE + nameLength + compressed.size() ).order( ByteOrder.LITTLE_ENDIAN );
+        local.putInt( LOC_SIG ).putShort( (short) 20 ).putShort( (short) flags ).putShort( (short) ZipEntry.DEFLATED );
+        local.putShort( central.getShort( cen + 12 ) ).putShort( central.getShort( cen + 14 ) );
+        local.putInt( (int) crc.getValue() ).putInt( compressed.size() ).putInt( content.length );
+        local.putShort( (short) nameLength ).putShort( (short) 0 );
+        for ( int i = 0; i < nameLength; i++ )
+        {
+            local.put( central.get( cen + CEN_SIZE + i ) );
+        }
+        local.put( compressed.toByteArray() );
+        local.flip();
+        long delta = local.remaining() - ( end - start );
+        if ( centralOffset + delta > 0xFFFFFFFEL )
+        {
+            throw new ZipException( "Copy of " + file + " would need zip64" );
+        }
+
+        ByteBuffer cd = ByteBuffer.allocate( central.limit() ).order( ByteOrder.LITTLE_ENDIAN );
+        for ( int i = 0; i < central.limit(); i++ )
+        {
+            cd.put( i, central.get( i ) );
+        }
+        pos = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            long offset = cd.getInt( pos + 42 ) & 0xFFFFFFFFL;
+            if ( offset > start )
+            {
+                cd.putInt( pos + 42, (int) ( offset + delta ) );
+            }
+            pos = next( pos, cd.getShort( pos + 28 ) & 0xFFFF );
+        }
+        cd.putShort( cen + 6, (short) 20 ).putShort( cen + 8, (short) flags );
+        cd.putShort( cen + 10, (short) ZipEntry.DEFLATED ).putInt( cen + 16, (int) crc.getValue() );
+        cd.putInt( cen + 20, compressed.size() ).putInt( cen + 24, content.length );
+
+        ByteBuffer eocd = ByteBuffer.allocate( EOCD_SIZE + comment.length ).order( ByteOrder.LITTLE_ENDIAN );
+        eocd.putInt( EOCD_SIG ).putShort( (short) 0 ).putShort( (short) 0 );
+        eocd.putShort( (short) count ).putShort( (short) count );
+        eocd.putInt( cd.limit() ).putInt( (int) ( centralOffset + delta ) );
+        eocd.putShort( (short) comment.length ).put( comment );
+        eocd.flip();
+
+        FileOutputStream out = new FileOutputStream( target );
+        try
+        {
+            FileChannel outChannel = out.getChannel();
+            transfer( 0, start, outChannel );
+            write( local, outChannel );
+            transfer( end, centralOffset - end, outChannel );
+            write( cd, outChannel );
+            write( eocd, outChannel );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    public void close()
+        throws IOException
+    {
+        raf.close();
+    }
+
+    private void transfer( long position, long length, FileChannel target )
+        throws IOException
+    {
+        while ( length > 0 )
+        {
+            long n = channel.transferTo( position, length, target );
+            if ( n <= 0 )
+            {
+                throw new ZipException( "Unexpected end of file" );
+            }
+            position += n;
+            length -= n;
+        }
+    }
+
+    private static void write( ByteBuffer buffer, FileChannel target )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            target.write( buffer );
+        }
+    }
+
+    private void checkHeader( int pos )
+        throws ZipException
+    {
+        if ( pos + CEN_SIZE > central.limit() || central.getInt( pos ) != CEN_SIG )
+        {
+            throw new ZipException( "Invalid central directory of " + file );
+        }
+    }
+
+    private int next( int pos, int nameLength )
+    {
+        return pos + CEN_SIZE + nameLength + ( central.getShort( pos + 30 ) & 0xFFFF )
+            + ( central.getShort( pos + 32 ) & 0xFFFF );
+    }
+
+    /**
+     * @return 0 for exact match, 1 for ASCII case insensitive match, -1 otherwise
+     */
+    private int compare( int pos, byte[] wanted )
+    {
+        int result = 0;
+        for ( int i = 0; i < wanted.length; i++ )
+        {
+            byte b = central.get( pos + i );
+            if ( b != wanted[i] )
+            {
+                if ( toUpper( b ) != toUpper( wanted[i] ) )
+                {
+                    return -1;
+                }
+                result = 1;
+            }
+        }
+        return result;
+    }
+
+    private static byte toUpper( byte b )
+    {
+        return b >= 'a' && b <= 'z' ? (byte) ( b - 32 ) : b;
+    }
+
+    private Entry createEntry( int pos, int nameLength )
+        throws ZipException
+    {
+        int flags = central.getShort( pos + 8 ) & 0xFFFF;
+        if ( ( flags & 1 ) != 0 )
+        {
+            throw new ZipException( "Encrypted entries are not supported in " + file );
+        }
+        long compressedSize = central.getInt( pos + 20 ) & 0xFFFFFFFFL;
+        long size = central.getInt( pos + 24 ) & 0xFFFFFFFFL;
+        long offset = central.getInt( pos + 42 ) & 0xFFFFFFFFL;
+        if ( compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || offset == 0xFFFFFFFFL )
+        {
+            throw new ZipException( "Zip64 entries are not supported in " + file );
+        }
+        byte[] name = new byte[nameLength];
+        for ( int i = 0; i < nameLength; i++ )
+        {
+            name[i] = central.get( pos + CEN_SIZE + i );
+        }
+        return new Entry( new String( name, UTF_8 ), central.getShort( pos + 10 ) & 0xFFFF, flags,
+                          central.getInt( pos + 16 ) & 0xFFFFFFFFL, compressedSize, size, offset, pos );
+    }
+
+    private static ByteBuffer read( FileChannel channel, long position, int length )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length ).order( ByteOrder.LITTLE_ENDIAN );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                throw new ZipException( "Unexpected end of file" );
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * One entry of the central directory.
+     */
+    public static final class Entry
+    {
+        private final String name;
+
+        private final int method;
+
+        private final int flags;
+
+        private final long crc;
+
+        private final long compressedSize;
+
+        private final long size;
+
+        private final long localHeaderOffset;
+
+        /**
+         * Position of the entry's record in the central directory buffer.
+         */
+        final int centralPosition;
+
+        Entry( String name, int method, int flags, long crc, long compressedSize, long size, long localHeaderOffset,
+               int centralPosition )
+        {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.centralPosition = centralPosition;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public boolean isDirectory()
+        {
+            return name.endsWith( "/" );
+        }
+
+        /**
+         * @return {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED} for entries this reader can inflate
+         */
+        public int getMethod()
+        {
+            return method;
+        }
+
+        public int getFlags()
+        {
+            return flags;
+        }
+
+        public long getCrc()
+        {
+            return crc;
+        }
+
+        public long getCompressedSize()
+        {
+            return compressedSize;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public long getLocalHeaderOffset()
+        {
+            return localHeaderOffset;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+}
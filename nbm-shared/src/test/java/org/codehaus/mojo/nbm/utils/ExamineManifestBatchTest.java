@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+public class ExamineManifestBatchTest extends TempDirTestCase
+{
+
+    public ExamineManifestBatchTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testResultsInInputOrder()
+        throws Exception
+    {
+        List<File> jars = new ArrayList<File>();
+        for ( int i = 0; i < 40; i++ )
+        {
+            File jar = new File( dir, "module" + i + ".jar" );
+            Manifest mf = new Manifest();
+            mf.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+            mf.getMainAttributes().putValue( "OpenIDE-Module", "org.foo.m" + i );
+            mf.getMainAttributes().putValue( "OpenIDE-Module-Module-Dependencies", "org.foo.m" + ( i + 1 ) + " > 1.0" );
+            new JarOutputStream( new FileOutputStream( jar ), mf ).close();
+            jars.add( jar );
+        }
+        ExamineManifestBatch batch = new ExamineManifestBatch( new SystemStreamLog() );
+        batch.setThreads( 4 );
+        batch.setPopulateDependencies( true );
+        List<ExamineManifest> result = batch.examine( jars );
+        assertEquals( jars.size(), result.size() );
+        List<Manifest> manifests = batch.readManifests( jars );
+        for ( int i = 0; i < jars.size(); i++ )
+        {
+            assertEquals( "org.foo.m" + i, result.get( i ).getModule() );
+            assertEquals( "[org.foo.m" + ( i + 1 ) + "]", result.get( i ).getDependencyTokens().toString() );
+            assertEquals( "org.foo.m" + i, manifests.get( i ).getMainAttributes().getValue( "OpenIDE-Module" ) );
+        }
+    }
+
+    public void testFailure()
+        throws Exception
+    {
+        File broken = new File( dir, "broken.jar" );
+        FileUtils.fileWrite( broken.getPath(), "not a jar" );
+        List<File> jars = new ArrayList<File>();
+        jars.add( broken );
+        jars.add( broken );
+        try
+        {
+            new ExamineManifestBatch( new SystemStreamLog() ).examine( jars );
+            fail( "broken jar must fail" );
+        }
+        catch ( MojoExecutionException ex )
+        {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "broken.jar" ) );
+        }
+    }
+}
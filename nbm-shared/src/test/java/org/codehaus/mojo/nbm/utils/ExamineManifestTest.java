@@ -84,4 +84,47 @@ public class ExamineManifestTest extends TestCase
         assertEquals( "[org.eclipse.equinox.registry, org.eclipse.equinox.common]", em.getDependencyTokens().toString() );
     }
 
+    public void testManifestInfo()
+            throws Exception
+    {
+        File mf = File.createTempFile( "ExamineManifestTest", ".mf" );
+        mf.deleteOnExit();
+        PrintWriter w = new PrintWriter( mf );
+        w.println( "Bundle-SymbolicName: org.eclipse.jdt.core; singleton:=true" );
+        w.println( "Bundle-Version: 3.1.0" );
+        w.println( "Export-Package: org.eclipse.jdt.core,org.eclipse.jdt.core.dom" );
+        w.println( "Import-Package: org.osgi.framework;version=\"1.3.0\",javax.xml.parsers" );
+        w.flush();
+        w.close();
+        ExamineManifest em = new ExamineManifest( new SystemStreamLog() );
+        em.setManifestFile( mf );
+        em.setPopulateDependencies( true );
+        em.checkFile();
+        ManifestInfo info = em.getManifestInfo();
+        assertSame( info, em.getManifestInfo() );
+        assertTrue( info.isOsgiBundle() );
+        assertEquals( "org.eclipse.jdt.core", info.getModule() );
+        assertEquals( "3.1.0", info.getSpecVersion() );
+        assertEquals( em.getOsgiExports(), info.getOsgiExports() );
+        assertTrue( info.getOsgiImports().contains( "org.osgi.framework" ) );
+        assertFalse( info.getOsgiImports().contains( "org.osgi" ) );
+        try
+        {
+            info.getOsgiImports().remove( "javax.xml.parsers" );
+            fail( "immutable" );
+        }
+        catch ( UnsupportedOperationException ex )
+        {
+            // expected
+        }
+
+        ExamineManifest other = new ExamineManifest( new SystemStreamLog() );
+        other.setManifestFile( mf );
+        other.setPopulateDependencies( true );
+        other.checkFile();
+        assertEquals( info, other.getManifestInfo() );
+        assertEquals( info.hashCode(), other.getManifestInfo().hashCode() );
+        assertFalse( info.equals( new ExamineManifest( new SystemStreamLog() ).getManifestInfo() ) );
+    }
+
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public class ManifestCacheTest extends TempDirTestCase
+{
+
+    public ManifestCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testHitsAndMisses()
+        throws Exception
+    {
+        File jar = new File( dir, "module.jar" );
+        writeJar( jar, "org.netbeans.modules.foo/1" );
+        ManifestCache cache = new ManifestCache( new File( dir, "cache" ) );
+        assertEquals( "org.netbeans.modules.foo/1", cache.getManifest( jar ).getMainAttributes().getValue( "OpenIDE-Module" ) );
+        assertEquals( 0, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+
+        ManifestCache other = new ManifestCache( new File( dir, "cache" ) );
+        assertEquals( "org.netbeans.modules.foo/1", other.getManifest( jar ).getMainAttributes().getValue( "OpenIDE-Module" ) );
+        assertEquals( 1, other.getHits() );
+        assertEquals( 0, other.getMisses() );
+
+        writeJar( jar, "org.netbeans.modules.foobar/2" );
+        jar.setLastModified( jar.lastModified() + 10000 );
+        assertEquals( "org.netbeans.modules.foobar/2", other.getManifest( jar ).getMainAttributes().getValue( "OpenIDE-Module" ) );
+        assertEquals( 1, other.getMisses() );
+    }
+
+    public void testExamineWithCache()
+        throws Exception
+    {
+        File jar = new File( dir, "module.jar" );
+        writeJar( jar, "org.netbeans.modules.foo/1" );
+        ManifestCache cache = new ManifestCache( new File( dir, "cache" ) );
+        for ( int i = 0; i < 2; i++ )
+        {
+            ExamineManifest em = new ExamineManifest( null );
+            em.setManifestCache( cache );
+            em.setJarFile( jar );
+            em.checkFile();
+            assertTrue( em.isNetBeansModule() );
+            assertEquals( "org.netbeans.modules.foo", em.getModule() );
+            assertEquals( "1.0", em.getSpecVersion() );
+        }
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+    }
+
+    private static void writeJar( File jar, String cnb )
+        throws Exception
+    {
+        Manifest mf = new Manifest();
+        Attributes attrs = mf.getMainAttributes();
+        attrs.put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        attrs.putValue( "OpenIDE-Module", cnb );
+        attrs.putValue( "OpenIDE-Module-Specification-Version", "1.0" );
+        JarOutputStream jos = new JarOutputStream( new FileOutputStream( jar ), mf );
+        jos.close();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.codehaus.mojo.nbm.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class OsgiHeaderTest extends TestCase
+{
+
+    public OsgiHeaderTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testNames()
+    {
+        List<String> names = new ArrayList<String>();
+        OsgiHeader.parseNames( "org.eclipse.equinox.registry;bundle-version=\"[3.4.0,4.0.0)\","
+            + " org.eclipse.equinox.common;bundle-version=\"[3.2.0,4.0.0)\";resolution:=optional", names );
+        assertEquals( "[org.eclipse.equinox.registry, org.eclipse.equinox.common]", names.toString() );
+
+        names.clear();
+        OsgiHeader.parseNames( "a.b;c.d;version=1.0,e.f;uses:=\"a.b,c.d\",g", names );
+        assertEquals( "[a.b, c.d, e.f, g]", names.toString() );
+
+        names.clear();
+        OsgiHeader.parseNames( " , a ,", names );
+        assertEquals( "[a]", names.toString() );
+    }
+
+    public void testClauses()
+    {
+        List<OsgiHeader.Clause> clauses = OsgiHeader.parse(
+            "org.foo;org.bar;version:Version=\"1.2\";x-internal:=true, org.baz;note=\"say \\\"hi\\\"; now\"" );
+        assertEquals( 2, clauses.size() );
+        OsgiHeader.Clause first = clauses.get( 0 );
+        assertEquals( "[org.foo, org.bar]", first.getNames().toString() );
+        assertEquals( "1.2", first.getAttributes().get( "version" ) );
+        assertEquals( "true", first.getDirectives().get( "x-internal" ) );
+        OsgiHeader.Clause second = clauses.get( 1 );
+        assertEquals( "[org.baz]", second.getNames().toString() );
+        assertEquals( "say \"hi\"; now", second.getAttributes().get( "note" ) );
+        assertTrue( second.getDirectives().isEmpty() );
+        assertTrue( OsgiHeader.parse( null ).isEmpty() );
+    }
+}
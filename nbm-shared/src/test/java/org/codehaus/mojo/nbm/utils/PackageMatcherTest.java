@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.codehaus.mojo.nbm.utils;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class PackageMatcherTest extends TestCase
+{
+
+    public PackageMatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testSubpackages()
+    {
+        PackageMatcher matcher = PackageMatcher.forPublicPackages( Arrays.asList( "org.milos.**", "org.tomas.**" ) );
+        assertTrue( matcher.matchesClass( "org.milos.Test" ) );
+        assertTrue( matcher.matchesClass( "org.milos.pack.Test" ) );
+        assertTrue( matcher.matchesClass( "org.tomas.pack.Test$Inside" ) );
+        assertFalse( matcher.matchesClass( "org.milan" ) );
+        assertFalse( matcher.matchesClass( "org.milosclass" ) );
+        assertTrue( matcher.matchesPackage( "org.milos" ) );
+        assertTrue( matcher.matchesPackage( "org.milos.pack" ) );
+        assertFalse( matcher.matchesPackage( "org.milosx" ) );
+        assertFalse( matcher.matchesPackage( "org" ) );
+    }
+
+    public void testPackages()
+    {
+        PackageMatcher matcher = PackageMatcher.forPublicPackages( Arrays.asList( "org.milos.*", "org.tomas.*" ) );
+        assertTrue( matcher.matchesClass( "org.milos.Test" ) );
+        assertFalse( matcher.matchesClass( "org.milos.pack.Test" ) );
+        assertFalse( matcher.matchesClass( "org.tomas.pack.Test$Inside" ) );
+        assertTrue( matcher.matchesClass( "org.tomas.Test$Inside" ) );
+        assertFalse( matcher.matchesClass( "org.milan" ) );
+        assertFalse( matcher.matchesClass( "org.milosclass" ) );
+        assertFalse( matcher.matchesClass( "Test" ) );
+        assertTrue( matcher.matchesPackage( "org.milos" ) );
+        assertFalse( matcher.matchesPackage( "org.milos.pack" ) );
+    }
+
+    public void testMixed()
+    {
+        PackageMatcher matcher = PackageMatcher.forPublicPackages( Arrays.asList( "org.a.*", "org.a.b.**" ) );
+        assertTrue( matcher.matchesClass( "org.a.X" ) );
+        assertTrue( matcher.matchesClass( "org.a.b.c.X" ) );
+        assertFalse( matcher.matchesClass( "org.a.c.X" ) );
+        assertFalse( PackageMatcher.forPublicPackages( Arrays.<String>asList() ).matchesClass( "org.a.X" ) );
+        assertTrue( PackageMatcher.all().matchesClass( "org.a.X" ) );
+    }
+
+    public void testDefaultPackage()
+    {
+        assertTrue( PackageMatcher.all().matchesClass( "X" ) );
+        assertTrue( PackageMatcher.all().matchesClass( "X$Inner" ) );
+        assertTrue( PackageMatcher.all().matchesPackage( "" ) );
+        PackageMatcher matcher = PackageMatcher.forPublicPackages( Arrays.asList( "org.a.**" ) );
+        assertFalse( matcher.matchesClass( "X" ) );
+        assertFalse( matcher.matchesPackage( "" ) );
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 Codehaus.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.codehaus.mojo.nbm.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+public class ZipCentralDirectoryTest extends TempDirTestCase
+{
+
+    public ZipCentralDirectoryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public void testEntriesMatchZipFile()
+        throws Exception
+    {
+        File jar = new File( dir, "test.jar" );
+        writeJar( jar, 50 );
+        ZipCentralDirectory cd = ZipCentralDirectory.open( jar );
+        ZipFile zf = new ZipFile( jar );
+        try
+        {
+            List<ZipCentralDirectory.Entry> entries = cd.getEntries();
+            assertEquals( zf.size(), entries.size() );
+            Enumeration<? extends ZipEntry> en = zf.entries();
+            for ( ZipCentralDirectory.Entry entry : entries )
+            {
+                ZipEntry ze = en.nextElement();
+                assertEquals( ze.getName(), entry.getName() );
+                assertEquals( ze.getCrc(), entry.getCrc() );
+                assertEquals( ze.getSize(), entry.getSize() );
+                assertEquals( ze.getMethod(), entry.getMethod() );
+                if ( !entry.isDirectory() )
+                {
+                    byte[] expected = IOUtil.toByteArray( zf.getInputStream( ze ) );
+                    assertTrue( entry.getName(), Arrays.equals( expected, cd.readFully( entry ) ) );
+                }
+            }
+            assertNull( cd.findEntry( "missing", false ) );
+            assertEquals( "org/foo/Res7.txt", cd.findEntry( "org/foo/Res7.txt", false ).getName() );
+        }
+        finally
+        {
+            zf.close();
+            cd.close();
+        }
+    }
+
+    public void testManifest()
+        throws Exception
+    {
+        File jar = new File( dir, "test.jar" );
+        writeJar( jar, 3 );
+        Manifest mf = ExamineManifest.readJarManifest( jar );
+        assertEquals( "org.foo", mf.getMainAttributes().getValue( "OpenIDE-Module" ) );
+
+        File plain = new File( dir, "plain.jar" );
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( plain ) );
+        out.putNextEntry( new ZipEntry( "a.txt" ) );
+        out.close();
+        assertNull( ZipCentralDirectory.readManifestBytes( plain ) );
+        assertNull( ExamineManifest.readJarManifest( plain ) );
+    }
+
+    public void testPrependedDataFallsBack()
+        throws Exception
+    {
+        File jar = new File( dir, "test.jar" );
+        writeJar( jar, 3 );
+        File prefixed = new File( dir, "prefixed.jar" );
+        OutputStream out = new FileOutputStream( prefixed );
+        out.write( new byte[100] );
+        out.write( FileUtils.fileRead( jar, "ISO-8859-1" ).getBytes( "ISO-8859-1" ) );
+        out.close();
+        try
+        {
+            ZipCentralDirectory.readManifestBytes( prefixed );
+            fail( "prepended data is not supported" );
+        }
+        catch ( ZipException ex )
+        {
+            // expected
+        }
+        Manifest mf = ExamineManifest.readJarManifest( prefixed );
+        assertEquals( "org.foo", mf.getMainAttributes().getValue( "OpenIDE-Module" ) );
+    }
+
+    public void testCopyReplacing()
+        throws Exception
+    {
+        File jar = new File( dir, "test.jar" );
+        writeJar( jar, 20 );
+        Manifest mf = ExamineManifest.readJarManifest( jar );
+        mf.getMainAttributes().putValue( "Class-Path", "ext/a.jar ext/b.jar" );
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        mf.write( content );
+        File copy = new File( dir, "copy.jar" );
+        ZipCentralDirectory cd = ZipCentralDirectory.open( jar );
+        try
+        {
+            cd.copyReplacing( copy, cd.findEntry( "META-INF/MANIFEST.MF", false ), content.toByteArray() );
+        }
+        finally
+        {
+            cd.close();
+        }
+
+        JarInputStream jis = new JarInputStream( new FileInputStream( copy ) );
+        try
+        {
+            assertEquals( "ext/a.jar ext/b.jar", jis.getManifest().getMainAttributes().getValue( "Class-Path" ) );
+            assertEquals( "org.foo", jis.getManifest().getMainAttributes().getValue( "OpenIDE-Module" ) );
+        }
+        finally
+        {
+            jis.close();
+        }
+        ZipFile original = new ZipFile( jar );
+        ZipFile copied = new ZipFile( copy );
+        try
+        {
+            assertEquals( original.size(), copied.size() );
+            Enumeration<? extends ZipEntry> en = copied.entries();
+            for ( Enumeration<? extends ZipEntry> oen = original.entries(); oen.hasMoreElements(); )
+            {
+                ZipEntry o = oen.nextElement();
+                ZipEntry c = en.nextElement();
+                assertEquals( o.getName(), c.getName() );
+                byte[] data = IOUtil.toByteArray( copied.getInputStream( c ) );
+                if ( o.getName().equals( "META-INF/MANIFEST.MF" ) )
+                {
+                    assertTrue( Arrays.equals( content.toByteArray(), data ) );
+                    continue;
+                }
+                assertEquals( o.getCrc(), c.getCrc() );
+                assertEquals( o.getCompressedSize(), c.getCompressedSize() );
+                assertTrue( Arrays.equals( IOUtil.toByteArray( original.getInputStream( o ) ), data ) );
+            }
+        }
+        finally
+        {
+            original.close();
+            copied.close();
+        }
+
+        // the last entry, followed directly by the central directory
+        File copy2 = new File( dir, "copy2.jar" );
+        cd = ZipCentralDirectory.open( copy );
+        try
+        {
+            cd.copyReplacing( copy2, cd.findEntry( "org/foo/Res19.txt", false ), new byte[] { 'x' } );
+        }
+        finally
+        {
+            cd.close();
+        }
+        copied = new ZipFile( copy2 );
+        try
+        {
+            assertEquals( "x", IOUtil.toString( copied.getInputStream( copied.getEntry( "org/foo/Res19.txt" ) ) ) );
+            assertEquals( "ext/a.jar ext/b.jar", new Manifest( copied.getInputStream(
+                copied.getEntry( "META-INF/MANIFEST.MF" ) ) ).getMainAttributes().getValue( "Class-Path" ) );
+        }
+        finally
+        {
+            copied.close();
+        }
+    }
+
+    private static void writeJar( File jar, int count )
+        throws Exception
+    {
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        mf.getMainAttributes().putValue( "OpenIDE-Module", "org.foo" );
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ), mf );
+        out.putNextEntry( new ZipEntry( "org/foo/" ) );
+        for ( int i = 0; i < count; i++ )
+        {
+            byte[] data = ( "resource number " + i + " of some text that compresses well well well" ).getBytes( "UTF-8" );
+            ZipEntry entry = new ZipEntry( "org/foo/Res" + i + ".txt" );
+            if ( i % 2 == 0 )
+            {
+                CRC32 crc = new CRC32();
+                crc.update( data );
+                entry.setMethod( ZipEntry.STORED );
+                entry.setSize( data.length );
+                entry.setCrc( crc.getValue() );
+            }
+            out.putNextEntry( entry );
+            out.write( data );
+        }
+        out.close();
+    }
+}